@@ -0,0 +1,422 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uc.mahout.base.topicmodel;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.util.Version;
+import org.apache.mahout.clustering.lda.cvb.TopicModel;
+import org.apache.mahout.math.RandomAccessSparseVector;
+import org.apache.mahout.math.Vector;
+import org.apache.mahout.math.stats.LogLikelihood;
+
+/**
+ * In-process replacement of {@link Tagger} for the few documents of a
+ * cluster. The documents are vectorized in memory as <code>seq2sparse</code>
+ * does with the options of {@link Tagger}: standard analyzer, unigrams and
+ * bigrams with a minimum support and log-likelihood ratio, terms in more
+ * than <code>maxDFPercent</code> of the documents pruned and term
+ * frequencies normalized. The iterations of CVB update the counts as the
+ * {@link TopicModel} of Mahout, in a single thread and one document after the
+ * other, so the same seed gives the same terms.
+ *
+ * The weight of a term is its normalized weight in the topic where it is the
+ * highest, the label is the term with the highest weight.
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class InMemoryTagger {
+
+    public static final String NO_LABEL = "No Label";
+
+    private int numTopics = 10;
+    private int maxIterations = 20;
+    private int maxIterationsPerDoc = 10;
+    private double alpha = 0.0001;
+    private double eta = 0.0001;
+    private int minSupport = 2;
+    private double minLLR = 1.0;
+    private int maxDFPercent = 60;
+    private boolean bigrams = true;
+    private long seed = 1;
+
+    /**
+     * Return the label of the documents.
+     *
+     * @param documents
+     * @return the term with the highest weight, or {@link #NO_LABEL} when no
+     * term is left after the pruning.
+     * @throws IOException
+     */
+    public String tag(List<String> documents) throws IOException {
+        List<String> terms = topTerms(documents, 1);
+        return terms.isEmpty() ? NO_LABEL : terms.get(0);
+    }
+
+    /**
+     * Return the terms with the highest weight in the topics of the
+     * documents.
+     *
+     * @param documents
+     * @param n maximum number of terms.
+     * @return the terms, from the highest weight.
+     * @throws IOException
+     */
+    public List<String> topTerms(List<String> documents, int n) throws IOException {
+        final Map<String, Double> weights = weights(documents);
+        List<String> terms = new ArrayList<>(weights.keySet());
+        // Terms are in the order of the dictionary, ties keep it.
+        Collections.sort(terms, new Comparator<String>() {
+            @Override
+            public int compare(String a, String b) {
+                return Double.compare(weights.get(b), weights.get(a));
+            }
+        });
+        return terms.subList(0, Math.min(n, terms.size()));
+    }
+
+    /**
+     * Highest normalized weight of every term in the topics, in the order of
+     * the dictionary.
+     *
+     * @param documents
+     * @return
+     * @throws IOException
+     */
+    public Map<String, Double> weights(List<String> documents) throws IOException {
+        List<List<String>> tokens = new ArrayList<>(documents.size());
+        Analyzer analyzer = new StandardAnalyzer(Version.LUCENE_46);
+        try {
+            for (String document : documents) {
+                tokens.add(tokenize(analyzer, document));
+            }
+        } finally {
+            analyzer.close();
+        }
+
+        String[] dictionary = dictionary(tokens);
+        Map<String, Double> weights = new TreeMap<>();
+        if (dictionary.length == 0) {
+            return weights;
+        }
+        double[][] counts = train(vectorize(tokens, dictionary), dictionary.length);
+        for (double[] row : counts) {
+            double norm = 0;
+            for (double count : row) {
+                norm += count;
+            }
+            if (norm == 0) {
+                continue;
+            }
+            for (int term = 0; term < row.length; term++) {
+                if (row[term] == 0) {
+                    continue;
+                }
+                double weight = row[term] / norm;
+                Double previous = weights.get(dictionary[term]);
+                if (previous == null || weight > previous) {
+                    weights.put(dictionary[term], weight);
+                }
+            }
+        }
+        return weights;
+    }
+
+    private static List<String> tokenize(Analyzer analyzer, String document) throws IOException {
+        List<String> tokens = new ArrayList<>();
+        try (TokenStream ts = analyzer.tokenStream("text", document)) {
+            CharTermAttribute term = ts.addAttribute(CharTermAttribute.class);
+            ts.reset();
+            while (ts.incrementToken()) {
+                tokens.add(term.toString());
+            }
+            ts.end();
+        }
+        return tokens;
+    }
+
+    /**
+     * Terms with the minimum support, bigrams with the minimum log-likelihood
+     * ratio, and without the terms of too many documents, sorted as the
+     * dictionary of <code>seq2sparse</code>.
+     */
+    private String[] dictionary(List<List<String>> tokens) {
+        Map<String, int[]> unigrams = new HashMap<>();
+        Map<String, int[]> ngrams = new HashMap<>();
+        Map<String, int[]> heads = new HashMap<>();
+        Map<String, int[]> tails = new HashMap<>();
+        long ngramTotal = 0;
+        for (List<String> document : tokens) {
+            for (int i = 0; i < document.size(); i++) {
+                increment(unigrams, document.get(i));
+                if (bigrams && i + 1 < document.size()) {
+                    increment(ngrams, document.get(i) + " " + document.get(i + 1));
+                    increment(heads, document.get(i));
+                    increment(tails, document.get(i + 1));
+                    ngramTotal++;
+                }
+            }
+        }
+
+        List<String> terms = new ArrayList<>();
+        for (Map.Entry<String, int[]> unigram : unigrams.entrySet()) {
+            if (unigram.getValue()[0] >= minSupport) {
+                terms.add(unigram.getKey());
+            }
+        }
+        for (Map.Entry<String, int[]> ngram : ngrams.entrySet()) {
+            long k11 = ngram.getValue()[0];
+            if (k11 < minSupport) {
+                continue;
+            }
+            String[] grams = ngram.getKey().split(" ");
+            long k12 = heads.get(grams[0])[0] - k11;
+            long k21 = tails.get(grams[1])[0] - k11;
+            long k22 = ngramTotal - (k11 + k12 + k21);
+            if (LogLikelihood.logLikelihoodRatio(k11, k12, k21, k22) >= minLLR) {
+                terms.add(ngram.getKey());
+            }
+        }
+
+        // As the pruner of seq2sparse, the maximum document frequency is an
+        // integer.
+        long maxDF = (long) maxDFPercent * tokens.size() / 100;
+        Map<String, int[]> df = new HashMap<>();
+        for (List<String> document : tokens) {
+            for (String term : terms(document, new TreeMap<String, int[]>()).keySet()) {
+                increment(df, term);
+            }
+        }
+        List<String> dictionary = new ArrayList<>();
+        for (String term : terms) {
+            if (df.get(term)[0] <= maxDF) {
+                dictionary.add(term);
+            }
+        }
+        Collections.sort(dictionary);
+        return dictionary.toArray(new String[dictionary.size()]);
+    }
+
+    /**
+     * Frequencies of the unigrams and bigrams of a document.
+     */
+    private Map<String, int[]> terms(List<String> document, Map<String, int[]> counts) {
+        for (int i = 0; i < document.size(); i++) {
+            increment(counts, document.get(i));
+            if (bigrams && i + 1 < document.size()) {
+                increment(counts, document.get(i) + " " + document.get(i + 1));
+            }
+        }
+        return counts;
+    }
+
+    private static void increment(Map<String, int[]> counts, String term) {
+        int[] count = counts.get(term);
+        if (count == null) {
+            count = new int[1];
+            counts.put(term, count);
+        }
+        count[0]++;
+    }
+
+    /**
+     * Term frequency vectors of the documents with unit L2 norm.
+     */
+    private List<Vector> vectorize(List<List<String>> tokens, String[] dictionary) {
+        Map<String, Integer> ids = new HashMap<>();
+        for (int i = 0; i < dictionary.length; i++) {
+            ids.put(dictionary[i], i);
+        }
+        List<Vector> vectors = new ArrayList<>(tokens.size());
+        for (List<String> document : tokens) {
+            Vector vector = new RandomAccessSparseVector(dictionary.length);
+            for (Map.Entry<String, int[]> term : terms(document, new HashMap<String, int[]>()).entrySet()) {
+                Integer id = ids.get(term.getKey());
+                if (id != null) {
+                    vector.setQuick(id, term.getValue()[0]);
+                }
+            }
+            double norm = vector.norm(2);
+            vectors.add(norm > 0 ? vector.divide(norm) : vector);
+        }
+        return vectors;
+    }
+
+    /**
+     * Topic-term counts after the iterations of CVB. Each iteration reads the
+     * counts of the previous one and writes new ones as the jobs of
+     * <code>CVB0Driver</code>, the inference of a document is the one of
+     * {@link TopicModel#trainDocTopicModel}.
+     */
+    private double[][] train(List<Vector> vectors, int numTerms) {
+        Random random = new Random(seed);
+        double[][] counts = new double[numTopics][numTerms];
+        for (int topic = 0; topic < numTopics; topic++) {
+            for (int term = 0; term < numTerms; term++) {
+                counts[topic][term] = random.nextDouble();
+            }
+        }
+
+        double[] topics = new double[numTopics];
+        double[] sums = new double[numTopics];
+        for (int iteration = 0; iteration < maxIterations; iteration++) {
+            for (int topic = 0; topic < numTopics; topic++) {
+                double sum = 0;
+                for (double count : counts[topic]) {
+                    sum += count;
+                }
+                sums[topic] = sum;
+            }
+            double[][] next = new double[numTopics][numTerms];
+            for (Vector vector : vectors) {
+                int[] terms = new int[vector.getNumNonZeroElements()];
+                double[] weights = new double[terms.length];
+                int n = 0;
+                for (Vector.Element e : vector.nonZeroes()) {
+                    terms[n] = e.index();
+                    weights[n++] = e.get();
+                }
+                // p(topic | term, document) weighted by the term.
+                double[][] model = new double[numTopics][n];
+                Arrays.fill(topics, 1.0 / numTopics);
+                for (int i = 0; i < maxIterationsPerDoc; i++) {
+                    for (int topic = 0; topic < numTopics; topic++) {
+                        for (int j = 0; j < n; j++) {
+                            model[topic][j] = (counts[topic][terms[j]] + eta) * (topics[topic] + alpha)
+                                    / (sums[topic] + eta * numTerms);
+                        }
+                    }
+                    for (int j = 0; j < n; j++) {
+                        double norm = 0;
+                        for (int topic = 0; topic < numTopics; topic++) {
+                            norm += model[topic][j];
+                        }
+                        for (int topic = 0; topic < numTopics; topic++) {
+                            model[topic][j] = model[topic][j] / norm * weights[j];
+                        }
+                    }
+                    double total = 0;
+                    for (int topic = 0; topic < numTopics; topic++) {
+                        topics[topic] = 0;
+                        for (int j = 0; j < n; j++) {
+                            topics[topic] += model[topic][j];
+                        }
+                        total += topics[topic];
+                    }
+                    for (int topic = 0; topic < numTopics; topic++) {
+                        topics[topic] /= total;
+                    }
+                }
+                for (int topic = 0; topic < numTopics; topic++) {
+                    for (int j = 0; j < n; j++) {
+                        next[topic][terms[j]] += model[topic][j];
+                    }
+                }
+            }
+            counts = next;
+        }
+        return counts;
+    }
+
+    public int getNumTopics() {
+        return numTopics;
+    }
+
+    /**
+     * Topics of CVB. By default 10.
+     *
+     * @param numTopics
+     */
+    public void setNumTopics(int numTopics) {
+        this.numTopics = numTopics;
+    }
+
+    public int getMaxIterations() {
+        return maxIterations;
+    }
+
+    /**
+     * Iterations of CVB over all the documents. By default 20.
+     *
+     * @param maxIterations
+     */
+    public void setMaxIterations(int maxIterations) {
+        this.maxIterations = maxIterations;
+    }
+
+    public int getMaxDFPercent() {
+        return maxDFPercent;
+    }
+
+    /**
+     * Terms in more than this percentage of the documents are pruned. By
+     * default 60.
+     *
+     * @param maxDFPercent
+     */
+    public void setMaxDFPercent(int maxDFPercent) {
+        this.maxDFPercent = maxDFPercent;
+    }
+
+    public int getMinSupport() {
+        return minSupport;
+    }
+
+    /**
+     * Minimum frequency of a term in all the documents. By default 2.
+     *
+     * @param minSupport
+     */
+    public void setMinSupport(int minSupport) {
+        this.minSupport = minSupport;
+    }
+
+    public boolean isBigrams() {
+        return bigrams;
+    }
+
+    public void setBigrams(boolean bigrams) {
+        this.bigrams = bigrams;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Seed of the random initial model, the same seed and documents give the
+     * same terms.
+     *
+     * @param seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+}
@@ -8,19 +8,26 @@ import org.apache.hadoop.mapreduce.Job;
 import org.apache.hadoop.mapreduce.lib.input.SequenceFileInputFormat;
 import org.apache.hadoop.mapreduce.lib.output.SequenceFileOutputFormat;
 
+import edu.ucuenca.kodar.clusters.ClusterDocumentKey;
+import edu.ucuenca.kodar.clusters.ClusteredDocument;
 import java.io.IOException;
-import java.util.Iterator;
 import org.apache.hadoop.io.LongWritable;
-import org.apache.hadoop.io.Text;
 import org.apache.hadoop.mapreduce.Mapper;
 import org.apache.hadoop.mapreduce.Reducer;
 import org.apache.mahout.clustering.classify.WeightedVectorWritable;
 import org.apache.mahout.math.NamedVector;
 
+/**
+ * Sorts the clustered documents by cluster id and then by document id. The
+ * output has one <code>&lt;LongWritable, ClusteredDocument&gt;</code> record
+ * per document keyed by its cluster; the documents of a cluster are contiguous
+ * and all of them are in the same part file.
+ */
 public class SortMapperJob extends Configured {
 
     private Path clusteredPointsPath;
     private Path pointsToClusterPath;
+    private int numReduceTasks = 1;
 
     public SortMapperJob(Path clusteredPointsPath, Path pointsToClusterPath) {
         this.clusteredPointsPath = clusteredPointsPath;
@@ -40,59 +47,60 @@ public class SortMapperJob extends Configured {
 
         job.setMapperClass(ClusterMapper.class);
         job.setReducerClass(ClusterReducer.class);
-        job.setNumReduceTasks(1);
+        job.setPartitionerClass(ClusterDocumentKey.ClusterPartitioner.class);
+        job.setGroupingComparatorClass(ClusterDocumentKey.ClusterComparator.class);
+        job.setNumReduceTasks(numReduceTasks);
 
+        job.setMapOutputKeyClass(ClusterDocumentKey.class);
+        job.setMapOutputValueClass(ClusteredDocument.class);
         job.setOutputKeyClass(LongWritable.class);
-        job.setOutputValueClass(Text.class);
+        job.setOutputValueClass(ClusteredDocument.class);
 
         job.waitForCompletion(true);
     }
+
+    public int getNumReduceTasks() {
+        return numReduceTasks;
+    }
+
+    /**
+     * Number of reducers, clusters are partitioned by id among them.
+     *
+     * @param numReduceTasks
+     */
+    public void setNumReduceTasks(int numReduceTasks) {
+        this.numReduceTasks = numReduceTasks;
+    }
 }
 
 /**
- *
- *
+ * Keys every document by its cluster and document id.
  */
-class ClusterMapper extends Mapper<LongWritable, Text, LongWritable, Text> {
+class ClusterMapper extends Mapper<LongWritable, ClusteredDocument, ClusterDocumentKey, ClusteredDocument> {
 
-    private LongWritable idCluster = new LongWritable();
-    private Text content = new Text();
+    private ClusterDocumentKey key = new ClusterDocumentKey();
 
     @Override
-    protected void map(LongWritable id, Text text, Mapper.Context context) throws IOException, InterruptedException {
-
-        String information = text.toString();
-        long idClusterLong = Long.parseLong(information.substring("Cluster Id: ".length(),
-                information.indexOf(" Content: ")));
-        idCluster.set(idClusterLong);
-        content.set(information);
+    protected void map(LongWritable id, ClusteredDocument document, Mapper.Context context) throws IOException, InterruptedException {
+        key.set(document.getClusterId(), document.getDocumentId());
 
-        context.write(idCluster, content);
+        context.write(key, document);
     }
 }
 
-class ClusterReducer extends Reducer<LongWritable, Text, LongWritable, Text> {
+/**
+ * Writes the documents of a cluster, which arrive sorted by document id, one
+ * by one.
+ */
+class ClusterReducer extends Reducer<ClusterDocumentKey, ClusteredDocument, LongWritable, ClusteredDocument> {
 
-    private Text contentAux;
-    private Text content;
-    private static final String delimiter = "2db5c8";
+    private final LongWritable clusterId = new LongWritable();
 
     @Override
-    protected void reduce(LongWritable clusterId, Iterable<Text> values, Context context) throws IOException, InterruptedException {
-        StringBuilder buildContent = new StringBuilder();
-
-        Iterator<Text> it = values.iterator();
-
-        while (it.hasNext()) {
-            content = it.next();
-            if (it.hasNext()) {
-                buildContent.append(content.toString() + delimiter);
-            } else {
-                buildContent.append(content.toString());
-            }
+    protected void reduce(ClusterDocumentKey key, Iterable<ClusteredDocument> values, Context context) throws IOException, InterruptedException {
+        clusterId.set(key.getClusterId());
+        for (ClusteredDocument document : values) {
+            context.write(clusterId, document);
         }
-
-        content = new Text(buildContent.toString());
-        context.write(clusterId, content);
     }
 }
@@ -8,6 +8,7 @@ package edu.uc.mahout.base.topicmodel;
 import edu.ucuenca.kodar.clusters.Controller;
 import edu.ucuenca.kodar.clusters.ControllerImpl;
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import org.apache.hadoop.conf.Configuration;
@@ -15,6 +16,10 @@ import org.apache.hadoop.fs.Path;
 import org.apache.mahout.common.HadoopUtil;
 
 /**
+ * Label of a set of documents, the term with the highest weight in the topics
+ * of CVB. The sparse vectors, the matrix, the model and the dump are written
+ * in a working directory, taggers with their own directory and configuration
+ * run concurrently.
  *
  * @author cuent
  */
@@ -22,18 +27,34 @@ public class Tagger {
 
     private static final String BASE_PATH = System.getProperty("user.dir") + "/";
 
+    private final Configuration conf;
+    private final String workDir;
+
+    /**
+     * Tagger working in <code>target/kodar_home/topmodel</code>.
+     */
+    public Tagger() {
+        this(new Configuration(), new File(BASE_PATH + "target/kodar_home/topmodel"));
+    }
+
+    /**
+     * @param conf configuration of the jobs, it is modified by them.
+     * @param workDir directory of the intermediate files.
+     */
+    public Tagger(Configuration conf, File workDir) {
+        this.conf = conf;
+        this.workDir = workDir.getAbsolutePath() + "/";
+    }
+
     public String tag(String inputPath) throws IOException, Exception {
         String label = null;
 
-        //Hadoop Configuration
-        Configuration conf = new Configuration();
-
         Controller base = new ControllerImpl(conf);
 
         //Generate Sparse Vectors
         String[] seq2sparse = new String[]{
             "-i", inputPath,
-            "-o", BASE_PATH + "target/kodar_home/topmodel/sparse",
+            "-o", workDir + "sparse",
             "--maxDFPercent", "60",
             "-n", "2",
             "-ng", "2",
@@ -46,24 +67,24 @@ public class Tagger {
 
         //Convert to <SequenceFile,SequenceFile>
         String[] rowIdArgs = new String[]{
-            "-i", BASE_PATH + "target/kodar_home/topmodel/sparse/tf-vectors",
-            "-o", BASE_PATH + "target/kodar_home/topmodel/convert"
+            "-i", workDir + "sparse/tf-vectors",
+            "-o", workDir + "convert"
         };
 
         // The library should not be aware of _SUCESS files, but it does; for this reason, I delete this file manually.
-        HadoopUtil.delete(conf, new Path(BASE_PATH + "target/kodar_home/topmodel/sparse/tf-vectors/_SUCCESS"));
+        HadoopUtil.delete(conf, new Path(workDir + "sparse/tf-vectors/_SUCCESS"));
 
         base.rowId(rowIdArgs);
 
-        Path path_cvb = new Path(BASE_PATH + "target/kodar_home/topmodel/cvb");
+        Path path_cvb = new Path(workDir + "cvb");
         HadoopUtil.delete(conf, path_cvb);
         //Run collapse variational bayes algorithm
         String[] cvb = new String[]{
-            "-i", BASE_PATH + "target/kodar_home/topmodel/convert/matrix",
-            "-dict", BASE_PATH + "target/kodar_home/topmodel/sparse/dictionary.file-*",
-            "-o", BASE_PATH + "target/kodar_home/topmodel/cvb/topic-term",
-            "-dt", BASE_PATH + "target/kodar_home/topmodel/cvb/doc-topic/topic-model-cvb",
-            "-mt", BASE_PATH + "target/kodar_home/topmodel/cvb",
+            "-i", workDir + "convert/matrix",
+            "-dict", workDir + "sparse/dictionary.file-*",
+            "-o", workDir + "cvb/topic-term",
+            "-dt", workDir + "cvb/doc-topic/topic-model-cvb",
+            "-mt", workDir + "cvb",
             "-k", "10",
             "-x", "20",
             "-ow"
@@ -71,9 +92,9 @@ public class Tagger {
         base.collapsedVariationalBayes(cvb);
 
         String[] vectorDump = new String[]{
-            "-i", BASE_PATH + "target/kodar_home/topmodel/cvb/topic-term/",
-            "-o", BASE_PATH + "target/kodar_home/topmodel/vectorDump",
-            "-d", BASE_PATH + "target/kodar_home/topmodel/sparse/dictionary.file-0",
+            "-i", workDir + "cvb/topic-term/",
+            "-o", workDir + "vectorDump",
+            "-d", workDir + "sparse/dictionary.file-0",
             "-vs", "1",
             "-dt", "sequencefile",
             "-p", "true",
@@ -82,10 +103,11 @@ public class Tagger {
         base.vectorDump(vectorDump);
 
         //Read label from text file
-        BufferedReader br = new BufferedReader(new FileReader(BASE_PATH + "target/kodar_home/topmodel/vectorDump"));
+        BufferedReader br = new BufferedReader(new FileReader(workDir + "vectorDump"));
         String line = br.readLine();
 
         if (line == null) {
+            br.close();
             return "No Label";
         }
 
@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters;
+
+import java.io.IOException;
+import java.util.Arrays;
+import org.apache.hadoop.filecache.DistributedCache;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.mapred.JobConf;
+import org.apache.hadoop.mapred.Reporter;
+import org.apache.hadoop.util.ReflectionUtils;
+import org.apache.mahout.common.iterator.sequencefile.PathFilters;
+import org.apache.mahout.math.map.OpenLongIntHashMap;
+
+/**
+ * Small side of a broadcast join. The <code>&lt;LongWritable, ?&gt;</code>
+ * sequence files of a table are shipped to every map task through the
+ * distributed cache and loaded in a primitive map from the document id to the
+ * offset of its serialized value in a single byte array, so the large side of
+ * the join can be split freely and does not need to be sorted.
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class BroadcastTable {
+
+    /**
+     * Counters of the broadcast joins, summed over all the map tasks.
+     */
+    public enum Counters {
+
+        /**
+         * Entries loaded in the tables.
+         */
+        ENTRIES,
+        /**
+         * Estimated bytes of the tables in memory.
+         */
+        MEMORY_BYTES,
+        /**
+         * Records of the large side without a match in the table.
+         */
+        MISSES
+    }
+
+    private final Index index = new Index();
+    private Class<?> valueClass;
+    private byte[] data = new byte[1024];
+    private int length = 0;
+    private final DataInputBuffer in = new DataInputBuffer();
+
+    /**
+     * Add the part files of a table to the distributed cache of a job.
+     *
+     * @param job
+     * @param table directory or file of the table.
+     * @throws IOException
+     */
+    public static void addToCache(JobConf job, Path table) throws IOException {
+        FileSystem fs = table.getFileSystem(job);
+        FileStatus[] files = fs.isDirectory(table)
+                ? fs.listStatus(table, PathFilters.partFilter())
+                : fs.listStatus(table);
+        for (FileStatus file : files) {
+            DistributedCache.addCacheFile(file.getPath().makeQualified(fs).toUri(), job);
+        }
+    }
+
+    /**
+     * Load the table shipped with {@link #addToCache(org.apache.hadoop.mapred.JobConf, org.apache.hadoop.fs.Path)}
+     * in a map task.
+     *
+     * @param job
+     * @return
+     * @throws IOException
+     */
+    public static BroadcastTable load(JobConf job) throws IOException {
+        BroadcastTable table = new BroadcastTable();
+        Path[] files = DistributedCache.getLocalCacheFiles(job);
+        if (files == null) {
+            throw new IOException("No table in the distributed cache");
+        }
+        FileSystem fs = FileSystem.getLocal(job);
+        for (Path file : files) {
+            table.read(fs, file, job);
+        }
+        table.data = Arrays.copyOf(table.data, table.length);
+        return table;
+    }
+
+    private void read(FileSystem fs, Path file, JobConf job) throws IOException {
+        DataOutputBuffer out = new DataOutputBuffer();
+        try (SequenceFile.Reader reader = new SequenceFile.Reader(fs, file, job)) {
+            LongWritable key = new LongWritable();
+            valueClass = reader.getValueClass();
+            Writable value = (Writable) ReflectionUtils.newInstance(valueClass, job);
+            while (reader.next(key, value)) {
+                out.reset();
+                value.write(out);
+                if (length + out.getLength() > data.length) {
+                    data = Arrays.copyOf(data, Math.max(2 * data.length, length + out.getLength()));
+                }
+                System.arraycopy(out.getData(), 0, data, length, out.getLength());
+                index.put(key.get(), length);
+                length += out.getLength();
+            }
+        }
+    }
+
+    /**
+     * Read the value of a document.
+     *
+     * @param documentId
+     * @param value where the value is read.
+     * @return false if the document is not in the table.
+     * @throws IOException
+     */
+    public boolean get(long documentId, Writable value) throws IOException {
+        if (!index.containsKey(documentId)) {
+            return false;
+        }
+        int offset = index.get(documentId);
+        in.reset(data, offset, length - offset);
+        value.readFields(in);
+        return true;
+    }
+
+    /**
+     * Return the class of the values in the table.
+     *
+     * @return
+     */
+    public Class<?> getValueClass() {
+        return valueClass;
+    }
+
+    /**
+     * Return the number of documents in the table.
+     *
+     * @return
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Return the estimated bytes of the table in memory, the hash table of
+     * offsets and the serialized values.
+     *
+     * @return
+     */
+    public long getMemoryBytes() {
+        return index.getMemoryBytes() + data.length;
+    }
+
+    /**
+     * Report the size of the table in the counters of a task.
+     *
+     * @param reporter
+     */
+    public void report(Reporter reporter) {
+        reporter.incrCounter(Counters.ENTRIES, size());
+        reporter.incrCounter(Counters.MEMORY_BYTES, getMemoryBytes());
+    }
+
+    private static class Index extends OpenLongIntHashMap {
+
+        long getMemoryBytes() {
+            return 8L * table.length + 4L * values.length + state.length;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import org.apache.hadoop.io.WritableComparable;
+import org.apache.hadoop.io.WritableComparator;
+import org.apache.hadoop.mapreduce.Partitioner;
+
+/**
+ * Shuffle key of the grouping by cluster: documents are sorted by cluster id
+ * and then by document id. {@link ClusterPartitioner} sends every cluster to a
+ * single reducer and {@link ClusterComparator} groups the documents of a
+ * cluster in one reduce call.
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class ClusterDocumentKey implements WritableComparable<ClusterDocumentKey> {
+
+    private int clusterId;
+    private long documentId;
+
+    static {
+        WritableComparator.define(ClusterDocumentKey.class, new Comparator());
+    }
+
+    public void set(int clusterId, long documentId) {
+        this.clusterId = clusterId;
+        this.documentId = documentId;
+    }
+
+    public int getClusterId() {
+        return clusterId;
+    }
+
+    public long getDocumentId() {
+        return documentId;
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(clusterId);
+        out.writeLong(documentId);
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        clusterId = in.readInt();
+        documentId = in.readLong();
+    }
+
+    @Override
+    public int compareTo(ClusterDocumentKey other) {
+        int compare = Integer.compare(clusterId, other.clusterId);
+        return compare != 0 ? compare : Long.compare(documentId, other.documentId);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (!(obj instanceof ClusterDocumentKey)) {
+            return false;
+        }
+        ClusterDocumentKey other = (ClusterDocumentKey) obj;
+        return clusterId == other.clusterId && documentId == other.documentId;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * clusterId + (int) (documentId ^ (documentId >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return clusterId + ":" + documentId;
+    }
+
+    /**
+     * Sorts serialized keys without deserializing them.
+     */
+    public static class Comparator extends WritableComparator {
+
+        public Comparator() {
+            super(ClusterDocumentKey.class);
+        }
+
+        @Override
+        public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+            int compare = Integer.compare(readInt(b1, s1), readInt(b2, s2));
+            return compare != 0 ? compare : Long.compare(readLong(b1, s1 + 4), readLong(b2, s2 + 4));
+        }
+    }
+
+    /**
+     * Groups the keys of the same cluster.
+     */
+    public static class ClusterComparator extends WritableComparator {
+
+        public ClusterComparator() {
+            super(ClusterDocumentKey.class);
+        }
+
+        @Override
+        public int compare(byte[] b1, int s1, int l1, byte[] b2, int s2, int l2) {
+            return Integer.compare(readInt(b1, s1), readInt(b2, s2));
+        }
+
+        @Override
+        @SuppressWarnings("rawtypes")
+        public int compare(WritableComparable a, WritableComparable b) {
+            return Integer.compare(((ClusterDocumentKey) a).clusterId, ((ClusterDocumentKey) b).clusterId);
+        }
+    }
+
+    /**
+     * Partitions by cluster id, so a cluster is never split between reducers.
+     */
+    public static class ClusterPartitioner extends Partitioner<ClusterDocumentKey, ClusteredDocument> {
+
+        @Override
+        public int getPartition(ClusterDocumentKey key, ClusteredDocument value, int numPartitions) {
+            return (key.clusterId & Integer.MAX_VALUE) % numPartitions;
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.apache.mahout.math.MurmurHash;
+import org.apache.mahout.math.list.LongArrayList;
+import org.apache.mahout.math.set.OpenLongHashSet;
+
+/**
+ * Fingerprint of the set of publications of a cluster, it does not depend on
+ * the order of the publications nor on their repetitions. The exact hash
+ * identifies the same set and the MinHash signature estimates the Jaccard
+ * similarity of two sets, the fraction of equal minimums.
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class ClusterFingerprint {
+
+    public static final int NUM_HASHES = 64;
+
+    private static final int SEED = 0x4b6f6461;
+
+    private final long[] signature;
+    private final OpenLongHashSet members = new OpenLongHashSet();
+    private long exact;
+    private boolean hashed;
+    private int size;
+
+    public ClusterFingerprint() {
+        signature = new long[NUM_HASHES];
+        Arrays.fill(signature, Long.MAX_VALUE);
+    }
+
+    /**
+     * Fingerprint read from a snapshot, no more publications can be added.
+     *
+     * @param exact
+     * @param size
+     * @param signature
+     */
+    public ClusterFingerprint(long exact, int size, long[] signature) {
+        this.exact = exact;
+        this.hashed = true;
+        this.size = size;
+        this.signature = signature;
+    }
+
+    /**
+     * Add a publication of the cluster.
+     *
+     * @param publication URI of the publication.
+     */
+    public void add(String publication) {
+        long hash = MurmurHash.hash64A(publication.getBytes(StandardCharsets.UTF_8), SEED);
+        if (!members.add(hash)) {
+            return;
+        }
+        for (int i = 0; i < NUM_HASHES; i++) {
+            signature[i] = Math.min(signature[i], mix(hash + (i + 1) * 0x9E3779B97F4A7C15L));
+        }
+        size = members.size();
+        hashed = false;
+    }
+
+    /**
+     * Return the hash of the sorted hashes of the publications.
+     *
+     * @return
+     */
+    public long getExact() {
+        if (!hashed) {
+            LongArrayList hashes = new LongArrayList(size);
+            members.keys(hashes);
+            hashes.sort();
+            ByteBuffer buffer = ByteBuffer.allocate(8 * size);
+            for (int i = 0; i < size; i++) {
+                buffer.putLong(hashes.getQuick(i));
+            }
+            buffer.flip();
+            exact = MurmurHash.hash64A(buffer, SEED);
+            hashed = true;
+        }
+        return exact;
+    }
+
+    /**
+     * Return the number of different publications.
+     *
+     * @return
+     */
+    public int size() {
+        return size;
+    }
+
+    long[] getSignature() {
+        return signature;
+    }
+
+    /**
+     * Return the estimated Jaccard similarity with another set.
+     *
+     * @param other
+     * @return 0 if one of the sets is empty.
+     */
+    public double similarity(ClusterFingerprint other) {
+        if (size == 0 || other.size == 0) {
+            return 0;
+        }
+        if (getExact() == other.getExact() && size == other.size) {
+            return 1;
+        }
+        int equal = 0;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            if (signature[i] == other.signature[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / NUM_HASHES;
+    }
+
+    /**
+     * Finalizer of SplitMix64, a different hash function for every offset.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -17,23 +17,43 @@
  */
 package edu.ucuenca.kodar.clusters;
 
+import edu.ucuenca.kodar.clusters.engine.AssignmentWritable;
+import edu.ucuenca.kodar.clusters.engine.MembershipWritable;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.conf.Configured;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.IntWritable;
 import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
 import org.apache.hadoop.mapred.*;
 import org.apache.hadoop.mapred.join.CompositeInputFormat;
 import org.apache.hadoop.mapred.join.TupleWritable;
+import org.apache.hadoop.util.ReflectionUtils;
 
 import java.io.IOException;
-import org.apache.hadoop.io.Text;
 
+/**
+ * Joins the keywords of the documents with their cluster, read from the
+ * output of {@link PointToClusterMapperJob} or from the
+ * <code>assignments</code> or <code>memberships</code> of a clustering, in
+ * which case the top memberships of each document can be carried along. By
+ * default an inner join of {@link CompositeInputFormat}, where both inputs
+ * must be sorted and partitioned the same way; in broadcast mode the mapping
+ * of documents to clusters is loaded in every map task with
+ * {@link BroadcastTable} and the keywords are split freely.
+ */
 public class ClusterJoinerMapperJob extends Configured {
 
     private Path clusteredPointsPath;
     private Path documentPath;
     private Path outputPath;
+    private boolean broadcast = false;
+    private int maxMemberships = 0;
+    private double membershipThreshold = 0;
+
+    static final String MAX_MEMBERSHIPS = "kodar.join.memberships.max";
+    static final String MEMBERSHIP_THRESHOLD = "kodar.join.memberships.threshold";
 
     public ClusterJoinerMapperJob(Path postPath, Path clusteredPointsPath, Path outputPath) {
         this.clusteredPointsPath = clusteredPointsPath;
@@ -45,17 +65,27 @@ public class ClusterJoinerMapperJob extends Configured {
         Configuration configuration = getConf();
 
         JobConf job = new JobConf(configuration);
-        job.setInputFormat(CompositeInputFormat.class);
-        String strJoinStmt = CompositeInputFormat.compose("inner", SequenceFileInputFormat.class,
-                documentPath, clusteredPointsPath);
-        job.set("mapred.join.expr", strJoinStmt);
+        job.setInt(MAX_MEMBERSHIPS, maxMemberships);
+        job.set(MEMBERSHIP_THRESHOLD, String.valueOf(membershipThreshold));
+        if (broadcast) {
+            job.setInputFormat(SequenceFileInputFormat.class);
+            FileInputFormat.addInputPath(job, documentPath);
+            BroadcastTable.addToCache(job, clusteredPointsPath);
+            job.setMapperClass(BroadcastClusterJoinMapper.class);
+            job.setNumReduceTasks(0);
+        } else {
+            job.setInputFormat(CompositeInputFormat.class);
+            String strJoinStmt = CompositeInputFormat.compose("inner", SequenceFileInputFormat.class,
+                    documentPath, clusteredPointsPath);
+            job.set("mapred.join.expr", strJoinStmt);
+            job.setMapperClass(ClusterJoinMapper.class);
+        }
         job.setOutputFormat(SequenceFileOutputFormat.class);
 
         FileOutputFormat.setOutputPath(job, outputPath);
 
-        job.setMapperClass(ClusterJoinMapper.class);
         job.setOutputKeyClass(LongWritable.class);
-        job.setOutputValueClass(Text.class);
+        job.setOutputValueClass(ClusteredDocument.class);
         job.setJarByClass(ClusterJoinerMapperJob.class);
 
         job.setJobName(ClusterJoinerMapperJob.class.getSimpleName());
@@ -63,21 +93,127 @@ public class ClusterJoinerMapperJob extends Configured {
         JobClient.runJob(new JobConf(job));
     }
 
-    private static class ClusterJoinMapper extends MapReduceBase implements Mapper<LongWritable, TupleWritable, LongWritable, Text> {
-        //private ClusteredDocument clusteredDocument = new ClusteredDocument();
+    /**
+     * Return true if the mapping of documents to clusters is broadcast to the
+     * map tasks.
+     *
+     * @return
+     */
+    public boolean isBroadcast() {
+        return broadcast;
+    }
+
+    /**
+     * Set to load the mapping of documents to clusters in every map task
+     * instead of joining sorted inputs, the output is not sorted. By default
+     * false.
+     *
+     * @param broadcast
+     */
+    public void setBroadcast(boolean broadcast) {
+        this.broadcast = broadcast;
+    }
+
+    /**
+     * Carry the top memberships of each document when the clusters are read
+     * from <code>memberships</code>.
+     *
+     * @param maxMemberships memberships kept per document, 0 keeps none.
+     * @param membershipThreshold minimum weight of the memberships after the
+     * most likely one.
+     */
+    public void setMemberships(int maxMemberships, double membershipThreshold) {
+        this.maxMemberships = maxMemberships;
+        this.membershipThreshold = membershipThreshold;
+    }
+
+    /**
+     * Sets the cluster of a document mapped by {@link PointToClusterMapperJob}
+     * or read from the <code>assignments</code> or <code>memberships</code>
+     * of a clustering.
+     */
+    private abstract static class AbstractClusterJoinMapper extends MapReduceBase {
+
+        protected final ClusteredDocument clusteredDocument = new ClusteredDocument();
+        private int maxMemberships;
+        private double membershipThreshold;
+
+        @Override
+        public void configure(JobConf job) {
+            maxMemberships = job.getInt(MAX_MEMBERSHIPS, 0);
+            membershipThreshold = Double.parseDouble(job.get(MEMBERSHIP_THRESHOLD, "0"));
+        }
+
+        /**
+         * @return false if the document does not belong to any cluster.
+         */
+        protected boolean setCluster(Writable cluster) {
+            clusteredDocument.clearMemberships();
+            if (cluster instanceof MembershipWritable) {
+                MembershipWritable memberships = (MembershipWritable) cluster;
+                if (memberships.size() == 0) {
+                    return false;
+                }
+                clusteredDocument.setClusterId(memberships.getMostLikelyCluster());
+                if (maxMemberships > 0) {
+                    memberships.truncate(maxMemberships, membershipThreshold);
+                    clusteredDocument.setMemberships(memberships);
+                }
+            } else if (cluster instanceof AssignmentWritable) {
+                clusteredDocument.setClusterId(((AssignmentWritable) cluster).getClusterId());
+            } else {
+                clusteredDocument.setClusterId(((IntWritable) cluster).get());
+            }
+            return true;
+        }
+    }
+
+    private static class ClusterJoinMapper extends AbstractClusterJoinMapper implements Mapper<LongWritable, TupleWritable, LongWritable, ClusteredDocument> {
 
         @Override
-        public void map(LongWritable key, TupleWritable value, OutputCollector<LongWritable, Text> output, Reporter reporter) throws IOException {
-            int clusterId = ((IntWritable) value.get(1)).get();
-            //clusteredDocument.setClusterId(clusterId);
+        public void map(LongWritable key, TupleWritable value, OutputCollector<LongWritable, ClusteredDocument> output, Reporter reporter) throws IOException {
+            if (!setCluster(value.get(1))) {
+                return;
+            }
+            clusteredDocument.setDocumentId(key.get());
+            clusteredDocument.setDocumentContent(value.get(0).toString());
+            output.collect(key, clusteredDocument);
+        }
+    }
+
+    private static class BroadcastClusterJoinMapper extends AbstractClusterJoinMapper implements Mapper<LongWritable, Text, LongWritable, ClusteredDocument> {
+
+        private Writable cluster;
+        private BroadcastTable clusters;
+        private boolean reported = false;
 
-            Text postWritable = (Text) value.get(0);
-            Text postKeyWords = new Text("Cluster Id: " + clusterId + " Content: " + postWritable.toString());
+        @Override
+        public void configure(JobConf job) {
+            super.configure(job);
+            try {
+                clusters = BroadcastTable.load(job);
+                cluster = (Writable) ReflectionUtils.newInstance(clusters.getValueClass(), job);
+            } catch (IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
 
-            //clusteredDocument.setDocumentTitle(postWritable.getTitle());
-            //clusteredDocument.setDocumentContent(postWritable.getContent());
-            //output.collect(key, clusteredDocument);
-            output.collect(key, postKeyWords);
+        @Override
+        public void map(LongWritable key, Text value, OutputCollector<LongWritable, ClusteredDocument> output, Reporter reporter) throws IOException {
+            if (!reported) {
+                clusters.report(reporter);
+                reported = true;
+            }
+            if (!clusters.get(key.get(), cluster)) {
+                reporter.incrCounter(BroadcastTable.Counters.MISSES, 1);
+                return;
+            }
+            if (!setCluster(cluster)) {
+                return;
+            }
+            clusteredDocument.setDocumentId(key.get());
+            clusteredDocument.setDocumentContent(value.toString());
+            output.collect(key, clusteredDocument);
         }
     }
 }
@@ -0,0 +1,213 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters;
+
+import edu.ucuenca.kodar.clusters.engine.MembershipWritable;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import org.apache.hadoop.io.Text;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * A document with its cluster, keywords and authors as they travel through the
+ * joins, the grouping by cluster, the labeling and the exports. Documents of a
+ * soft clustering also carry their top memberships, the cluster id is the most
+ * likely one. Instances are reused: {@link #readFields} and {@link #set}
+ * overwrite every field.
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class ClusteredDocument implements Writable {
+
+    private long documentId;
+    private int clusterId;
+    private String documentContent = "";
+    private String documentTitle = "";
+    private String author = "";
+    private String authorUri = "";
+    private String publicationUri = "";
+    private final MembershipWritable memberships = new MembershipWritable();
+
+    private static final MembershipWritable NO_MEMBERSHIPS = new MembershipWritable();
+
+    public ClusteredDocument() {
+    }
+
+    /**
+     * Copy the fields of another document.
+     *
+     * @param other
+     */
+    public void set(ClusteredDocument other) {
+        documentId = other.documentId;
+        clusterId = other.clusterId;
+        documentContent = other.documentContent;
+        documentTitle = other.documentTitle;
+        author = other.author;
+        authorUri = other.authorUri;
+        publicationUri = other.publicationUri;
+        memberships.set(other.memberships);
+    }
+
+    /**
+     * Set the author, URIs and title from a row of the authors table:
+     * <code>author,authorUri,publicationUri,title</code>. The publication URI
+     * or all but the author may be missing.
+     *
+     * @param row
+     */
+    public void setAuthors(String row) {
+        String[] data = row.split(",(?=([^\"]*\"[^\"]*\")*[^\"]*$)", -1);
+        if (data.length == 4) {
+            author = data[0];
+            authorUri = data[1];
+            publicationUri = data[2];
+            documentTitle = data[3];
+        } else if (data.length == 3) { //Author doesn't have a publication URI
+            author = data[0];
+            authorUri = data[1];
+            publicationUri = "";
+            documentTitle = data[2];
+        } else if (data.length == 1) {
+            author = data[0];
+            authorUri = "";
+            publicationUri = "";
+            documentTitle = "";
+        } else {
+            throw new IllegalArgumentException("Unexpected authors row: " + row);
+        }
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        WritableUtils.writeVLong(out, documentId);
+        WritableUtils.writeVInt(out, clusterId);
+        Text.writeString(out, documentContent);
+        Text.writeString(out, documentTitle);
+        Text.writeString(out, author);
+        Text.writeString(out, authorUri);
+        Text.writeString(out, publicationUri);
+        memberships.write(out);
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        documentId = WritableUtils.readVLong(in);
+        clusterId = WritableUtils.readVInt(in);
+        documentContent = Text.readString(in);
+        documentTitle = Text.readString(in);
+        author = Text.readString(in);
+        authorUri = Text.readString(in);
+        publicationUri = Text.readString(in);
+        memberships.readFields(in);
+    }
+
+    public long getDocumentId() {
+        return documentId;
+    }
+
+    public void setDocumentId(long documentId) {
+        this.documentId = documentId;
+    }
+
+    public int getClusterId() {
+        return clusterId;
+    }
+
+    public void setClusterId(int clusterId) {
+        this.clusterId = clusterId;
+    }
+
+    /**
+     * Return the keywords of the document.
+     *
+     * @return
+     */
+    public String getDocumentContent() {
+        return documentContent;
+    }
+
+    public void setDocumentContent(String documentContent) {
+        this.documentContent = documentContent;
+    }
+
+    public String getDocumentTitle() {
+        return documentTitle;
+    }
+
+    public void setDocumentTitle(String documentTitle) {
+        this.documentTitle = documentTitle;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public void setAuthor(String author) {
+        this.author = author;
+    }
+
+    public String getAuthorUri() {
+        return authorUri;
+    }
+
+    public void setAuthorUri(String authorUri) {
+        this.authorUri = authorUri;
+    }
+
+    public String getPublicationUri() {
+        return publicationUri;
+    }
+
+    public void setPublicationUri(String publicationUri) {
+        this.publicationUri = publicationUri;
+    }
+
+    /**
+     * Return the top memberships of the document, empty for hard clusterings.
+     *
+     * @return
+     */
+    public MembershipWritable getMemberships() {
+        return memberships;
+    }
+
+    /**
+     * Copy the top memberships of the document.
+     *
+     * @param memberships
+     */
+    public void setMemberships(MembershipWritable memberships) {
+        this.memberships.set(memberships);
+    }
+
+    /**
+     * Remove the memberships, the document belongs only to its cluster.
+     */
+    public void clearMemberships() {
+        memberships.set(NO_MEMBERSHIPS);
+    }
+
+    @Override
+    public String toString() {
+        return "Cluster Id: " + clusterId + " Content: " + documentContent + " Author: " + author + " URI_A: "
+                + authorUri + " URI_P: " + publicationUri + " Title: " + documentTitle;
+    }
+}
@@ -19,14 +19,43 @@ package edu.ucuenca.kodar.clusters;
 
 import edu.uc.mahout.base.topicmodel.Cortical;
 import edu.uc.mahout.base.topicmodel.SortMapperJob;
+import edu.uc.mahout.base.topicmodel.InMemoryTagger;
 import edu.uc.mahout.base.topicmodel.Tagger;
+import edu.ucuenca.kodar.clusters.algorithm.ClusteringAlgorithm;
+import edu.ucuenca.kodar.clusters.algorithm.ClusteringAlgorithms;
+import edu.ucuenca.kodar.clusters.algorithm.ClusteringContext;
+import edu.ucuenca.kodar.clusters.algorithm.FuzzyKMeansAlgorithm;
+import edu.ucuenca.kodar.clusters.algorithm.KMeansAlgorithm;
+import edu.ucuenca.kodar.clusters.engine.BisectingKMeans;
+import edu.ucuenca.kodar.clusters.engine.CentroidLabeler;
+import edu.ucuenca.kodar.clusters.engine.CentroidTruncation;
+import edu.ucuenca.kodar.clusters.engine.ClusterFiles;
+import edu.ucuenca.kodar.clusters.engine.IterationListener;
+import edu.ucuenca.kodar.clusters.engine.VectorStore;
+import edu.ucuenca.kodar.clusters.evaluation.KSelection;
+import edu.ucuenca.kodar.clusters.stage.Stage;
+import edu.ucuenca.kodar.clusters.stage.StageScheduler;
+import edu.ucuenca.kodar.clusters.stage.StageTiming;
 import edu.ucuenca.kodar.utils.ExportFileClusterig;
 import edu.ucuenca.kodar.utils.Writer;
 import edu.ucuenca.kodar.utils.nlp.Category;
+import edu.ucuenca.kodar.utils.nlp.ExpansionCache;
+import edu.ucuenca.kodar.utils.nlp.NlpUtils;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import net.didion.jwnl.JWNLException;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileStatus;
@@ -35,6 +64,8 @@ import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.SequenceFile;
 import org.apache.hadoop.io.Text;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
 import org.apache.mahout.clustering.evaluation.ClusterEvaluator;
 import org.apache.mahout.clustering.evaluation.RepresentativePointsDriver;
 import org.apache.mahout.common.HadoopUtil;
@@ -48,11 +79,39 @@ import org.apache.mahout.common.distance.DistanceMeasure;
  */
 public class Clustering {
 
+    private final Logger log = Logger.getLogger(Clustering.class.getName());
     private Date time;
     private String datasetPath;
     private boolean isCortical = false;
     private boolean isMahout = true;
+    private boolean isCentroid = false;
+    private CentroidLabeler.Scoring centroidScoring = CentroidLabeler.Scoring.CLASS_TFIDF;
+    private int labelTerms = 1;
     private boolean evaluate = false;
+    private boolean isInMemoryJoin = true;
+    private boolean isBroadcastJoin = true;
+    private int sortReducers = Runtime.getRuntime().availableProcessors();
+    private int expansionCacheSize = 10000;
+    private File expansionSnapshot = null;
+    private final LabelCache labelCache = new LabelCache(10000);
+    private File labelSnapshot = null;
+    private int membershipsPerDocument = 3;
+    private double membershipThreshold = 0.1;
+    private int stageThreads = Runtime.getRuntime().availableProcessors();
+    private int labelThreads = Runtime.getRuntime().availableProcessors();
+    private boolean isInMemoryTagger = false;
+    private List<StageTiming> stageTimings = Collections.emptyList();
+    private final KMeansAlgorithm kmeans = new KMeansAlgorithm();
+    private final FuzzyKMeansAlgorithm fuzzyKmeans = new FuzzyKMeansAlgorithm();
+    private final Map<String, ClusteringAlgorithm> algorithms = new LinkedHashMap<>();
+    private final List<String> selected = new ArrayList<>(Arrays.asList(KMeansAlgorithm.NAME, FuzzyKMeansAlgorithm.NAME));
+    private double minReassignedFraction = 0;
+    private int checkpointInterval = 10;
+    private long kSelectionBudget = 10 * 60 * 1000;
+    private long seed = 1;
+    private int centroidMaxTerms = 0;
+    private double centroidMassShare = 1.0;
+    private final List<IterationListener> listeners = new ArrayList<>();
     private double interClusterDensityKmeans;
     private double interClusterDensityFkmeans;
 
@@ -72,6 +131,8 @@ public class Clustering {
     public static final File MR_JOBS = new File(KODAR_HOME, "mr_jobs");
     public static final File TOPMODEL = new File(KODAR_HOME, "topmodel");
     public static final File NAMED_CLUSTERS = new File(KODAR_HOME, "named_clusters");
+    public static final File REPORTS = new File(KODAR_HOME, "reports");
+    public static final File CHECKPOINTS = new File(KODAR_HOME, "checkpoints");
 
     private static File setKodarVariable() {
         String env = System.getenv("KODAR_HOME");
@@ -110,96 +171,298 @@ public class Clustering {
             //conf.set("fs.defaultFS", "hdfs://172.16.147.7:54310"); //set configuration of hadoop cluster 
         }
         controller = new ControllerImpl(conf);
+
+        addAlgorithm(kmeans);
+        addAlgorithm(fuzzyKmeans);
+        for (ClusteringAlgorithm algorithm : ClusteringAlgorithms.discover()) {
+            if (!algorithms.containsKey(algorithm.getName())) {
+                addAlgorithm(algorithm);
+            }
+        }
     }
 
     public void run(int k) throws IOException, Exception {
-        preprocessData();
-        generateSparseVectors();
-        executeKmeans(k);
-        executeFuzzyKmeans();
+        StageScheduler stages = new StageScheduler(stageThreads);
+        addVectorizeStages(stages);
+        addClusterStages(stages, new ClusterStage(k));
+        runStages(stages);
+    }
+
+    /**
+     * Execute the work-flow choosing k among <code>start, start + inc, ...,
+     * end</code> with {@link KSelection} over a sample of the vectors.
+     *
+     * @param start
+     * @param end
+     * @param inc
+     * @return the chosen k.
+     * @throws Exception
+     */
+    public int runSelectingK(final int start, final int end, final int inc) throws Exception {
+        StageScheduler stages = new StageScheduler(stageThreads);
+        addVectorizeStages(stages);
+
+        final ClusterStage cluster = new ClusterStage(0);
+        Stage select = stages.add(new Stage("select-k") {
+            @Override
+            public void run() throws Exception {
+                VectorStore vectors = VectorStore.load(conf, new Path(SPARSE_VECTORS.getPath(), "tfidf-vectors"));
+                KSelection selection = new KSelection();
+                selection.setTimeBudget(kSelectionBudget);
+                int k = selection.select(vectors, start, end, inc);
+                selection.writeCsv(new File(EVALUATION, "k selection.csv"));
+                cluster.set(k, vectors);
+            }
+        }.reads(new File(SPARSE_VECTORS, "tfidf-vectors")).writes(new File(EVALUATION, "k selection.csv")));
+        cluster.after(select);
+        addClusterStages(stages, cluster);
+        runStages(stages);
+        return cluster.k;
+    }
+
+    private void runStages(StageScheduler stages) throws Exception {
+        stages.run();
+        stageTimings = stages.getTimings();
+        stages.writeCsv(new File(REPORTS, "stages.csv"));
+    }
+
+    /**
+     * Runs the selected algorithms, with k and the vectors known only when
+     * the stage starts if they are chosen by a previous stage.
+     */
+    private class ClusterStage extends Stage {
+
+        private volatile int k;
+        private volatile VectorStore vectors;
+
+        ClusterStage(int k) {
+            super("cluster");
+            this.k = k;
+            reads(new File(SPARSE_VECTORS, "tfidf-vectors"));
+            for (String name : selected) {
+                writes(new File(KODAR_HOME, name));
+            }
+            writes(CHECKPOINTS, REPORTS);
+        }
+
+        void set(int k, VectorStore vectors) {
+            this.k = k;
+            this.vectors = vectors;
+        }
+
+        @Override
+        public void run() throws Exception {
+            cluster(k, vectors);
+        }
+    }
+
+    private void cluster(int k, VectorStore vectors) throws IOException, Exception {
+        ClusteringContext context = new ClusteringContext(conf, controller, KODAR_HOME,
+                new Path(SPARSE_VECTORS.getPath(), "tfidf-vectors"), k, selected);
+        context.setVectors(vectors);
+        context.setSeed(seed);
+        context.setMinReassignedFraction(minReassignedFraction);
+        context.setCheckpointInterval(checkpointInterval);
+        context.setMemberships(membershipsPerDocument);
+        context.setTruncation(new CentroidTruncation(centroidMaxTerms, centroidMassShare));
+        for (IterationListener listener : listeners) {
+            context.addIterationListener(listener);
+        }
+        ClusteringAlgorithms.execute(getSelectedAlgorithms(), context);
+        // Every clustering is written, a new run starts from the seeds.
+        HadoopUtil.delete(conf, new Path(CHECKPOINTS.getPath()));
+    }
+
+    /**
+     * Add the clustering and the stages that consume it: the joins and the
+     * exports of each clustering run concurrently, the labeling waits for
+     * every join.
+     */
+    private void addClusterStages(StageScheduler stages, ClusterStage cluster) {
+        stages.add(cluster);
 
         // To evaluate, we calculate k, we do not need labelling.
         if (evaluate) {
-            evaluateCluster(conf);
+            stages.add(new Stage("evaluate") {
+                @Override
+                public void run() throws Exception {
+                    evaluateCluster(conf);
+                }
+            }.reads(KMEANS, FKMEANS).writes(EVALUATION));
             return;
         }
-        writer.writeClusterVector(new Path(KMEANS.getPath(), "clusteredPoints/part-m-0"),
-                new Path(KMEANS.getPath()));
+        if (selected.contains(KMeansAlgorithm.NAME)) {
+            stages.add(new Stage("clusters-csv") {
+                @Override
+                public void run() throws Exception {
+                    writer.writeClusterVector(new Path(KMEANS.getPath(), "clusteredPoints/part-m-0"),
+                            new Path(KMEANS.getPath()));
+                }
+            }.reads(new File(KMEANS, ClusterFiles.CLUSTERED_POINTS)).writes(new File(KMEANS, "clusters.csv")));
+        }
 
-        joinCLusterResults(KMEANS);
-        joinCLusterResults(FKMEANS);
+        // Only the selected clusterings are labeled.
+        stages.add(new Stage("clean-joins") {
+            @Override
+            public void run() throws Exception {
+                HadoopUtil.delete(conf, new Path(MR_JOBS.getPath()));
+            }
+        }.writes(MR_JOBS));
+        for (final String name : selected) {
+            final File output = new File(KODAR_HOME, name);
+            stages.add(new Stage("join-" + name) {
+                @Override
+                public void run() throws Exception {
+                    joinCLusterResults(output);
+                }
+            }.reads(new File(output, ClusterFiles.ASSIGNMENTS), new File(output, ClusterFiles.MEMBERSHIPS),
+                    new File(output, ClusterFiles.CLUSTERED_POINTS), new File(SEQUENCE_DATA, "outputLong"),
+                    new File(SEQUENCE_DATA, "outputAuthors")).writes(new File(MR_JOBS, name)));
+        }
 
-        labelCLusters();
+        Stage label = stages.add(new Stage("label") {
+            @Override
+            public void run() throws Exception {
+                labelCLusters();
+            }
+        }.reads(MR_JOBS).writes(NAMED_CLUSTERS, TOPMODEL));
+        if (isCentroid) {
+            // The centroids are labeled with the dictionary of the vectors.
+            label.reads(new File(SPARSE_VECTORS, "dictionary.file-0"));
+            for (String name : selected) {
+                label.reads(new File(KODAR_HOME, name));
+            }
+        }
 
-        exportFiles();
+        for (final String name : selected) {
+            addExportStage(stages, name, "csv", "final.csv");
+            addExportStage(stages, name, "json", "final.json");
+            addExportStage(stages, name, "rdf", "final.nt");
+
+            final File splitTree = new File(new File(KODAR_HOME, name), BisectingKMeans.SPLIT_TREE);
+            final File tree = new File(new File(RESULT, name), "tree.json");
+            stages.add(new Stage("export-" + name + "-tree") {
+                @Override
+                public void run() throws Exception {
+                    if (splitTree.exists()) {
+                        tree.getParentFile().mkdirs();
+                        export.writeSplitTreeJSON(splitTree.getPath(), tree.getPath());
+                    }
+                }
+            }.reads(splitTree).writes(tree));
+        }
     }
 
-    private void preprocessData() throws IOException {
-        // Separate keywords of remainning fields. 
-        writer.disjoin(new File(datasetPath), RAW_DATA);
+    private void addExportStage(StageScheduler stages, String name, final String format, String fileName) {
+        final File namedClusters = new File(NAMED_CLUSTERS, name);
+        final File file = new File(new File(RESULT, name), fileName);
+        stages.add(new Stage("export-" + name + "-" + format) {
+            @Override
+            public void run() throws Exception {
+                file.getParentFile().mkdirs();
+                switch (format) {
+                    case "csv":
+                        export.writeResultFileCSV(namedClusters.getPath(), file.getPath());
+                        break;
+                    case "json":
+                        export.writeResultFileJSON(namedClusters.getPath(), file.getPath());
+                        break;
+                    default:
+                        export.writeResultFileRDF(namedClusters.getPath(), file.getPath());
+                }
+            }
+        }.reads(namedClusters).writes(file));
+    }
+
+    private List<ClusteringAlgorithm> getSelectedAlgorithms() {
+        List<ClusteringAlgorithm> algorithms = new ArrayList<>(selected.size());
+        for (String name : selected) {
+            ClusteringAlgorithm algorithm = this.algorithms.get(name);
+            if (algorithm == null) {
+                throw new IllegalArgumentException("Unknown clustering algorithm " + name);
+            }
+            algorithms.add(algorithm);
+        }
+        return algorithms;
+    }
+
+    /**
+     * Execute only the ingestion of the dataset and the generation of vectors,
+     * which are stored in <code>SPARSE_VECTORS/tfidf-vectors</code>.
+     *
+     * @throws Exception
+     */
+    public void vectorize() throws Exception {
+        StageScheduler stages = new StageScheduler(stageThreads);
+        addVectorizeStages(stages);
+        runStages(stages);
+    }
+
+    /**
+     * Add the ingestion stages, the conversions of the keywords and authors
+     * used by the joins run concurrently with the generation of vectors.
+     */
+    private void addVectorizeStages(StageScheduler stages) {
+        final File keywords = new File(RAW_DATA, "keywords.csv");
+        final File authors = new File(RAW_DATA, "authors.csv");
+
+        // Separate keywords of remainning fields.
+        stages.add(new Stage("disjoin") {
+            @Override
+            public void run() throws Exception {
+                writer.disjoin(new File(datasetPath), RAW_DATA);
+            }
+        }.reads(new File(datasetPath)).writes(RAW_DATA));
 
         /* The conversion of keywords to Sequence format is done twice because 
             there is the necessity of both files one of IntegerWritable type and 
             another one of Text type. */
-        controller.rawToSequenceTextKey(new File(RAW_DATA, "keywords.csv"), new Path(SEQUENCE_DATA.getPath(), "output"), ",");
-        controller.rawToSequenceLongKey(new File(RAW_DATA, "keywords.csv"), new Path(SEQUENCE_DATA.getPath(), "outputLong"), ",");
+        stages.add(new Stage("keywords-text") {
+            @Override
+            public void run() throws Exception {
+                controller.rawToSequenceTextKey(keywords, new Path(SEQUENCE_DATA.getPath(), "output"), ",");
+            }
+        }.reads(keywords).writes(new File(SEQUENCE_DATA, "output")));
+        stages.add(new Stage("keywords-long") {
+            @Override
+            public void run() throws Exception {
+                controller.rawToSequenceLongKey(keywords, new Path(SEQUENCE_DATA.getPath(), "outputLong"), ",");
+            }
+        }.reads(keywords).writes(new File(SEQUENCE_DATA, "outputLong")));
 
         // Conversion of remainning fields to SequenceFile format.
-        controller.rawToSequenceLongKey(new File(RAW_DATA, "authors.csv"), new Path(SEQUENCE_DATA.getPath(), "outputAuthors"), ",");
-    }
+        stages.add(new Stage("authors") {
+            @Override
+            public void run() throws Exception {
+                controller.rawToSequenceLongKey(authors, new Path(SEQUENCE_DATA.getPath(), "outputAuthors"), ",");
+            }
+        }.reads(authors).writes(new File(SEQUENCE_DATA, "outputAuthors")));
 
-    private void generateSparseVectors() throws Exception {
         // Generate Sparse Vectors
-        String[] seq2sparse = new String[]{
-            "-i", new File(SEQUENCE_DATA, "output").getPath(),
-            "-o", SPARSE_VECTORS.getPath(),
-            "-x", "60",
-            "-n", "2",
-            "-ng", "2",
-            "-wt", "tfidf",
-            "-nv",
-            "-ow"
-        };
-
-        controller.seq2Sparse(seq2sparse);
-        writer.writeVector(new Path(SPARSE_VECTORS.getPath(), "tfidf-vectors/part-r-00000"), new Path(SPARSE_VECTORS.getPath()));
-    }
-
-    private void executeKmeans(int k) throws Exception {
-        // Run KMeans
-        String[] kmeans = new String[]{
-            "-i", new File(SPARSE_VECTORS, "tfidf-vectors").getPath(),
-            "-o", KMEANS.getPath(),
-            "-c", new File(KMEANS, "seed").getPath(),
-            "-dm", CosineDistanceMeasure.class.getName(),
-            "-x", "100",
-            "-k", String.valueOf(k),
-            "-cl",
-            "-xm", "sequential",
-            "-ow"
-        };
-        controller.kmeans(kmeans);
-    }
-
-    private void executeFuzzyKmeans() throws Exception {
-        String clustersKmeans = KMEANS.getPath() + "/" + getFinalPath(KMEANS.getPath());
-
-        String[] fuzzykmeans = new String[]{
-            "-i", new File(SPARSE_VECTORS, "tfidf-vectors").getPath(),
-            "-c", clustersKmeans,
-            "-o", FKMEANS.getPath(),
-            "-dm", CosineDistanceMeasure.class.getName(),
-            "-m", "1.8",
-            "-x", "100",
-            //"-k", "<optional number of initial clusters to sample from input vectors>",
-            "-cd", "0.5",
-            "-ow",
-            "-cl",
-            "-e",
-            //"-t", "<threshold to use for clustering if -e is false>",
-            "-xm", "sequential"
-        };
-        controller.fuzzyKmeans(fuzzykmeans);
+        stages.add(new Stage("seq2sparse") {
+            @Override
+            public void run() throws Exception {
+                String[] seq2sparse = new String[]{
+                    "-i", new File(SEQUENCE_DATA, "output").getPath(),
+                    "-o", SPARSE_VECTORS.getPath(),
+                    "-x", "60",
+                    "-n", "2",
+                    "-ng", "2",
+                    "-wt", "tfidf",
+                    "-nv",
+                    "-ow"
+                };
+                controller.seq2Sparse(seq2sparse);
+            }
+        }.reads(new File(SEQUENCE_DATA, "output")).writes(SPARSE_VECTORS));
+        stages.add(new Stage("tfidf-csv") {
+            @Override
+            public void run() throws Exception {
+                writer.writeVector(new Path(SPARSE_VECTORS.getPath(), "tfidf-vectors/part-r-00000"),
+                        new Path(SPARSE_VECTORS.getPath()));
+            }
+        }.reads(new File(SPARSE_VECTORS, "tfidf-vectors"), new File(SPARSE_VECTORS, "dictionary.file-0"))
+                .writes(new File(SPARSE_VECTORS, "tfidf.csv")));
     }
 
     private void joinCLusterResults(File cluster) throws IOException, ClassNotFoundException, InterruptedException, Exception {
@@ -213,142 +476,403 @@ public class Clustering {
         // Delete everything in MR_JOBS.
         HadoopUtil.delete(conf, BASE_DIR);
 
-        // Join point name with cluster id.
-        PointToClusterMapperJob pointsToClusterMappingJob = new PointToClusterMapperJob(new Path(cluster.getPath(), "clusteredPoints"),
-                POINTS_TO_CLUSTERS);
-        pointsToClusterMappingJob.setConf(conf);
-        pointsToClusterMappingJob.mapPointsToClusters();
+        // Soft clusterings carry their top memberships, read in the same pass
+        // as the most likely cluster; the others are joined with the final
+        // assignment they wrote, if any.
+        Path clusters;
+        if (membershipsPerDocument > 0 && new File(cluster, ClusterFiles.MEMBERSHIPS).exists()) {
+            clusters = new Path(cluster.getPath(), ClusterFiles.MEMBERSHIPS);
+        } else if (new File(cluster, ClusterFiles.ASSIGNMENTS).exists()) {
+            clusters = new Path(cluster.getPath(), ClusterFiles.ASSIGNMENTS);
+        } else if (new File(cluster, ClusterFiles.MEMBERSHIPS).exists()) {
+            clusters = new Path(cluster.getPath(), ClusterFiles.MEMBERSHIPS);
+        } else {
+            clusters = new Path(cluster.getPath(), ClusterFiles.CLUSTERED_POINTS);
+        }
+
+        if (isInMemoryJoin) {
+            InMemoryClusterJoin join = new InMemoryClusterJoin(clusters, new Path(SEQUENCE_DATA.getPath(), "outputLong"),
+                    new Path(SEQUENCE_DATA.getPath(), "outputAuthors"), SORT);
+            join.setConf(conf);
+            join.setMemberships(membershipsPerDocument, membershipThreshold);
+            join.run();
+            return;
+        }
+
+        // Join point name with cluster id, assignments and memberships are
+        // sorted by document id and joined as they are.
+        if (clusters.getName().equals(ClusterFiles.CLUSTERED_POINTS)) {
+            PointToClusterMapperJob pointsToClusterMappingJob = new PointToClusterMapperJob(clusters,
+                    POINTS_TO_CLUSTERS);
+            pointsToClusterMappingJob.setConf(conf);
+            pointsToClusterMappingJob.mapPointsToClusters();
+        } else {
+            POINTS_TO_CLUSTERS = clusters;
+        }
 
         // Join keywords with pointsToClusters.
         ClusterJoinerMapperJob clusterJoinerJob = new ClusterJoinerMapperJob(new Path(SEQUENCE_DATA.getPath(), "outputLong"),
                 POINTS_TO_CLUSTERS, CLUSTER_KEYWORDS);
         clusterJoinerJob.setConf(conf);
+        clusterJoinerJob.setBroadcast(isBroadcastJoin);
+        clusterJoinerJob.setMemberships(membershipsPerDocument, membershipThreshold);
         clusterJoinerJob.run();
 
         // Join clusteredKeywords with authors.
         JoinKeywordsAuthorMapperJob joinKwAuthors = new JoinKeywordsAuthorMapperJob(CLUSTER_KEYWORDS,
                 new Path(SEQUENCE_DATA.getPath(), "outputAuthors"), RESULT_OUTPUT);
         joinKwAuthors.setConf(conf);
+        joinKwAuthors.setBroadcast(isBroadcastJoin);
         joinKwAuthors.run();
 
         // Sort and group.
         SortMapperJob sortByClusterId = new SortMapperJob(RESULT_OUTPUT, SORT);
         sortByClusterId.setConf(conf);
+        sortByClusterId.setNumReduceTasks(sortReducers);
         sortByClusterId.run();
     }
 
+    /**
+     * Label the clusters of every clustering, the WordNet expansions of the
+     * keywords are shared by all of them.
+     */
     private void labelCLusters() throws IOException, JWNLException, Exception {
-        String delimiter = "2db5c8", escapeContent = " Content: ", escapeAuthor = " Author:",
-                escapeTitle = " Title: ";
+        ExpansionCache expansions = NlpUtils.getInstance().getExpansionCache();
+        expansions.setMaxSize(expansionCacheSize);
+        expansions.resetMetrics();
+        if (expansionSnapshot != null && expansionSnapshot.exists()) {
+            expansions.load(expansionSnapshot);
+        }
+        labelCache.resetMetrics();
+        if (labelSnapshot != null && labelSnapshot.exists()) {
+            labelCache.load(labelSnapshot);
+        }
+        try {
+            labelCLusterFiles();
+        } finally {
+            log.log(Level.INFO, "WordNet expansions: " + expansions);
+            if (expansionSnapshot != null) {
+                expansions.save(expansionSnapshot);
+            }
+            if (labelSnapshot != null) {
+                log.log(Level.INFO, "Cluster labels: " + labelCache);
+                labelCache.save(labelSnapshot);
+            }
+        }
+    }
 
+    /**
+     * Label the clusters of the sorted files of every clustering in
+     * <code>mr_jobs</code> and write them in <code>named_clusters</code>, in
+     * the order of the files whatever the number of label threads.
+     */
+    void labelCLusterFiles() throws IOException, JWNLException, Exception {
         FileSystem fs = FileSystem.get(conf);
-        Path TEMP = new Path(TOPMODEL.getPath(), "part000");
         File _documents = new File(TOPMODEL.getPath(), "documents");
+        File _workspaces = new File(TOPMODEL.getPath(), "workspaces");
 
         createDir(_documents, false);
 
         HadoopUtil.delete(conf, new Path(NAMED_CLUSTERS.getPath()));
+        HadoopUtil.delete(conf, new Path(_workspaces.getPath()));
 
         FileStatus[] folders = fs.listStatus(new Path(MR_JOBS.getPath()));
-
-        for (FileStatus folder : folders) {
-            FileStatus[] files = fs.listStatus(new Path(MR_JOBS.getPath() + "/" + folder.getPath().getName(), "sort"));
-            for (FileStatus file : files) {
-                // Ignore files like _SUCESS
-                if (file.getPath().getName().startsWith("_")) {
-                    continue;
+        CentroidLabeler centroids = null;
+        if (isCentroid) {
+            centroids = new CentroidLabeler(CentroidLabeler.readDictionary(conf,
+                    new Path(SPARSE_VECTORS.getPath(), "dictionary.file-*")));
+            centroids.setScoring(centroidScoring);
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(labelThreads);
+        try {
+            // The clusters of every clustering are labeled concurrently, each
+            // one in its own workspace, and written in the order of the
+            // sorted files once their labels are ready.
+            Map<Path, List<ClusterLabel>> clusterings = new LinkedHashMap<>();
+            int numDocs = 0;
+            for (FileStatus folder : folders) {
+                // The centroids label every cluster of the clustering at once.
+                Map<Integer, List<String>> centroidLabels = null;
+                if (centroids != null) {
+                    long start = System.currentTimeMillis();
+                    centroidLabels = centroids.label(conf, new Path(KODAR_HOME.getPath(),
+                            folder.getPath().getName()), labelTerms);
+                    log.log(Level.INFO, String.format("%d clusters of %s labeled by their centroids in %dms",
+                            centroidLabels.size(), folder.getPath().getName(), System.currentTimeMillis() - start));
                 }
+                FileStatus[] files = fs.listStatus(new Path(MR_JOBS.getPath() + "/" + folder.getPath().getName(),
+                        "sort"));
+                List<ClusterLabel> clusters = new ArrayList<>();
+                clusterings.put(new Path(NAMED_CLUSTERS.getPath(), folder.getPath().getName()), clusters);
+                for (FileStatus file : files) {
+                    // Ignore files like _SUCESS
+                    if (file.getPath().getName().startsWith("_")) {
+                        continue;
+                    }
 
-                SequenceFile.Reader reader = new SequenceFile.Reader(fs, file.getPath(), conf);
-                LongWritable k = new LongWritable();
-                Text v = new Text();
-                String document = "", kws, title;
-
-                Path fileNamedClusters = new Path(NAMED_CLUSTERS.getPath(), folder.getPath().getName());
-                SequenceFile.Writer writeCluster = new SequenceFile.Writer(fs, conf, fileNamedClusters, Text.class, Text.class);
-
-                int numDocs = 0;
-                System.out.println("Reading: " + file.getPath());
-                while (reader.next(k, v)) {
-
-                    String[] values = v.toString().split(delimiter);
-                    int id = 0;
-
-                    SequenceFile.Writer writer = new SequenceFile.Writer(fs, conf, TEMP, Text.class, Text.class);
-                    File _docs = new File(_documents, "docs" + numDocs);
-                    createDir(_docs, false);
-
-                    Cortical cortical = new Cortical();
-
-                    for (String value : values) {
-                        File _doc = new File(_docs, "doc" + id);
-                        createDir(_doc, true);
-                        kws = value.substring(value.indexOf(escapeContent) + escapeContent.length(),
-                                value.indexOf(escapeAuthor));
-                        title = value.substring(value.indexOf(escapeTitle) + escapeTitle.length());
-                        Category c = new Category(kws);
-                        c.populate();
-                        document = title + "\n" + kws + "\n" + c.toString();
-                        //document = kws;
-
-                        // Execution with Cortical API
-                        if (isCortical) {
-                            cortical.addLabels(document);
-                        } else if (isMahout) {
-                            writer.append(new Text(String.valueOf(id)), new Text(document));
+                    System.out.println("Reading: " + file.getPath());
+                    // The documents of a cluster are contiguous, each cluster
+                    // reads them again from its first position.
+                    try (SequenceFile.Reader reader = new SequenceFile.Reader(fs, file.getPath(), conf)) {
+                        LongWritable k = new LongWritable();
+                        ClusteredDocument v = new ClusteredDocument();
+                        ClusterLabel cluster = null;
+                        long position = reader.getPosition();
+
+                        while (reader.next(k, v)) {
+                            if (cluster == null || k.get() != cluster.clusterId) {
+                                if (cluster != null) {
+                                    submit(cluster, pool);
+                                }
+                                cluster = new ClusterLabel(file.getPath(), k.get(), position,
+                                        new File(_documents, "docs" + numDocs), new File(_workspaces, "cluster" + numDocs));
+                                if (centroidLabels != null) {
+                                    cluster.known = joinTerms(centroidLabels.get((int) k.get()));
+                                }
+                                clusters.add(cluster);
+                                numDocs++;
+                            }
+                            if (cluster.fingerprint != null) {
+                                String publication = v.getPublicationUri();
+                                cluster.fingerprint.add(publication != null && !publication.isEmpty() ? publication
+                                        : String.valueOf(v.getDocumentId()));
+                            }
+                            position = reader.getPosition();
                         }
-
-                        id++;
-                        // Write documents in raw text
-                        try (FileOutputStream out = new FileOutputStream(_doc)) {
-                            out.write(document.getBytes());
+                        if (cluster != null) {
+                            submit(cluster, pool);
                         }
                     }
-                    writer.close();
-                    Tagger tagger = new Tagger();
-                    // Labelling using CVB algorithm.
-
-                    if (isMahout) {
-                        String label = tagger.tag(TEMP.toString());
-                        File _label = new File(_docs, "label");
-                        createDir(_label, true);
-                        try (FileOutputStream out = new FileOutputStream(_label)) {
-                            out.write(label.getBytes());
+                }
+            }
+
+            for (Map.Entry<Path, List<ClusterLabel>> clustering : clusterings.entrySet()) {
+                try (SequenceFile.Writer writeCluster = new SequenceFile.Writer(fs, conf, clustering.getKey(),
+                        Text.class, ClusteredDocument.class)) {
+                    SequenceFile.Reader members = null;
+                    Path membersFile = null;
+                    try {
+                        for (ClusterLabel cluster : clustering.getValue()) {
+                            if (!cluster.file.equals(membersFile)) {
+                                if (members != null) {
+                                    members.close();
+                                }
+                                members = new SequenceFile.Reader(fs, cluster.file, conf);
+                                membersFile = cluster.file;
+                            }
+                            writeNamedCluster(members, cluster.start, cluster.clusterId, cluster.getLabel(),
+                                    writeCluster);
                         }
-                        writeCluster.append(new Text(label), v);
-                    } else if (isCortical) {
-                        String labelCortical = cortical.getLabel();
-                        File _labelCortical = new File(_docs, "labelCortical");
-                        createDir(_labelCortical, true);
-                        try (FileOutputStream out = new FileOutputStream(_labelCortical)) {
-                            out.write(labelCortical.getBytes());
+                    } finally {
+                        if (members != null) {
+                            members.close();
                         }
-                        writeCluster.append(new Text(labelCortical), v);
                     }
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
 
-                    HadoopUtil.delete(conf, TEMP);
-                    numDocs++;
+    /**
+     * Copy the documents of a cluster, starting at <code>start</code>, with
+     * their label.
+     */
+    private void writeNamedCluster(SequenceFile.Reader members, long start, long clusterId, String label,
+            SequenceFile.Writer writeCluster) throws IOException {
+        LongWritable k = new LongWritable();
+        ClusteredDocument v = new ClusteredDocument();
+        Text labelText = new Text(label);
+        members.seek(start);
+        while (members.next(k, v) && k.get() == clusterId) {
+            writeCluster.append(labelText, v);
+        }
+    }
+
+    /**
+     * Submit the labeling of a cluster once all its publications are read,
+     * unless its label is known or cached.
+     */
+    private void submit(ClusterLabel cluster, ExecutorService pool) {
+        if (cluster.known != null) {
+            return;
+        }
+        if (cluster.fingerprint != null) {
+            cluster.known = labelCache.get(getLabeler(), cluster.fingerprint);
+            if (cluster.known != null) {
+                return;
+            }
+        }
+        cluster.label = pool.submit(cluster);
+    }
+
+    /**
+     * Name of the labeling mode, cached labels are reused only by the same
+     * mode.
+     */
+    private String getLabeler() {
+        if (isCortical) {
+            return "cortical";
+        }
+        return isInMemoryTagger ? "cvb-in-memory" : "cvb";
+    }
+
+    private static String joinTerms(List<String> terms) {
+        if (terms == null || terms.isEmpty()) {
+            return "No Label";
+        }
+        StringBuilder label = new StringBuilder();
+        for (String term : terms) {
+            label.append(label.length() > 0 ? ", " : "").append(term);
+        }
+        return label.toString();
+    }
+
+    /**
+     * Labeling of a cluster, it reads the documents of the cluster from
+     * <code>start</code> and labels them in its own workspace with its own
+     * configuration, which is deleted when the label is ready. The label is
+     * not submitted when it is known beforehand or cached for the same
+     * publications.
+     */
+    private class ClusterLabel implements Callable<String> {
+
+        private final Path file;
+        private final long clusterId;
+        private final long start;
+        private final File docs;
+        private final File workspace;
+        private Future<String> label;
+        private String known;
+        // The centroids are not worth caching.
+        private final ClusterFingerprint fingerprint = labelSnapshot != null && !isCentroid
+                ? new ClusterFingerprint() : null;
+
+        ClusterLabel(Path file, long clusterId, long start, File docs, File workspace) {
+            this.file = file;
+            this.clusterId = clusterId;
+            this.start = start;
+            this.docs = docs;
+            this.workspace = workspace;
+        }
+
+        @Override
+        public String call() throws Exception {
+            Configuration clusterConf = new Configuration(conf);
+            clusterConf.set("hadoop.tmp.dir", new File(workspace, "tmp").getAbsolutePath());
+            ClusterWorkspace cluster = new ClusterWorkspace(clusterConf, workspace, docs);
+            try (SequenceFile.Reader reader = new SequenceFile.Reader(FileSystem.get(clusterConf), file,
+                    clusterConf)) {
+                LongWritable k = new LongWritable();
+                ClusteredDocument v = new ClusteredDocument();
+                reader.seek(start);
+                while (reader.next(k, v) && k.get() == clusterId) {
+                    cluster.add(v);
                 }
-                writeCluster.close();
+            }
+            String clusterLabel = cluster.label();
+            HadoopUtil.delete(clusterConf, new Path(workspace.getPath()));
+            if (fingerprint != null) {
+                labelCache.put(getLabeler(), fingerprint, clusterLabel);
+            }
+            return clusterLabel;
+        }
+
+        String getLabel() throws Exception {
+            if (label == null) {
+                return known;
+            }
+            try {
+                return label.get();
+            } catch (ExecutionException ex) {
+                if (ex.getCause() instanceof Exception) {
+                    throw (Exception) ex.getCause();
+                }
+                throw ex;
             }
         }
     }
 
-    private void exportFiles() throws IOException {
-        FileSystem fs = FileSystem.get(conf);
-        FileStatus[] files = fs.listStatus(new Path(NAMED_CLUSTERS.getPath()));
+    /**
+     * Documents of the cluster being labeled, they are written in raw text in
+     * <code>docs</code> and in the <code>part000</code> file of the workspace
+     * for the CVB labeling, kept in memory for the in-memory tagger or given
+     * to Cortical.
+     */
+    private class ClusterWorkspace {
+
+        private final Configuration clusterConf;
+        private final File workspace;
+        private final File _docs;
+        private final Path temp;
+        private final SequenceFile.Writer writer;
+        private final List<String> documents = new ArrayList<>();
+        private final Cortical cortical = new Cortical();
+        private int id = 0;
+
+        ClusterWorkspace(Configuration clusterConf, File workspace, File docs) throws IOException {
+            this.clusterConf = clusterConf;
+            this.workspace = workspace;
+            this._docs = docs;
+            createDir(_docs, false);
+            temp = new Path(workspace.getPath(), "part000");
+            writer = isMahout && !isInMemoryTagger ? new SequenceFile.Writer(FileSystem.get(clusterConf),
+                    clusterConf, temp, Text.class, Text.class) : null;
+        }
+
+        void add(ClusteredDocument clusteredDocument) throws IOException, JWNLException {
+            File _doc = new File(_docs, "doc" + id);
+            createDir(_doc, true);
+            String kws = clusteredDocument.getDocumentContent();
+            String title = clusteredDocument.getDocumentTitle();
+            Category c = new Category(kws);
+            c.populate();
+            String document = title + "\n" + kws + "\n" + c.toString();
+            //document = kws;
+
+            // Execution with Cortical API
+            if (isCortical) {
+                cortical.addLabels(document);
+            } else if (isMahout && isInMemoryTagger) {
+                documents.add(document);
+            } else if (isMahout) {
+                writer.append(new Text(String.valueOf(id)), new Text(document));
+            }
 
-        for (FileStatus file : files) {
+            id++;
+            // Write documents in raw text
+            try (FileOutputStream out = new FileOutputStream(_doc)) {
+                out.write(document.getBytes());
+            }
+        }
 
-            String pathToExport = RESULT + "/" + file.getPath().getName();
+        String label() throws Exception {
+            if (writer != null) {
+                writer.close();
+            }
+            String label = "";
+            // Labelling using CVB algorithm.
+            if (isMahout && isInMemoryTagger) {
+                InMemoryTagger tagger = new InMemoryTagger();
+                tagger.setSeed(seed);
+                label = tagger.tag(documents);
+                writeLabel(new File(_docs, "label"), label);
+            } else if (isMahout) {
+                label = new Tagger(clusterConf, workspace).tag(temp.toString());
+                writeLabel(new File(_docs, "label"), label);
+            } else if (isCortical) {
+                label = cortical.getLabel();
+                writeLabel(new File(_docs, "labelCortical"), label);
+            }
+            return label;
+        }
 
-            File directory = new File(pathToExport);
-            if (!directory.exists()) {
-                directory.mkdirs();
+        private void writeLabel(File file, String label) throws IOException {
+            createDir(file, true);
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                out.write(label.getBytes());
             }
-            export.writeResultFileCSV(file.getPath().toString(), pathToExport + "/final.csv");
-            export.writeResultFileJSON(file.getPath().toString(), pathToExport + "/final.json");
-            export.writeResultFileRDF(file.getPath().toString(), pathToExport + "/final.nt");
         }
     }
 
@@ -499,6 +1023,629 @@ public class Clustering {
         return interClusterDensityFkmeans;
     }
 
+    /**
+     * Return true if fuzzy k-means is executed in-process with sparse
+     * memberships.
+     *
+     * @return
+     */
+    public boolean isExecutingParallelFuzzy() {
+        return fuzzyKmeans.isInProcess();
+    }
+
+    /**
+     * Set <code>true</code> to execute fuzzy k-means in-process using all the
+     * cores of the machine instead of {@link
+     * org.apache.mahout.clustering.fuzzykmeans.FuzzyKMeansDriver}. Only the top
+     * memberships of each point are kept, see
+     * {@link #setFuzzyMemberships(int)}.
+     *
+     * @param isParallelFuzzy
+     */
+    public void executeParallelFuzzy(boolean isParallelFuzzy) {
+        fuzzyKmeans.setInProcess(isParallelFuzzy);
+    }
+
+    /**
+     * Return true if k-means is executed with the one pass streaming sketch.
+     *
+     * @return
+     */
+    public boolean isExecutingStreaming() {
+        return kmeans.isStreaming();
+    }
+
+    /**
+     * Set <code>true</code> to replace k-means with a streaming sketch: one scan
+     * of the vectors builds a sketch of about k log n weighted centroids, which
+     * is clustered in memory with ball k-means. Useful for dumps that do not
+     * fit in memory. Clears the in-process, restarts and bisecting modes.
+     *
+     * @param isStreaming
+     */
+    public void executeWithStreamingKmeans(boolean isStreaming) {
+        kmeans.setStreaming(isStreaming);
+    }
+
+    /**
+     * Return true if k-means is executed in-process.
+     *
+     * @return
+     */
+    public boolean isExecutingParallelKmeans() {
+        return kmeans.isInProcess();
+    }
+
+    /**
+     * Set <code>true</code> to execute k-means in-process using all the cores
+     * of the machine instead of {@link
+     * org.apache.mahout.clustering.kmeans.KMeansDriver}. The metrics of every
+     * iteration are reported, see {@link #addIterationListener}. Clears the
+     * streaming, restarts and bisecting modes.
+     *
+     * @param isParallelKmeans
+     */
+    public void executeParallelKmeans(boolean isParallelKmeans) {
+        kmeans.setInProcess(isParallelKmeans);
+    }
+
+    /**
+     * Return true if k-means is executed as bisecting k-means.
+     *
+     * @return
+     */
+    public boolean isExecutingBisecting() {
+        return kmeans.isBisecting();
+    }
+
+    /**
+     * Set <code>true</code> to replace k-means with bisecting k-means. The
+     * clusters are split until there are <code>max(k, bisectingMaxK)</code>
+     * and the split tree is exported in <code>RESULT/kmeans/tree.json</code>,
+     * so coarser and finer clusterings are read without running again. The
+     * splits use {@link #setSeed} and {@link #setMinReassignedFraction}, but
+     * keep whole centroids and report no iterations to the listeners of
+     * {@link #addIterationListener}. Clears the
+     * streaming, in-process and restarts modes.
+     *
+     * @param isBisecting
+     */
+    public void executeWithBisecting(boolean isBisecting) {
+        kmeans.setBisecting(isBisecting);
+    }
+
+    /**
+     * Return the number of clusters of the finest level of the split tree.
+     *
+     * @return
+     */
+    public int getBisectingMaxK() {
+        return kmeans.getBisectingMaxK();
+    }
+
+    /**
+     * Number of clusters of the finest level of the split tree, by default the
+     * <code>k</code> of {@link #run(int)}.
+     *
+     * @param bisectingMaxK
+     */
+    public void setBisectingMaxK(int bisectingMaxK) {
+        kmeans.setBisectingMaxK(bisectingMaxK);
+    }
+
+    /**
+     * Return the cluster chosen for each split.
+     *
+     * @return
+     */
+    public BisectingKMeans.Criterion getBisectingCriterion() {
+        return kmeans.getBisectingCriterion();
+    }
+
+    /**
+     * Split the largest cluster (default) or the one with the greatest sum of
+     * distances.
+     *
+     * @param bisectingCriterion
+     */
+    public void setBisectingCriterion(BisectingKMeans.Criterion bisectingCriterion) {
+        kmeans.setBisectingCriterion(bisectingCriterion);
+    }
+
+    /**
+     * Return the fraction of reassigned points under which the in-process
+     * k-means and fuzzy k-means stop.
+     *
+     * @return
+     */
+    public double getMinReassignedFraction() {
+        return minReassignedFraction;
+    }
+
+    /**
+     * Stop the in-process k-means and fuzzy k-means when the fraction of points
+     * that change of cluster in an iteration drops below this value, usually
+     * long before the convergence delta is reached. By default 0, disabled.
+     *
+     * @param minReassignedFraction i.e. 0.001.
+     */
+    public void setMinReassignedFraction(double minReassignedFraction) {
+        this.minReassignedFraction = minReassignedFraction;
+    }
+
+    /**
+     * Return the number of k-means restarts.
+     *
+     * @return
+     */
+    public int getRestarts() {
+        return kmeans.getRestarts();
+    }
+
+    /**
+     * Number of k-means executed concurrently from different seeds, keeping the
+     * one with the lowest within-cluster cost. More than one restart runs
+     * k-means in-process and clears the streaming and bisecting modes. By
+     * default 1.
+     *
+     * @param restarts
+     */
+    public void setRestarts(int restarts) {
+        kmeans.setRestarts(restarts);
+    }
+
+    /**
+     * Return the seed of the in-process k-means.
+     *
+     * @return
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Seed of the random centroids of the in-process k-means, the seeds of the
+     * restarts are derived from it. The same seed gives the same clusters. It
+     * also seeds the topic models of the in-memory tagger. By default 1.
+     *
+     * @param seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Return the maximum number of terms of the in-process centroids.
+     *
+     * @return
+     */
+    public int getCentroidMaxTerms() {
+        return centroidMaxTerms;
+    }
+
+    /**
+     * Keep only the <code>centroidMaxTerms</code> heaviest terms of each
+     * centroid of the in-process k-means and fuzzy k-means. The truncation
+     * error of every iteration is written in the reports. By default 0, the
+     * whole centroids are kept.
+     *
+     * @param centroidMaxTerms
+     */
+    public void setCentroidMaxTerms(int centroidMaxTerms) {
+        this.centroidMaxTerms = centroidMaxTerms;
+    }
+
+    /**
+     * Return the share of the weights kept in the in-process centroids.
+     *
+     * @return
+     */
+    public double getCentroidMassShare() {
+        return centroidMassShare;
+    }
+
+    /**
+     * Keep only the heaviest terms of each in-process centroid holding this
+     * share of the sum of its weights. By default 1.0, the whole centroids are
+     * kept.
+     *
+     * @param centroidMassShare in <code>(0, 1]</code>.
+     */
+    public void setCentroidMassShare(double centroidMassShare) {
+        this.centroidMassShare = centroidMassShare;
+    }
+
+    /**
+     * Return the time allowed to choose k in {@link #runSelectingK}.
+     *
+     * @return
+     */
+    public long getKSelectionBudget() {
+        return kSelectionBudget;
+    }
+
+    /**
+     * Time allowed to choose k in {@link #runSelectingK}, in milliseconds; the
+     * candidates not evaluated on time are discarded. By default 10 minutes.
+     *
+     * @param kSelectionBudget
+     */
+    public void setKSelectionBudget(long kSelectionBudget) {
+        this.kSelectionBudget = kSelectionBudget;
+    }
+
+    /**
+     * Return the number of iterations between checkpoints.
+     *
+     * @return
+     */
+    public int getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    /**
+     * The in-process k-means and fuzzy k-means write a checkpoint in
+     * <code>CHECKPOINTS</code> every <code>checkpointInterval</code>
+     * iterations. If a run dies, the next {@link #run(int)} over the same
+     * dataset and parameters resumes from the latest valid checkpoint.
+     * Checkpoints are removed once both clusterings are written. By default
+     * 10, 0 disables checkpoints.
+     *
+     * @param checkpointInterval
+     */
+    public void setCheckpointInterval(int checkpointInterval) {
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /**
+     * Receive the metrics of every iteration of the in-process k-means and
+     * fuzzy k-means.
+     *
+     * @param listener
+     */
+    public void addIterationListener(IterationListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Return the number of memberships kept per point in parallel fuzzy
+     * k-means.
+     *
+     * @return
+     */
+    public int getFuzzyMemberships() {
+        return fuzzyKmeans.getMaxMemberships();
+    }
+
+    /**
+     * Number of memberships kept per point in parallel fuzzy k-means, the
+     * weights of the kept clusters are renormalized to sum one. By default 3,
+     * at least 1.
+     *
+     * @param fuzzyMemberships
+     * @throws IllegalArgumentException if it is less than one.
+     */
+    public void setFuzzyMemberships(int fuzzyMemberships) {
+        fuzzyKmeans.setMaxMemberships(fuzzyMemberships);
+    }
+
+    /**
+     * Return true if the clusterings are joined with the keywords and authors
+     * in memory.
+     *
+     * @return
+     */
+    public boolean isExecutingInMemoryJoin() {
+        return isInMemoryJoin;
+    }
+
+    /**
+     * Set to join the clusterings with the keywords and authors in memory with
+     * {@link InMemoryClusterJoin}, false runs the MapReduce jobs for datasets
+     * that do not fit in memory. By default true.
+     *
+     * @param isInMemoryJoin
+     */
+    public void executeInMemoryJoin(boolean isInMemoryJoin) {
+        this.isInMemoryJoin = isInMemoryJoin;
+    }
+
+    /**
+     * Return true if the MapReduce join broadcasts the mapping of documents to
+     * clusters and the authors table to the map tasks.
+     *
+     * @return
+     */
+    public boolean isBroadcastJoin() {
+        return isBroadcastJoin;
+    }
+
+    /**
+     * Set to broadcast the small side of the MapReduce joins through the
+     * distributed cache, so the keywords can be split in several map tasks
+     * and do not have to be partitioned as the other input. False joins
+     * sorted inputs with <code>CompositeInputFormat</code>. By default true.
+     *
+     * @param isBroadcastJoin
+     */
+    public void setBroadcastJoin(boolean isBroadcastJoin) {
+        this.isBroadcastJoin = isBroadcastJoin;
+    }
+
+    /**
+     * Return the maximum number of keywords whose WordNet expansion is kept
+     * while labeling.
+     *
+     * @return
+     */
+    public int getExpansionCacheSize() {
+        return expansionCacheSize;
+    }
+
+    /**
+     * Set the maximum number of keywords whose WordNet expansion is kept
+     * while labeling, the least recently used are expanded again. By default
+     * 10000.
+     *
+     * @param expansionCacheSize
+     */
+    public void setExpansionCacheSize(int expansionCacheSize) {
+        this.expansionCacheSize = expansionCacheSize;
+    }
+
+    /**
+     * Return the file where the WordNet expansions are kept between runs.
+     *
+     * @return
+     */
+    public File getExpansionSnapshot() {
+        return expansionSnapshot;
+    }
+
+    /**
+     * Set the file where the WordNet expansions are kept between runs, it is
+     * read before labeling if it exists and written after. By default null,
+     * the expansions are not kept.
+     *
+     * @param expansionSnapshot
+     */
+    public void setExpansionSnapshot(File expansionSnapshot) {
+        this.expansionSnapshot = expansionSnapshot;
+    }
+
+    /**
+     * Return the file where the labels of the clusters are kept between runs.
+     *
+     * @return
+     */
+    public File getLabelSnapshot() {
+        return labelSnapshot;
+    }
+
+    /**
+     * Set the file where the labels of the clusters are kept between runs by
+     * the fingerprint of their publications, it is read before labeling if it
+     * exists and written after. A cluster whose publications are the same
+     * as, or similar enough to, the ones of a cached cluster takes its label
+     * without being labeled again. By default null, the labels are not kept.
+     *
+     * @param labelSnapshot
+     */
+    public void setLabelSnapshot(File labelSnapshot) {
+        this.labelSnapshot = labelSnapshot;
+    }
+
+    /**
+     * Return the minimum similarity of the publications of two clusters to
+     * share a cached label.
+     *
+     * @return
+     */
+    public double getLabelSimilarity() {
+        return labelCache.getMinSimilarity();
+    }
+
+    /**
+     * Set the minimum estimated Jaccard similarity of the publications of two
+     * clusters to share a cached label, 1 reuses only the labels of the same
+     * publications. By default 0.9.
+     *
+     * @param labelSimilarity
+     */
+    public void setLabelSimilarity(double labelSimilarity) {
+        labelCache.setMinSimilarity(labelSimilarity);
+    }
+
+    /**
+     * Return the number of memberships carried per document from the soft
+     * clusterings to the exports.
+     *
+     * @return
+     */
+    public int getMembershipsPerDocument() {
+        return membershipsPerDocument;
+    }
+
+    /**
+     * Set the number of memberships carried per document from the soft
+     * clusterings, i.e. <code>fkmeans</code>, to the exports; they are read
+     * from <code>memberships</code> along with the most likely cluster. Only
+     * the in-process fuzzy k-means writes them, so more than 0 runs it instead
+     * of the Mahout driver. 0 joins only the most likely cluster. By default
+     * 3.
+     *
+     * @param membershipsPerDocument
+     */
+    public void setMembershipsPerDocument(int membershipsPerDocument) {
+        this.membershipsPerDocument = membershipsPerDocument;
+    }
+
+    /**
+     * Return the minimum weight of the memberships carried after the most
+     * likely cluster.
+     *
+     * @return
+     */
+    public double getMembershipThreshold() {
+        return membershipThreshold;
+    }
+
+    /**
+     * Set the minimum weight of the memberships carried after the most likely
+     * cluster, which is always kept. By default 0.1.
+     *
+     * @param membershipThreshold
+     */
+    public void setMembershipThreshold(double membershipThreshold) {
+        this.membershipThreshold = membershipThreshold;
+    }
+
+    /**
+     * Return the number of clusters labeled at the same time.
+     *
+     * @return
+     */
+    public int getLabelThreads() {
+        return labelThreads;
+    }
+
+    /**
+     * Set the number of clusters labeled at the same time, each one in its
+     * own workspace. The named clusters are written in the same order
+     * regardless of the number of threads. By default the number of available
+     * processors.
+     *
+     * @param labelThreads
+     */
+    public void setLabelThreads(int labelThreads) {
+        this.labelThreads = labelThreads;
+    }
+
+    /**
+     * Return true if the clusters are labeled by the in-memory tagger.
+     *
+     * @return
+     */
+    public boolean isInMemoryTagger() {
+        return isInMemoryTagger;
+    }
+
+    /**
+     * Label the clusters with {@link InMemoryTagger} instead of the CVB jobs
+     * of {@link Tagger} when Mahout is used. The documents of a cluster stay
+     * in memory and the topic models are seeded, so the labels do not change
+     * between runs. By default false.
+     *
+     * @param isInMemoryTagger
+     */
+    public void setInMemoryTagger(boolean isInMemoryTagger) {
+        this.isInMemoryTagger = isInMemoryTagger;
+    }
+
+    /**
+     * Return the maximum number of stages of the work-flow running at the
+     * same time.
+     *
+     * @return
+     */
+    public int getStageThreads() {
+        return stageThreads;
+    }
+
+    /**
+     * Set the maximum number of stages of the work-flow running at the same
+     * time, independent stages such as the joins and exports of each
+     * clustering run concurrently. 1 runs the stages one by one. By default
+     * the number of available processors.
+     *
+     * @param stageThreads
+     */
+    public void setStageThreads(int stageThreads) {
+        this.stageThreads = stageThreads;
+    }
+
+    /**
+     * Return the timing of the stages of the last run, also written in
+     * <code>reports/stages.csv</code>.
+     *
+     * @return
+     */
+    public List<StageTiming> getStageTimings() {
+        return stageTimings;
+    }
+
+    /**
+     * Return the number of reducers that group the documents by cluster when
+     * the MapReduce join is executed.
+     *
+     * @return
+     */
+    public int getSortReducers() {
+        return sortReducers;
+    }
+
+    /**
+     * Set the number of reducers that group the documents by cluster when the
+     * MapReduce join is executed, each reducer writes a part of whole
+     * clusters. By default the number of available processors.
+     *
+     * @param sortReducers
+     */
+    public void setSortReducers(int sortReducers) {
+        this.sortReducers = sortReducers;
+    }
+
+    /**
+     * Register a clustering algorithm, it runs when its name is selected with
+     * {@link #setAlgorithms(java.lang.String...)}. Algorithms listed in
+     * <code>META-INF/services</code> are registered when Clustering is
+     * created.
+     *
+     * @param algorithm
+     */
+    public void addAlgorithm(ClusteringAlgorithm algorithm) {
+        algorithms.put(algorithm.getName(), algorithm);
+    }
+
+    /**
+     * Return the names of the algorithms that are executed.
+     *
+     * @return
+     */
+    public List<String> getAlgorithms() {
+        return Collections.unmodifiableList(selected);
+    }
+
+    /**
+     * Select the algorithms to execute, they run concurrently over the same
+     * vectors and each one is labeled and exported in its own directory. By
+     * default <code>kmeans</code> and <code>fkmeans</code>.
+     *
+     * @param names
+     */
+    public void setAlgorithms(String... names) {
+        selected.clear();
+        selected.addAll(Arrays.asList(names));
+    }
+
+    /**
+     * Return the k-means algorithm to configure it.
+     *
+     * @return
+     */
+    public KMeansAlgorithm getKmeans() {
+        return kmeans;
+    }
+
+    /**
+     * Return the fuzzy k-means algorithm to configure it.
+     *
+     * @return
+     */
+    public FuzzyKMeansAlgorithm getFuzzyKmeans() {
+        return fuzzyKmeans;
+    }
+
     /**
      * Creates a directory or file.
      *
@@ -531,6 +1678,7 @@ public class Clustering {
      */
     public void executeWithCortical(boolean isCortical) {
         this.isCortical = isCortical;
+        this.isCentroid = false;
         if (isCortical) {
             this.isMahout = false;
         } else {
@@ -555,6 +1703,7 @@ public class Clustering {
      */
     public void executeWithMahoutl(boolean isMahout) {
         this.isMahout = isMahout;
+        this.isCentroid = false;
         if (isMahout) {
             this.isCortical = false;
         } else {
@@ -562,4 +1711,65 @@ public class Clustering {
         }
     }
 
+    /**
+     * Return true it is executing the labeling work-flow with the centroids.
+     *
+     * @return
+     */
+    public boolean isExecutingWithCentroids() {
+        return isCentroid;
+    }
+
+    /**
+     * Set to label the clusters with the top terms of their centroids, mapped
+     * through <code>dictionary.file-0</code>, instead of Mahout or Cortical.
+     * All the clusters of a clustering are labeled at once, without WordNet
+     * nor topic models. Set to false to execute with Mahout.
+     *
+     * @param isCentroid
+     */
+    public void executeWithCentroids(boolean isCentroid) {
+        this.isCentroid = isCentroid;
+        this.isMahout = !isCentroid;
+        this.isCortical = false;
+    }
+
+    /**
+     * Return the scoring of the terms of the centroids.
+     *
+     * @return
+     */
+    public CentroidLabeler.Scoring getCentroidScoring() {
+        return centroidScoring;
+    }
+
+    /**
+     * Score the terms of the centroids by their weight or by class-based
+     * TF-IDF against the other clusters. By default class-based TF-IDF.
+     *
+     * @param centroidScoring
+     */
+    public void setCentroidScoring(CentroidLabeler.Scoring centroidScoring) {
+        this.centroidScoring = centroidScoring;
+    }
+
+    /**
+     * Return the number of terms of a label given by the centroids.
+     *
+     * @return
+     */
+    public int getLabelTerms() {
+        return labelTerms;
+    }
+
+    /**
+     * Set the number of terms of a label given by the centroids, separated by
+     * commas. By default 1.
+     *
+     * @param labelTerms
+     */
+    public void setLabelTerms(int labelTerms) {
+        this.labelTerms = labelTerms;
+    }
+
 }
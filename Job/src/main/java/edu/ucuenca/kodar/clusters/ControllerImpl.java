@@ -91,7 +91,7 @@ public class ControllerImpl implements Controller {
 
     @Override
     public void collapsedVariationalBayes(String[] args) throws Exception {
-        ToolRunner.run(new CVB0Driver(), args);
+        ToolRunner.run(conf, new CVB0Driver(), args);
     }
 
     @Override
@@ -20,7 +20,9 @@ package edu.ucuenca.kodar.clusters;
 import org.apache.log4j.PropertyConfigurator;
 
 /**
- * Executes the clustering Job.
+ * Executes the clustering Job. The number of clusters is chosen between the
+ * optional arguments <code>minK</code> and <code>maxK</code>, by default 2 and
+ * 40.
  *
  * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
  */
@@ -29,8 +31,10 @@ public class Execute {
     public static void main(String[] args) throws Exception {
         PropertyConfigurator.configure("log4j.properties");
         if (args.length >= 1) {
+            int minK = args.length >= 2 ? Integer.parseInt(args[1]) : 2;
+            int maxK = args.length >= 3 ? Integer.parseInt(args[2]) : 40;
             Clustering c = new Clustering(args[0]);
-            c.run(16);
+            c.runSelectingK(minK, maxK, 1);
         } else {
             throw new Exception("ERROR: Invalid number of arguments");
         }
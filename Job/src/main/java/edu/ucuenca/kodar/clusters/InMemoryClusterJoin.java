@@ -0,0 +1,217 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters;
+
+import edu.uc.mahout.base.topicmodel.SortMapperJob;
+import edu.ucuenca.kodar.clusters.engine.AssignmentWritable;
+import edu.ucuenca.kodar.clusters.engine.MembershipWritable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.conf.Configured;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.mahout.clustering.classify.WeightedVectorWritable;
+import org.apache.mahout.common.Pair;
+import org.apache.mahout.common.iterator.sequencefile.PathFilters;
+import org.apache.mahout.common.iterator.sequencefile.PathType;
+import org.apache.mahout.common.iterator.sequencefile.SequenceFileDirIterable;
+import org.apache.mahout.common.iterator.sequencefile.SequenceFileIterator;
+import org.apache.mahout.math.NamedVector;
+import org.apache.mahout.math.map.OpenLongIntHashMap;
+import org.apache.mahout.math.map.OpenLongObjectHashMap;
+
+/**
+ * In-process replacement of {@link PointToClusterMapperJob},
+ * {@link ClusterJoinerMapperJob}, {@link JoinKeywordsAuthorMapperJob} and
+ * {@link SortMapperJob}. The cluster of every document is loaded in a
+ * primitive <code>long -&gt; int</code> map, then the keywords and authors
+ * tables are read once, side by side, and the documents are written sorted by
+ * cluster and document id as {@link SortMapperJob} does.
+ *
+ * As the inner joins of the MapReduce jobs, both tables must be sorted by
+ * document id. The grouped documents are kept in memory until they are
+ * written.
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class InMemoryClusterJoin extends Configured {
+
+    private final Logger log = Logger.getLogger(InMemoryClusterJoin.class.getName());
+
+    private final Path clustersPath;
+    private final Path keywordsPath;
+    private final Path authorsPath;
+    private final Path outputPath;
+    private int maxMemberships = 0;
+    private double membershipThreshold = 0;
+    private final OpenLongObjectHashMap<MembershipWritable> memberships = new OpenLongObjectHashMap<>();
+
+    /**
+     * @param clustersPath <code>assignments</code>, <code>clusteredPoints</code>
+     * or <code>memberships</code> directory of a clustering.
+     * @param keywordsPath <code>&lt;LongWritable, Text&gt;</code> keywords of
+     * the documents.
+     * @param authorsPath <code>&lt;LongWritable, Text&gt;</code> authors of the
+     * documents.
+     * @param outputPath directory where <code>part-r-00000</code> is written.
+     */
+    public InMemoryClusterJoin(Path clustersPath, Path keywordsPath, Path authorsPath, Path outputPath) {
+        this.clustersPath = clustersPath;
+        this.keywordsPath = keywordsPath;
+        this.authorsPath = authorsPath;
+        this.outputPath = outputPath;
+    }
+
+    /**
+     * Carry the top memberships of each document when the clusters are read
+     * from <code>memberships</code>, in the same pass that loads the most
+     * likely cluster.
+     *
+     * @param maxMemberships memberships kept per document, 0 keeps none.
+     * @param membershipThreshold minimum weight of the memberships after the
+     * most likely one.
+     */
+    public void setMemberships(int maxMemberships, double membershipThreshold) {
+        this.maxMemberships = maxMemberships;
+        this.membershipThreshold = membershipThreshold;
+    }
+
+    public void run() throws IOException {
+        Configuration conf = getConf();
+        memberships.clear();
+        OpenLongIntHashMap clusters = loadClusters(conf);
+
+        Map<Integer, List<ClusteredDocument>> grouped = new TreeMap<>();
+        int joined = 0;
+        try (SequenceFileIterator<LongWritable, Text> keywords = new SequenceFileIterator<>(keywordsPath, true, conf);
+                SequenceFileIterator<LongWritable, Text> authors = new SequenceFileIterator<>(authorsPath, true, conf)) {
+            Pair<LongWritable, Text> keyword = next(keywords, -1);
+            Pair<LongWritable, Text> author = next(authors, -1);
+            while (keyword != null && author != null) {
+                long keywordId = keyword.getFirst().get();
+                long authorId = author.getFirst().get();
+                if (keywordId < authorId) {
+                    keyword = next(keywords, keywordId);
+                } else if (authorId < keywordId) {
+                    author = next(authors, authorId);
+                } else {
+                    if (clusters.containsKey(keywordId)) {
+                        int clusterId = clusters.get(keywordId);
+                        ClusteredDocument document = new ClusteredDocument();
+                        document.setDocumentId(keywordId);
+                        document.setClusterId(clusterId);
+                        document.setDocumentContent(keyword.getSecond().toString());
+                        document.setAuthors(author.getSecond().toString());
+                        if (memberships.containsKey(keywordId)) {
+                            document.setMemberships(memberships.get(keywordId));
+                        }
+                        List<ClusteredDocument> members = grouped.get(clusterId);
+                        if (members == null) {
+                            members = new ArrayList<>();
+                            grouped.put(clusterId, members);
+                        }
+                        members.add(document);
+                        joined++;
+                    }
+                    keyword = next(keywords, keywordId);
+                    author = next(authors, authorId);
+                }
+            }
+        }
+
+        FileSystem fs = outputPath.getFileSystem(conf);
+        try (SequenceFile.Writer writer = new SequenceFile.Writer(fs, conf, new Path(outputPath, "part-r-00000"),
+                LongWritable.class, ClusteredDocument.class)) {
+            LongWritable key = new LongWritable();
+            for (Map.Entry<Integer, List<ClusteredDocument>> entry : grouped.entrySet()) {
+                key.set(entry.getKey());
+                // Documents were added in the order of their ids.
+                for (ClusteredDocument document : entry.getValue()) {
+                    writer.append(key, document);
+                }
+            }
+        }
+        log.log(Level.INFO, String.format("%d of %d clustered documents joined in %d clusters", joined,
+                clusters.size(), grouped.size()));
+    }
+
+    /**
+     * Cluster of every document, the most likely one for memberships.
+     */
+    private OpenLongIntHashMap loadClusters(Configuration conf) {
+        OpenLongIntHashMap clusters = new OpenLongIntHashMap();
+        String source = "clustered points";
+        for (Pair<?, ?> record : new SequenceFileDirIterable<>(clustersPath, PathType.LIST,
+                PathFilters.partFilter(), conf)) {
+            if (record.getSecond() instanceof AssignmentWritable) {
+                source = "assignments";
+                clusters.put(((LongWritable) record.getFirst()).get(),
+                        ((AssignmentWritable) record.getSecond()).getClusterId());
+            } else if (record.getSecond() instanceof MembershipWritable) {
+                source = "memberships";
+                MembershipWritable membership = (MembershipWritable) record.getSecond();
+                if (membership.size() > 0) {
+                    long documentId = ((LongWritable) record.getFirst()).get();
+                    clusters.put(documentId, membership.getMostLikelyCluster());
+                    if (maxMemberships > 0) {
+                        MembershipWritable top = new MembershipWritable();
+                        top.set(membership);
+                        top.truncate(maxMemberships, membershipThreshold);
+                        memberships.put(documentId, top);
+                    }
+                }
+            } else {
+                WeightedVectorWritable point = (WeightedVectorWritable) record.getSecond();
+                if (!(point.getVector() instanceof NamedVector)) {
+                    throw new IllegalStateException("Cannot output point name, point is not a NamedVector");
+                }
+                clusters.put(Long.parseLong(((NamedVector) point.getVector()).getName()),
+                        ((IntWritable) record.getFirst()).get());
+            }
+        }
+        log.log(Level.INFO, String.format("%d documents loaded from %s", clusters.size(), source));
+        return clusters;
+    }
+
+    /**
+     * Next record of a table, failing if the table is not sorted.
+     */
+    private static Pair<LongWritable, Text> next(Iterator<Pair<LongWritable, Text>> table, long previous)
+            throws IOException {
+        if (!table.hasNext()) {
+            return null;
+        }
+        Pair<LongWritable, Text> record = table.next();
+        if (record.getFirst().get() <= previous) {
+            throw new IOException(String.format("Document %d after %d, the tables must be sorted by document id",
+                    record.getFirst().get(), previous));
+        }
+        return record;
+    }
+}
@@ -23,6 +23,7 @@ import org.apache.hadoop.conf.Configured;
 import org.apache.hadoop.fs.Path;
 import org.apache.hadoop.io.LongWritable;
 import org.apache.hadoop.io.Text;
+import org.apache.hadoop.mapred.FileInputFormat;
 import org.apache.hadoop.mapred.FileOutputFormat;
 import org.apache.hadoop.mapred.JobClient;
 import org.apache.hadoop.mapred.JobConf;
@@ -36,6 +37,11 @@ import org.apache.hadoop.mapred.join.CompositeInputFormat;
 import org.apache.hadoop.mapred.join.TupleWritable;
 
 /**
+ * Joins the clustered keywords with the authors of the documents. By default
+ * an inner join of {@link CompositeInputFormat}, where both inputs must be
+ * sorted and partitioned the same way; in broadcast mode the authors table is
+ * loaded in every map task with {@link BroadcastTable} and the clustered
+ * keywords are split freely.
  *
  * @author cuent
  */
@@ -44,6 +50,7 @@ public class JoinKeywordsAuthorMapperJob extends Configured {
     private Path fileNamefinalCluster;
     private Path fileNameAuthors;
     private Path fileNameOutput;
+    private boolean broadcast = false;
 
     public JoinKeywordsAuthorMapperJob(Path fileNamefinalCluster, Path fileNameAuthors, Path fileNameOutput) {
         this.fileNamefinalCluster = fileNamefinalCluster;
@@ -55,17 +62,25 @@ public class JoinKeywordsAuthorMapperJob extends Configured {
         Configuration configuration = this.getConf();
 
         JobConf job = new JobConf(configuration);
-        job.setInputFormat(CompositeInputFormat.class);
-        String strJoinStmt = CompositeInputFormat.compose("inner", SequenceFileInputFormat.class,
-                fileNameAuthors, fileNamefinalCluster);
-        job.set("mapred.join.expr", strJoinStmt);
+        if (broadcast) {
+            job.setInputFormat(SequenceFileInputFormat.class);
+            FileInputFormat.addInputPath(job, fileNamefinalCluster);
+            BroadcastTable.addToCache(job, fileNameAuthors);
+            job.setMapperClass(BroadcastKwDataJoiner.class);
+            job.setNumReduceTasks(0);
+        } else {
+            job.setInputFormat(CompositeInputFormat.class);
+            String strJoinStmt = CompositeInputFormat.compose("inner", SequenceFileInputFormat.class,
+                    fileNameAuthors, fileNamefinalCluster);
+            job.set("mapred.join.expr", strJoinStmt);
+            job.setMapperClass(KwDataJoiner.class);
+        }
         job.setOutputFormat(SequenceFileOutputFormat.class);
 
         FileOutputFormat.setOutputPath(job, fileNameOutput);
 
-        job.setMapperClass(KwDataJoiner.class);
         job.setOutputKeyClass(LongWritable.class);
-        job.setOutputValueClass(Text.class);
+        job.setOutputValueClass(ClusteredDocument.class);
         job.setJarByClass(JoinKeywordsAuthorMapperJob.class);
 
         job.setJobName(JoinKeywordsAuthorMapperJob.class.getSimpleName());
@@ -73,43 +88,67 @@ public class JoinKeywordsAuthorMapperJob extends Configured {
         JobClient.runJob(new JobConf(job));
     }
 
-    private static class KwDataJoiner extends MapReduceBase implements Mapper<LongWritable, TupleWritable, LongWritable, Text> {
+    /**
+     * Return true if the authors table is broadcast to the map tasks.
+     *
+     * @return
+     */
+    public boolean isBroadcast() {
+        return broadcast;
+    }
+
+    /**
+     * Set to load the authors table in every map task instead of joining
+     * sorted inputs, the output is not sorted. By default false.
+     *
+     * @param broadcast
+     */
+    public void setBroadcast(boolean broadcast) {
+        this.broadcast = broadcast;
+    }
+
+    private static class KwDataJoiner extends MapReduceBase implements Mapper<LongWritable, TupleWritable, LongWritable, ClusteredDocument> {
+
+        private final ClusteredDocument output = new ClusteredDocument();
 
         @Override
-        public void map(LongWritable k, TupleWritable v, OutputCollector<LongWritable, Text> oc, Reporter rprtr) throws IOException {
-            String[] data = v.get(0).toString().split(",(?=([^\"]*\"[^\"]*\")*[^\"]*$)", -1);
-            Text keyCluster = (Text) v.get(1);
-            Text output;
-
-            if (data.length == 4) {
-                output = new Text(keyCluster.toString() + " Author: " + data[0] + " URI_A: " + data[1]
-                        + " URI_P: " + data[2] + " Title: " + data[3]);
-            } else if (data.length == 3) { //Author doesn't have a publication URI
-                output = new Text(keyCluster.toString() + " Author: " + data[0] + " URI_A: " + data[1]
-                        + " URI_P: " + " " + " Title: " + data[2]);
-            } else if (data.length == 1) {
-                output = new Text(keyCluster.toString() + " Author: " + data[0] + " URI_A: " + " "
-                        + " URI_P: " + " " + " Title: " + " ");
-            } else {
-                throw new UnsupportedOperationException("Not supported yet.");
-            }
+        public void map(LongWritable k, TupleWritable v, OutputCollector<LongWritable, ClusteredDocument> oc, Reporter rprtr) throws IOException {
+            output.set((ClusteredDocument) v.get(1));
+            output.setAuthors(v.get(0).toString());
 
             oc.collect(k, output);
         }
 
     }
 
-    private static class AuthorKwJoiner extends MapReduceBase implements Mapper<LongWritable, TupleWritable, LongWritable, Text> {
+    private static class BroadcastKwDataJoiner extends MapReduceBase implements Mapper<LongWritable, ClusteredDocument, LongWritable, ClusteredDocument> {
+
+        private final Text authors = new Text();
+        private BroadcastTable table;
+        private boolean reported = false;
 
         @Override
-        public void map(LongWritable k, TupleWritable v, OutputCollector<LongWritable, Text> oc, Reporter rprtr) throws IOException {
-            Text author = (Text) v.get(0);
-            Text keyCluster = (Text) v.get(1);
+        public void configure(JobConf job) {
+            try {
+                table = BroadcastTable.load(job);
+            } catch (IOException ex) {
+                throw new IllegalStateException(ex);
+            }
+        }
 
-            Text output = new Text(keyCluster.toString() + " Author: " + author.toString());
+        @Override
+        public void map(LongWritable k, ClusteredDocument v, OutputCollector<LongWritable, ClusteredDocument> oc, Reporter rprtr) throws IOException {
+            if (!reported) {
+                table.report(rprtr);
+                reported = true;
+            }
+            if (!table.get(k.get(), authors)) {
+                rprtr.incrCounter(BroadcastTable.Counters.MISSES, 1);
+                return;
+            }
+            v.setAuthors(authors.toString());
 
-            oc.collect(k, output);
+            oc.collect(k, v);
         }
-
     }
 }
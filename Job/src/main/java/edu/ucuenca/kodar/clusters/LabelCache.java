@@ -0,0 +1,290 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+/**
+ * Labels of the clusters already labeled, by the fingerprint of their
+ * publications. A cluster with the same publications, or with a similarity
+ * of at least <code>minSimilarity</code> to a cached cluster, takes the label
+ * of the most similar one instead of being labeled again. The labels of each
+ * labeler are kept apart, and the least recently used clusters are evicted
+ * when the cache is full.
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class LabelCache {
+
+    private static final Logger log = Logger.getLogger(LabelCache.class.getName());
+
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+            return size() > maxSize;
+        }
+    };
+    private int maxSize;
+    private double minSimilarity = 0.9;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong nearHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private static class Entry {
+
+        private final String labeler;
+        private final ClusterFingerprint fingerprint;
+        private final String label;
+
+        Entry(String labeler, ClusterFingerprint fingerprint, String label) {
+            this.labeler = labeler;
+            this.fingerprint = fingerprint;
+            this.label = label;
+        }
+    }
+
+    /**
+     * @param maxSize maximum number of clusters kept.
+     */
+    public LabelCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    private static String key(String labeler, ClusterFingerprint fingerprint) {
+        return labeler + "/" + Long.toHexString(fingerprint.getExact()) + "/" + fingerprint.size();
+    }
+
+    /**
+     * Return the label of the same or the most similar cluster.
+     *
+     * @param labeler labeling mode, i.e. <code>cvb</code>.
+     * @param fingerprint publications of the cluster.
+     * @return null if no cached cluster is similar enough.
+     */
+    public String get(String labeler, ClusterFingerprint fingerprint) {
+        if (fingerprint.size() == 0) {
+            misses.incrementAndGet();
+            return null;
+        }
+        synchronized (entries) {
+            Entry same = entries.get(key(labeler, fingerprint));
+            if (same != null) {
+                hits.incrementAndGet();
+                return same.label;
+            }
+            Entry nearest = null;
+            double best = minSimilarity;
+            for (Entry entry : entries.values()) {
+                // The Jaccard similarity is at most the ratio of the sizes.
+                int smaller = Math.min(entry.fingerprint.size(), fingerprint.size());
+                int larger = Math.max(entry.fingerprint.size(), fingerprint.size());
+                if (!entry.labeler.equals(labeler) || smaller < best * larger) {
+                    continue;
+                }
+                double similarity = entry.fingerprint.similarity(fingerprint);
+                if (similarity >= best && (nearest == null || similarity > best)) {
+                    nearest = entry;
+                    best = similarity;
+                }
+            }
+            if (nearest == null) {
+                misses.incrementAndGet();
+                return null;
+            }
+            // Touch the entry, it is still in use.
+            entries.get(key(nearest.labeler, nearest.fingerprint));
+            nearHits.incrementAndGet();
+            return nearest.label;
+        }
+    }
+
+    /**
+     * Keep the label of a cluster.
+     *
+     * @param labeler
+     * @param fingerprint
+     * @param label
+     */
+    public void put(String labeler, ClusterFingerprint fingerprint, String label) {
+        if (fingerprint.size() == 0) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(key(labeler, fingerprint), new Entry(labeler, fingerprint, label));
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Set the maximum number of clusters kept, the least recently used are
+     * evicted if there are more.
+     *
+     * @param maxSize
+     */
+    public void setMaxSize(int maxSize) {
+        synchronized (entries) {
+            this.maxSize = maxSize;
+            Iterator<String> eldest = entries.keySet().iterator();
+            while (entries.size() > maxSize) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    public double getMinSimilarity() {
+        return minSimilarity;
+    }
+
+    /**
+     * Minimum estimated Jaccard similarity of the publications of two
+     * clusters to share their label, 1 reuses only the labels of the same
+     * publications. By default 0.9.
+     *
+     * @param minSimilarity
+     */
+    public void setMinSimilarity(double minSimilarity) {
+        this.minSimilarity = minSimilarity;
+    }
+
+    /**
+     * Return the lookups of clusters with the same publications.
+     *
+     * @return
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Return the lookups answered by a similar cluster.
+     *
+     * @return
+     */
+    public long getNearHits() {
+        return nearHits.get();
+    }
+
+    /**
+     * Return the lookups of clusters that were labeled.
+     *
+     * @return
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Reset the metrics.
+     */
+    public void resetMetrics() {
+        hits.set(0);
+        nearHits.set(0);
+        misses.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d clusters, %d hits, %d near hits, %d misses", size(), getHits(), getNearHits(),
+                getMisses());
+    }
+
+    /**
+     * Write the cached clusters, from the least to the most recently used.
+     *
+     * @param file
+     * @throws IOException
+     */
+    public void save(File file) throws IOException {
+        List<Entry> snapshot;
+        synchronized (entries) {
+            snapshot = new ArrayList<>(entries.values());
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(ClusterFingerprint.NUM_HASHES);
+            out.writeInt(snapshot.size());
+            for (Entry entry : snapshot) {
+                out.writeUTF(entry.labeler);
+                out.writeUTF(entry.label);
+                out.writeLong(entry.fingerprint.getExact());
+                out.writeInt(entry.fingerprint.size());
+                for (long min : entry.fingerprint.getSignature()) {
+                    out.writeLong(min);
+                }
+            }
+        }
+        log.log(Level.INFO, String.format("%d cluster labels written in %s", snapshot.size(), file));
+    }
+
+    /**
+     * Add the clusters written by {@link #save(File)}, a snapshot of another
+     * version is ignored.
+     *
+     * @param file
+     * @throws IOException
+     */
+    public void load(File file) throws IOException {
+        int loaded = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != SNAPSHOT_VERSION || in.readInt() != ClusterFingerprint.NUM_HASHES) {
+                log.log(Level.WARN, String.format("%s ignored, it was written by another version", file));
+                return;
+            }
+            for (int entry = in.readInt(); entry > 0; entry--) {
+                String labeler = in.readUTF();
+                String label = in.readUTF();
+                long exact = in.readLong();
+                int size = in.readInt();
+                long[] signature = new long[ClusterFingerprint.NUM_HASHES];
+                for (int i = 0; i < signature.length; i++) {
+                    signature[i] = in.readLong();
+                }
+                put(labeler, new ClusterFingerprint(exact, size, signature), label);
+                loaded++;
+            }
+        }
+        log.log(Level.INFO, String.format("%d cluster labels read from %s", loaded, file));
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.algorithm;
+
+import java.util.List;
+
+/**
+ * A clustering engine of the work-flow. Each algorithm writes its clusters in
+ * its own directory, <code>KODAR_HOME/&lt;name&gt;</code>, with the layout of
+ * the Mahout drivers: <code>clusters-*-final</code> and either
+ * <code>clusteredPoints</code> or <code>memberships</code>. Algorithms may
+ * also write the cluster of every document sorted by id in
+ * <code>assignments</code>, which the joins read directly. The joins, labeling
+ * and exports consume these directories without knowing the algorithm.
+ *
+ * New algorithms are registered with
+ * {@link edu.ucuenca.kodar.clusters.Clustering#addAlgorithm} or listed in
+ * <code>META-INF/services/edu.ucuenca.kodar.clusters.algorithm.ClusteringAlgorithm</code>.
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public interface ClusteringAlgorithm {
+
+    /**
+     * Unique name of the algorithm, it is also the name of its output
+     * directory.
+     *
+     * @return
+     */
+    public String getName();
+
+    /**
+     * Names of the algorithms whose output is read by this one. Only the
+     * dependencies selected for a run are waited for.
+     *
+     * @return
+     */
+    public List<String> getDependencies();
+
+    /**
+     * Cluster the vectors of the context in
+     * <code>context.getOutputDir(getName())</code>. Algorithms of the same run
+     * are executed concurrently once their dependencies finish. Only the
+     * in-process engines share the vectors of
+     * {@link ClusteringContext#getVectors()}, which must not be modified; the
+     * Mahout drivers and the streaming sketch read
+     * {@link ClusteringContext#getVectorsDir()} themselves.
+     *
+     * @param context
+     * @throws Exception
+     */
+    public void run(ClusteringContext context) throws Exception;
+}
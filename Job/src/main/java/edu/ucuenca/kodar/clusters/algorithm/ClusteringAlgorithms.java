@@ -0,0 +1,164 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.algorithm;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+/**
+ * Discovers and executes {@link ClusteringAlgorithm}s. The algorithms of a run
+ * are executed concurrently, each one waits only for its selected
+ * dependencies.
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public final class ClusteringAlgorithms {
+
+    private static final Logger log = Logger.getLogger(ClusteringAlgorithms.class.getName());
+
+    private ClusteringAlgorithms() {
+    }
+
+    /**
+     * Algorithms listed in
+     * <code>META-INF/services/edu.ucuenca.kodar.clusters.algorithm.ClusteringAlgorithm</code>.
+     *
+     * @return
+     */
+    public static List<ClusteringAlgorithm> discover() {
+        List<ClusteringAlgorithm> algorithms = new ArrayList<>();
+        for (ClusteringAlgorithm algorithm : ServiceLoader.load(ClusteringAlgorithm.class)) {
+            algorithms.add(algorithm);
+        }
+        return algorithms;
+    }
+
+    /**
+     * Run the algorithms concurrently, an algorithm starts when its selected
+     * dependencies have finished. If one fails the others are cancelled.
+     *
+     * @param algorithms
+     * @param context
+     * @throws Exception the failure of the first algorithm that failed, in
+     * dependency order.
+     * @throws IllegalArgumentException if the dependencies have a cycle.
+     */
+    public static void execute(List<ClusteringAlgorithm> algorithms, final ClusteringContext context) throws Exception {
+        List<ClusteringAlgorithm> ordered = order(algorithms);
+        final Map<String, Future<?>> tasks = new HashMap<>();
+        List<FutureTask<Void>> submitted = new ArrayList<>();
+        for (final ClusteringAlgorithm algorithm : ordered) {
+            FutureTask<Void> task = new FutureTask<>(new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                    for (String dependency : algorithm.getDependencies()) {
+                        Future<?> required = tasks.get(dependency);
+                        if (required != null) {
+                            required.get();
+                        }
+                    }
+                    long begin = System.currentTimeMillis();
+                    algorithm.run(context);
+                    log.log(Level.INFO, String.format("%s finished in %dms", algorithm.getName(),
+                            System.currentTimeMillis() - begin));
+                    return null;
+                }
+            });
+            tasks.put(algorithm.getName(), task);
+            submitted.add(task);
+        }
+
+        // One thread per algorithm, a waiting dependent never holds back the
+        // algorithm it waits for.
+        ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, ordered.size()));
+        try {
+            for (FutureTask<Void> task : submitted) {
+                pool.execute(task);
+            }
+            for (FutureTask<Void> task : submitted) {
+                try {
+                    task.get();
+                } catch (ExecutionException ex) {
+                    for (FutureTask<Void> other : submitted) {
+                        other.cancel(true);
+                    }
+                    Throwable cause = ex.getCause();
+                    // Dependents fail with the failure of their dependency.
+                    while (cause instanceof ExecutionException && cause.getCause() != null) {
+                        cause = cause.getCause();
+                    }
+                    if (cause instanceof Exception) {
+                        throw (Exception) cause;
+                    }
+                    throw ex;
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Order the algorithms so that dependencies come first.
+     */
+    private static List<ClusteringAlgorithm> order(List<ClusteringAlgorithm> algorithms) {
+        Map<String, ClusteringAlgorithm> byName = new LinkedHashMap<>();
+        for (ClusteringAlgorithm algorithm : algorithms) {
+            byName.put(algorithm.getName(), algorithm);
+        }
+        List<ClusteringAlgorithm> ordered = new ArrayList<>();
+        Set<String> visited = new HashSet<>();
+        for (ClusteringAlgorithm algorithm : algorithms) {
+            visit(algorithm, byName, visited, new HashSet<String>(), ordered);
+        }
+        return ordered;
+    }
+
+    private static void visit(ClusteringAlgorithm algorithm, Map<String, ClusteringAlgorithm> byName,
+            Set<String> visited, Set<String> path, List<ClusteringAlgorithm> ordered) {
+        if (visited.contains(algorithm.getName())) {
+            return;
+        }
+        if (!path.add(algorithm.getName())) {
+            throw new IllegalArgumentException("Cyclic dependency on " + algorithm.getName());
+        }
+        for (String dependency : algorithm.getDependencies()) {
+            ClusteringAlgorithm required = byName.get(dependency);
+            if (required != null) {
+                visit(required, byName, visited, path, ordered);
+            }
+        }
+        path.remove(algorithm.getName());
+        visited.add(algorithm.getName());
+        ordered.add(algorithm);
+    }
+}
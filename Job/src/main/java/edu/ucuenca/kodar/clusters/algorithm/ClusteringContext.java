@@ -0,0 +1,224 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.algorithm;
+
+import edu.ucuenca.kodar.clusters.Controller;
+import edu.ucuenca.kodar.clusters.engine.CentroidTruncation;
+import edu.ucuenca.kodar.clusters.engine.CheckpointStore;
+import edu.ucuenca.kodar.clusters.engine.IterationListener;
+import edu.ucuenca.kodar.clusters.engine.VectorStore;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+
+/**
+ * Inputs and settings shared by the algorithms of one run. The vectors are
+ * loaded once, on the first request, and the same {@link VectorStore} is given
+ * to every in-process algorithm.
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class ClusteringContext {
+
+    private final Configuration conf;
+    private final Controller controller;
+    private final File home;
+    private final Path vectorsDir;
+    private final int k;
+    private final Set<String> selected = new HashSet<>();
+    private VectorStore vectors;
+
+    private long seed = 1;
+    private double minReassignedFraction = 0;
+    private int checkpointInterval = 10;
+    private int memberships = 0;
+    private CentroidTruncation truncation;
+    private final List<IterationListener> listeners = new ArrayList<>();
+
+    /**
+     * @param conf
+     * @param controller runs the Mahout drivers.
+     * @param home directory holding the output of every algorithm, i.e.
+     * <code>KODAR_HOME</code>.
+     * @param vectorsDir i.e. <code>sparse/tfidf-vectors</code>.
+     * @param k number of clusters.
+     * @param selected names of the algorithms of the run.
+     */
+    public ClusteringContext(Configuration conf, Controller controller, File home, Path vectorsDir, int k,
+            Collection<String> selected) {
+        this.conf = conf;
+        this.controller = controller;
+        this.home = home;
+        this.vectorsDir = vectorsDir;
+        this.k = k;
+        this.selected.addAll(selected);
+    }
+
+    /**
+     * Vectors of the run, loaded from <code>vectorsDir</code> the first time.
+     *
+     * @return
+     * @throws IOException
+     */
+    public synchronized VectorStore getVectors() throws IOException {
+        if (vectors == null) {
+            vectors = VectorStore.load(conf, vectorsDir);
+        }
+        return vectors;
+    }
+
+    /**
+     * Share vectors already loaded, i.e. by the selection of k.
+     *
+     * @param vectors
+     */
+    public synchronized void setVectors(VectorStore vectors) {
+        this.vectors = vectors;
+    }
+
+    /**
+     * Output directory of an algorithm.
+     *
+     * @param name
+     * @return
+     */
+    public File getOutputDir(String name) {
+        return new File(home, name);
+    }
+
+    /**
+     * Directory of the metrics written by the algorithms.
+     *
+     * @return
+     */
+    public File getReportsDir() {
+        return new File(home, "reports");
+    }
+
+    /**
+     * Checkpoints of an algorithm, null if they are disabled.
+     *
+     * @param name
+     * @return
+     */
+    public CheckpointStore checkpoints(String name) {
+        if (checkpointInterval <= 0) {
+            return null;
+        }
+        return new CheckpointStore(conf, new Path(new File(home, "checkpoints").getPath(), name));
+    }
+
+    /**
+     * Return true if the algorithm is executed in this run.
+     *
+     * @param name
+     * @return
+     */
+    public boolean isSelected(String name) {
+        return selected.contains(name);
+    }
+
+    public Configuration getConf() {
+        return conf;
+    }
+
+    public Controller getController() {
+        return controller;
+    }
+
+    public Path getVectorsDir() {
+        return vectorsDir;
+    }
+
+    public int getK() {
+        return k;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Seed of the random initial centroids.
+     *
+     * @param seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public double getMinReassignedFraction() {
+        return minReassignedFraction;
+    }
+
+    public void setMinReassignedFraction(double minReassignedFraction) {
+        this.minReassignedFraction = minReassignedFraction;
+    }
+
+    public int getCheckpointInterval() {
+        return checkpointInterval;
+    }
+
+    /**
+     * Iterations between checkpoints of the in-process algorithms, 0 to
+     * disable them.
+     *
+     * @param checkpointInterval
+     */
+    public void setCheckpointInterval(int checkpointInterval) {
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    public int getMemberships() {
+        return memberships;
+    }
+
+    /**
+     * Memberships per document requested by the join, soft clusterings write
+     * them in <code>memberships</code>. 0 requests only the most likely
+     * cluster.
+     *
+     * @param memberships
+     */
+    public void setMemberships(int memberships) {
+        this.memberships = memberships;
+    }
+
+    public CentroidTruncation getTruncation() {
+        return truncation;
+    }
+
+    public void setTruncation(CentroidTruncation truncation) {
+        this.truncation = truncation;
+    }
+
+    public List<IterationListener> getListeners() {
+        return Collections.unmodifiableList(listeners);
+    }
+
+    public void addIterationListener(IterationListener listener) {
+        listeners.add(listener);
+    }
+}
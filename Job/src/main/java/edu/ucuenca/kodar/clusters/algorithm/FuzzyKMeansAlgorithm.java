@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.algorithm;
+
+import edu.ucuenca.kodar.clusters.engine.ClusterFiles;
+import edu.ucuenca.kodar.clusters.engine.FuzzyKMeans;
+import edu.ucuenca.kodar.clusters.engine.IterationListener;
+import edu.ucuenca.kodar.clusters.engine.KMeans;
+import edu.ucuenca.kodar.clusters.engine.RunReport;
+import edu.ucuenca.kodar.clusters.engine.VectorStore;
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import org.apache.hadoop.fs.Path;
+import org.apache.mahout.common.HadoopUtil;
+import org.apache.mahout.common.distance.CosineDistanceMeasure;
+import org.apache.mahout.math.Vector;
+
+/**
+ * Fuzzy k-means with cosine distance. When both are selected it is seeded by
+ * default with the final clusters of {@link KMeansAlgorithm}, so it starts
+ * once k-means finishes; with {@link #setSeedFromKmeans(boolean)} set to
+ * false it starts from random points, concurrently with k-means. The
+ * in-process engine, used when memberships are requested, clusters the
+ * {@link VectorStore} shared through the context; the Mahout driver reads the
+ * vectors from disk.
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class FuzzyKMeansAlgorithm implements ClusteringAlgorithm {
+
+    public static final String NAME = "fkmeans";
+
+    private boolean inProcess = false;
+    private boolean seedFromKmeans = true;
+    private double fuzziness = 1.8;
+    private int maxMemberships = 3;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public List<String> getDependencies() {
+        return seedFromKmeans ? Collections.singletonList(KMeansAlgorithm.NAME) : Collections.<String>emptyList();
+    }
+
+    @Override
+    public void run(ClusteringContext context) throws Exception {
+        File output = context.getOutputDir(NAME);
+        Path seeds = null;
+        if (seedFromKmeans && context.isSelected(KMeansAlgorithm.NAME)) {
+            seeds = ClusterFiles.findFinalClusters(context.getConf(),
+                    new Path(context.getOutputDir(KMeansAlgorithm.NAME).getPath()));
+        }
+        // Only the in-process engine writes the memberships the join carries.
+        if (inProcess || context.getMemberships() > 0) {
+            runInProcess(context, output, seeds);
+            return;
+        }
+
+        String[] fuzzykmeans = new String[]{
+            "-i", context.getVectorsDir().toString(),
+            "-c", seeds != null ? seeds.toString() : new File(output, "seed").getPath(),
+            "-o", output.getPath(),
+            "-dm", CosineDistanceMeasure.class.getName(),
+            "-m", String.valueOf(fuzziness),
+            "-x", "100",
+            "-cd", "0.5",
+            "-ow",
+            "-cl",
+            "-e",
+            "-xm", "sequential"
+        };
+        if (seeds == null) {
+            // Random seeds are sampled in -c.
+            String[] sampled = new String[fuzzykmeans.length + 2];
+            System.arraycopy(fuzzykmeans, 0, sampled, 0, fuzzykmeans.length);
+            sampled[fuzzykmeans.length] = "-k";
+            sampled[fuzzykmeans.length + 1] = String.valueOf(context.getK());
+            fuzzykmeans = sampled;
+        }
+        context.getController().fuzzyKmeans(fuzzykmeans);
+    }
+
+    /**
+     * In-process fuzzy k-means keeping only the top memberships of each point.
+     * The metrics of every iteration are written in
+     * <code>reports/fkmeans.csv</code>.
+     */
+    private void runInProcess(ClusteringContext context, File output, Path seeds) throws Exception {
+        VectorStore vectors = context.getVectors();
+        RunReport report = new RunReport();
+        FuzzyKMeans fuzzyKmeans = new FuzzyKMeans(vectors);
+        fuzzyKmeans.setFuzziness(fuzziness);
+        fuzzyKmeans.setMaxIterations(100);
+        fuzzyKmeans.setConvergenceDelta(0.5);
+        fuzzyKmeans.setMaxMemberships(Math.max(maxMemberships, context.getMemberships()));
+        fuzzyKmeans.setMinReassignedFraction(context.getMinReassignedFraction());
+        fuzzyKmeans.setTruncation(context.getTruncation());
+        fuzzyKmeans.addIterationListener(report);
+        fuzzyKmeans.setCheckpoints(context.checkpoints(NAME), context.getCheckpointInterval());
+        for (IterationListener listener : context.getListeners()) {
+            fuzzyKmeans.addIterationListener(listener);
+        }
+        List<Vector> centers = seeds != null ? ClusterFiles.readCenters(context.getConf(), seeds)
+                : KMeans.randomSeeds(vectors, context.getK(), context.getSeed());
+        fuzzyKmeans.run(centers);
+
+        HadoopUtil.delete(context.getConf(), new Path(output.getPath()));
+        fuzzyKmeans.write(context.getConf(), new Path(output.getPath()));
+        report.writeCsv(new File(context.getReportsDir(), "fkmeans.csv"));
+    }
+
+    public boolean isInProcess() {
+        return inProcess;
+    }
+
+    /**
+     * Run fuzzy k-means in-process instead of the Mahout driver. It also runs
+     * in-process when the context requests memberships, since the Mahout
+     * driver only writes the most likely cluster.
+     *
+     * @param inProcess
+     */
+    public void setInProcess(boolean inProcess) {
+        this.inProcess = inProcess;
+    }
+
+    public boolean isSeedFromKmeans() {
+        return seedFromKmeans;
+    }
+
+    /**
+     * Seed with the clusters of k-means, waiting for it. Set to false to run
+     * both algorithms concurrently from random seeds. By default true.
+     *
+     * @param seedFromKmeans
+     */
+    public void setSeedFromKmeans(boolean seedFromKmeans) {
+        this.seedFromKmeans = seedFromKmeans;
+    }
+
+    public double getFuzziness() {
+        return fuzziness;
+    }
+
+    public void setFuzziness(double fuzziness) {
+        this.fuzziness = fuzziness;
+    }
+
+    public int getMaxMemberships() {
+        return maxMemberships;
+    }
+
+    /**
+     * Memberships kept per point by the in-process engine, at least one.
+     *
+     * @param maxMemberships
+     * @throws IllegalArgumentException if it is less than one.
+     */
+    public void setMaxMemberships(int maxMemberships) {
+        if (maxMemberships < 1) {
+            throw new IllegalArgumentException("Every point keeps at least one membership: " + maxMemberships);
+        }
+        this.maxMemberships = maxMemberships;
+    }
+}
@@ -0,0 +1,261 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.algorithm;
+
+import edu.ucuenca.kodar.clusters.engine.BisectingKMeans;
+import edu.ucuenca.kodar.clusters.engine.IterationListener;
+import edu.ucuenca.kodar.clusters.engine.KMeans;
+import edu.ucuenca.kodar.clusters.engine.MultiRestartKMeans;
+import edu.ucuenca.kodar.clusters.engine.RunReport;
+import edu.ucuenca.kodar.clusters.engine.StreamingKMeansSketch;
+import edu.ucuenca.kodar.clusters.engine.VectorStore;
+import java.io.File;
+import java.util.Collections;
+import java.util.List;
+import org.apache.hadoop.fs.Path;
+import org.apache.mahout.common.HadoopUtil;
+import org.apache.mahout.common.distance.CosineDistanceMeasure;
+
+/**
+ * K-means with cosine distance. By default it runs the Mahout driver; the
+ * in-process, multi-restart, bisecting and streaming engines write the same
+ * layout in the same directory. The in-process, multi-restart and bisecting
+ * engines cluster the {@link VectorStore} shared through the context, the
+ * Mahout driver and the streaming sketch read the vectors from disk.
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class KMeansAlgorithm implements ClusteringAlgorithm {
+
+    public static final String NAME = "kmeans";
+
+    private boolean inProcess = false;
+    private boolean streaming = false;
+    private boolean bisecting = false;
+    private int restarts = 1;
+    private int bisectingMaxK = 0;
+    private BisectingKMeans.Criterion bisectingCriterion = BisectingKMeans.Criterion.LARGEST;
+
+    @Override
+    public String getName() {
+        return NAME;
+    }
+
+    @Override
+    public List<String> getDependencies() {
+        return Collections.emptyList();
+    }
+
+    @Override
+    public void run(ClusteringContext context) throws Exception {
+        File output = context.getOutputDir(NAME);
+        if (streaming) {
+            runStreaming(context, output);
+        } else if (restarts > 1) {
+            runMultiRestart(context, output);
+        } else if (inProcess) {
+            runInProcess(context, output);
+        } else if (bisecting) {
+            runBisecting(context, output);
+        } else {
+            String[] kmeans = new String[]{
+                "-i", context.getVectorsDir().toString(),
+                "-o", output.getPath(),
+                "-c", new File(output, "seed").getPath(),
+                "-dm", CosineDistanceMeasure.class.getName(),
+                "-x", "100",
+                "-k", String.valueOf(context.getK()),
+                "-cl",
+                "-xm", "sequential",
+                "-ow"
+            };
+            context.getController().kmeans(kmeans);
+        }
+    }
+
+    /**
+     * One pass k-means, memory is bounded by the size of the sketch.
+     */
+    private void runStreaming(ClusteringContext context, File output) throws Exception {
+        HadoopUtil.delete(context.getConf(), new Path(output.getPath()));
+
+        StreamingKMeansSketch sketch = new StreamingKMeansSketch(context.getConf());
+        sketch.run(context.getVectorsDir(), new Path(output.getPath()), context.getK());
+    }
+
+    /**
+     * In-process k-means with the parameters of the Mahout driver, the metrics
+     * of every iteration are written in <code>reports/kmeans.csv</code>.
+     */
+    private void runInProcess(ClusteringContext context, File output) throws Exception {
+        VectorStore vectors = context.getVectors();
+        RunReport report = new RunReport();
+        KMeans kmeans = new KMeans(vectors);
+        kmeans.setMaxIterations(100);
+        kmeans.setConvergenceDelta(0.5);
+        kmeans.setMinReassignedFraction(context.getMinReassignedFraction());
+        kmeans.setTruncation(context.getTruncation());
+        kmeans.addIterationListener(report);
+        kmeans.setCheckpoints(context.checkpoints(NAME), context.getCheckpointInterval());
+        for (IterationListener listener : context.getListeners()) {
+            kmeans.addIterationListener(listener);
+        }
+        kmeans.run(KMeans.randomSeeds(vectors, context.getK(), context.getSeed()));
+
+        HadoopUtil.delete(context.getConf(), new Path(output.getPath()));
+        kmeans.write(context.getConf(), new Path(output.getPath()));
+        report.writeCsv(new File(context.getReportsDir(), "kmeans.csv"));
+    }
+
+    /**
+     * In-process k-means from <code>restarts</code> seeds derived from the
+     * seed of the context, the restart with the lowest cost is written. The
+     * cost of every restart is written in <code>reports/restarts.csv</code>.
+     */
+    private void runMultiRestart(ClusteringContext context, File output) throws Exception {
+        MultiRestartKMeans multiRestart = new MultiRestartKMeans(context.getVectors());
+        multiRestart.setRestarts(restarts);
+        multiRestart.setSeed(context.getSeed());
+        multiRestart.setMaxIterations(100);
+        multiRestart.setConvergenceDelta(0.5);
+        multiRestart.setMinReassignedFraction(context.getMinReassignedFraction());
+        multiRestart.setTruncation(context.getTruncation());
+        multiRestart.run(context.getK());
+
+        HadoopUtil.delete(context.getConf(), new Path(output.getPath()));
+        multiRestart.getBest().write(context.getConf(), new Path(output.getPath()));
+        multiRestart.writeCsv(new File(context.getReportsDir(), "restarts.csv"));
+    }
+
+    /**
+     * Bisecting k-means up to <code>max(k, bisectingMaxK)</code> clusters, the
+     * flat clustering with <code>k</code> clusters is written and the split
+     * tree is kept in <code>splitTree</code>. The seed and the minimum
+     * reassigned fraction of the context apply to every split; the truncation
+     * and the listeners do not, see {@link #setBisecting(boolean)}.
+     */
+    private void runBisecting(ClusteringContext context, File output) throws Exception {
+        BisectingKMeans bisecting = new BisectingKMeans(context.getVectors());
+        bisecting.setCriterion(bisectingCriterion);
+        bisecting.setSeed(context.getSeed());
+        bisecting.setMinReassignedFraction(context.getMinReassignedFraction());
+        bisecting.run(Math.max(context.getK(), bisectingMaxK));
+
+        HadoopUtil.delete(context.getConf(), new Path(output.getPath()));
+        bisecting.write(context.getConf(), new Path(output.getPath()), context.getK());
+    }
+
+    public boolean isInProcess() {
+        return inProcess;
+    }
+
+    /**
+     * Run k-means in-process instead of the Mahout driver, the other modes are
+     * cleared.
+     *
+     * @param inProcess
+     */
+    public void setInProcess(boolean inProcess) {
+        this.inProcess = inProcess;
+        if (inProcess) {
+            clearModes();
+            this.inProcess = true;
+        }
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * Run the one pass {@link StreamingKMeansSketch}, the other modes are
+     * cleared.
+     *
+     * @param streaming
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+        if (streaming) {
+            clearModes();
+            this.streaming = true;
+        }
+    }
+
+    public boolean isBisecting() {
+        return bisecting;
+    }
+
+    /**
+     * Run {@link BisectingKMeans}, the other modes are cleared. The splits
+     * keep whole centroids and report no iterations, so the truncation and
+     * the iteration listeners of the context are ignored in this mode.
+     *
+     * @param bisecting
+     */
+    public void setBisecting(boolean bisecting) {
+        this.bisecting = bisecting;
+        if (bisecting) {
+            clearModes();
+            this.bisecting = true;
+        }
+    }
+
+    public int getRestarts() {
+        return restarts;
+    }
+
+    /**
+     * Number of in-process restarts, more than one runs
+     * {@link MultiRestartKMeans} and clears the other modes.
+     *
+     * @param restarts
+     */
+    public void setRestarts(int restarts) {
+        this.restarts = restarts;
+        if (restarts > 1) {
+            clearModes();
+            this.restarts = restarts;
+        }
+    }
+
+    /**
+     * Only one mode runs, the Mahout driver when none is set.
+     */
+    private void clearModes() {
+        inProcess = false;
+        streaming = false;
+        bisecting = false;
+        restarts = 1;
+    }
+
+    public int getBisectingMaxK() {
+        return bisectingMaxK;
+    }
+
+    public void setBisectingMaxK(int bisectingMaxK) {
+        this.bisectingMaxK = bisectingMaxK;
+    }
+
+    public BisectingKMeans.Criterion getBisectingCriterion() {
+        return bisectingCriterion;
+    }
+
+    public void setBisectingCriterion(BisectingKMeans.Criterion bisectingCriterion) {
+        this.bisectingCriterion = bisectingCriterion;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.engine;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Cluster of a document and its distance to the center, the value of the
+ * <code>assignments</code> file written in the final assignment of a
+ * clustering.
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class AssignmentWritable implements Writable {
+
+    private int clusterId;
+    private float distance;
+
+    public AssignmentWritable() {
+    }
+
+    public AssignmentWritable(int clusterId, double distance) {
+        set(clusterId, distance);
+    }
+
+    /**
+     * Reuse this instance with a new assignment.
+     *
+     * @param clusterId
+     * @param distance
+     */
+    public final void set(int clusterId, double distance) {
+        this.clusterId = clusterId;
+        this.distance = (float) distance;
+    }
+
+    public int getClusterId() {
+        return clusterId;
+    }
+
+    public double getDistance() {
+        return distance;
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        WritableUtils.writeVInt(out, clusterId);
+        out.writeFloat(distance);
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        clusterId = WritableUtils.readVInt(in);
+        distance = in.readFloat();
+    }
+
+    @Override
+    public String toString() {
+        return clusterId + ":" + distance;
+    }
+}
@@ -0,0 +1,385 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.engine;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.mahout.clustering.kmeans.Kluster;
+import org.apache.mahout.common.distance.CosineDistanceMeasure;
+import org.apache.mahout.math.RandomAccessSparseVector;
+import org.apache.mahout.math.Vector;
+
+/**
+ * Bisecting k-means over a {@link VectorStore} using cosine distance. Starting
+ * with a single cluster, the largest (or worst) cluster is split in two with
+ * 2-means until there are <code>maxK</code> clusters. Every split is recorded
+ * in a {@link SplitTree}, so the clusterings for every k up to
+ * <code>maxK</code> come from one run.
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class BisectingKMeans {
+
+    public static final String SPLIT_TREE = "splitTree";
+    public static final String LEAVES = "leaves";
+
+    /**
+     * Cluster chosen for the next split.
+     */
+    public enum Criterion {
+
+        /**
+         * Cluster with more points.
+         */
+        LARGEST,
+        /**
+         * Cluster with the greatest sum of distances to its center.
+         */
+        WORST
+    }
+
+    private final Logger log = Logger.getLogger(BisectingKMeans.class.getName());
+    private final VectorStore vectors;
+
+    private Criterion criterion = Criterion.LARGEST;
+    private int maxIterations = 20;
+    private double minReassignedFraction = 0;
+    private long seed = 1;
+    private int numThreads = Runtime.getRuntime().availableProcessors();
+
+    private SplitTree tree;
+    private int[] leaves;
+
+    public BisectingKMeans(VectorStore vectors) {
+        this.vectors = vectors;
+    }
+
+    /**
+     * Split clusters until there are <code>maxK</code> clusters or no cluster
+     * can be split.
+     *
+     * @param maxK
+     * @throws InterruptedException
+     * @throws ExecutionException
+     */
+    public void run(int maxK) throws InterruptedException, ExecutionException {
+        tree = new SplitTree();
+        leaves = new int[vectors.size()];
+        List<int[]> members = new ArrayList<>();
+        int[] all = new int[vectors.size()];
+        for (int i = 0; i < all.length; i++) {
+            all[i] = i;
+        }
+        Vector rootCenter = centroid(all);
+        tree.add(-1, rootCenter, all.length, cost(all, rootCenter));
+        members.add(all);
+
+        Random random = new Random(seed);
+        boolean[] unsplittable = new boolean[2 * maxK];
+        ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+        try {
+            int split = 1;
+            while (split < maxK) {
+                SplitTree.Node node = select(members, unsplittable);
+                if (node == null) {
+                    break;
+                }
+                int[][] halves = bisect(pool, members.get(node.getId()), random);
+                if (halves == null) {
+                    unsplittable[node.getId()] = true;
+                    continue;
+                }
+                Vector left = centroid(halves[0]);
+                Vector right = centroid(halves[1]);
+                tree.split(node, split++, left, halves[0].length, cost(halves[0], left),
+                        right, halves[1].length, cost(halves[1], right));
+                // Points of the split node are only needed by its children.
+                members.set(node.getId(), null);
+                members.add(halves[0]);
+                members.add(halves[1]);
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        for (int id = 0; id < members.size(); id++) {
+            if (members.get(id) != null) {
+                for (int point : members.get(id)) {
+                    leaves[point] = id;
+                }
+            }
+        }
+        log.log(Level.INFO, String.format("Bisecting k-means finished with %d clusters (criterion=%s, threads=%d)",
+                tree.getMaxK(), criterion, numThreads));
+    }
+
+    private SplitTree.Node select(List<int[]> members, boolean[] unsplittable) {
+        SplitTree.Node selected = null;
+        for (SplitTree.Node node : tree.getNodes()) {
+            if (!node.isLeaf() || unsplittable[node.getId()] || node.getSize() < 2) {
+                continue;
+            }
+            if (selected == null
+                    || (criterion == Criterion.LARGEST && node.getSize() > selected.getSize())
+                    || (criterion == Criterion.WORST && node.getCost() > selected.getCost())) {
+                selected = node;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * 2-means over the points of a cluster. The first center is a random point
+     * and the second the point farthest from it.
+     *
+     * @return both halves, or null if the points can not be separated.
+     */
+    private int[][] bisect(ExecutorService pool, final int[] points, Random random)
+            throws InterruptedException, ExecutionException {
+        int first = points[random.nextInt(points.length)];
+        int farthest = first;
+        double maximum = -1;
+        for (int point : points) {
+            double d = Cosine.distance(vectors.get(point), vectors.getNorm(point), vectors.get(first),
+                    vectors.getNorm(first));
+            if (d > maximum) {
+                maximum = d;
+                farthest = point;
+            }
+        }
+        if (maximum <= 0) {
+            return null;
+        }
+
+        final Vector[] centers = {vectors.get(first), vectors.get(farthest)};
+        final double[] norms = {vectors.getNorm(first), vectors.getNorm(farthest)};
+        final boolean[] right = new boolean[points.length];
+        for (int iteration = 0; iteration < maxIterations; iteration++) {
+            final AtomicInteger changed = new AtomicInteger();
+            new Tasks() {
+                @Override
+                void run(int from, int to) {
+                    int count = 0;
+                    for (int i = from; i < to; i++) {
+                        Vector point = vectors.get(points[i]);
+                        double norm = vectors.getNorm(points[i]);
+                        boolean closer = Cosine.distance(point, norm, centers[1], norms[1])
+                                < Cosine.distance(point, norm, centers[0], norms[0]);
+                        if (closer != right[i]) {
+                            right[i] = closer;
+                            count++;
+                        }
+                    }
+                    changed.addAndGet(count);
+                }
+            }.execute(pool, numThreads, points.length);
+
+            int[][] halves = halves(points, right);
+            if (halves[0].length == 0 || halves[1].length == 0) {
+                return null;
+            }
+            if (iteration > 0 && (changed.get() == 0
+                    || changed.get() < minReassignedFraction * points.length)) {
+                return halves;
+            }
+            for (int c = 0; c < 2; c++) {
+                centers[c] = centroid(halves[c]);
+                norms[c] = Cosine.norm(centers[c]);
+            }
+        }
+        return halves(points, right);
+    }
+
+    private static int[][] halves(int[] points, boolean[] right) {
+        int rightSize = 0;
+        for (boolean r : right) {
+            if (r) {
+                rightSize++;
+            }
+        }
+        int[][] halves = {new int[points.length - rightSize], new int[rightSize]};
+        int l = 0, r = 0;
+        for (int i = 0; i < points.length; i++) {
+            if (right[i]) {
+                halves[1][r++] = points[i];
+            } else {
+                halves[0][l++] = points[i];
+            }
+        }
+        return halves;
+    }
+
+    private Vector centroid(int[] members) {
+        Vector sum = new RandomAccessSparseVector(vectors.getCardinality());
+        for (int member : members) {
+            for (Vector.Element element : vectors.get(member).nonZeroes()) {
+                sum.incrementQuick(element.index(), element.get());
+            }
+        }
+        return members.length == 0 ? sum : sum.divide(members.length);
+    }
+
+    private double cost(int[] members, Vector center) {
+        double norm = Cosine.norm(center);
+        double cost = 0;
+        for (int member : members) {
+            cost += Cosine.distance(vectors.get(member), vectors.getNorm(member), center, norm);
+        }
+        return cost;
+    }
+
+    /**
+     * Cluster of every point when there are <code>k</code> clusters, cluster
+     * ids are the ids of the nodes of the tree.
+     *
+     * @param k
+     * @return
+     */
+    public int[] getAssignments(int k) {
+        int[] assignments = new int[leaves.length];
+        for (int i = 0; i < leaves.length; i++) {
+            assignments[i] = tree.clusterAt(leaves[i], k);
+        }
+        return assignments;
+    }
+
+    /**
+     * Write the clustering with <code>k</code> clusters as
+     * {@link KMeans#write} does (<code>clusters-N-final</code>,
+     * <code>clusteredPoints</code> and <code>assignments</code>), along with the split tree in
+     * <code>splitTree</code> and the leaf of every document in
+     * <code>leaves/part-m-00000</code> as
+     * <code>&lt;LongWritable, IntWritable&gt;</code>.
+     *
+     * @param conf
+     * @param outputDir
+     * @param k at most {@link SplitTree#getMaxK()}.
+     * @throws IOException
+     */
+    public void write(Configuration conf, Path outputDir, int k) throws IOException {
+        k = Math.min(k, tree.getMaxK());
+        List<Kluster> clusters = new ArrayList<>(k);
+        for (SplitTree.Node node : tree.level(k)) {
+            clusters.add(new Kluster(node.getCenter(), node.getId(), new CosineDistanceMeasure()));
+        }
+        ClusterFiles.writeClusters(conf, new Path(outputDir, "clusters-" + (k - 1) + "-final"), clusters);
+
+        int[] assignments = getAssignments(k);
+        double[] distances = new double[vectors.size()];
+        try (SequenceFile.Writer writer = ClusterFiles.createClusteredPointsWriter(conf, outputDir)) {
+            for (int i = 0; i < vectors.size(); i++) {
+                Vector center = tree.getNode(assignments[i]).getCenter();
+                distances[i] = Cosine.distance(vectors.get(i), vectors.getNorm(i), center, Cosine.norm(center));
+                ClusterFiles.appendClusteredPoint(writer, assignments[i], vectors.get(i), distances[i]);
+            }
+        }
+        ClusterFiles.writeAssignments(conf, outputDir, vectors, assignments, distances);
+
+        tree.write(conf, new Path(outputDir, SPLIT_TREE));
+        FileSystem fs = FileSystem.get(conf);
+        try (SequenceFile.Writer writer = new SequenceFile.Writer(fs, conf, new Path(new Path(outputDir, LEAVES),
+                "part-m-00000"), LongWritable.class, IntWritable.class)) {
+            LongWritable key = new LongWritable();
+            IntWritable value = new IntWritable();
+            for (int i = 0; i < vectors.size(); i++) {
+                key.set(vectors.getDocumentId(i));
+                value.set(leaves[i]);
+                writer.append(key, value);
+            }
+        }
+    }
+
+    public SplitTree getTree() {
+        return tree;
+    }
+
+    /**
+     * Leaf of the tree that contains every point.
+     *
+     * @return
+     */
+    public int[] getLeaves() {
+        return leaves;
+    }
+
+    public Criterion getCriterion() {
+        return criterion;
+    }
+
+    public void setCriterion(Criterion criterion) {
+        this.criterion = criterion;
+    }
+
+    public int getMaxIterations() {
+        return maxIterations;
+    }
+
+    /**
+     * Maximum number of iterations of each 2-means.
+     *
+     * @param maxIterations
+     */
+    public void setMaxIterations(int maxIterations) {
+        this.maxIterations = maxIterations;
+    }
+
+    public double getMinReassignedFraction() {
+        return minReassignedFraction;
+    }
+
+    /**
+     * Stop a 2-means when the fraction of its points that change of half in
+     * an iteration is below this value. By default 0, stopping when no point
+     * changes.
+     *
+     * @param minReassignedFraction
+     */
+    public void setMinReassignedFraction(double minReassignedFraction) {
+        this.minReassignedFraction = minReassignedFraction;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    public void setNumThreads(int numThreads) {
+        this.numThreads = numThreads;
+    }
+}
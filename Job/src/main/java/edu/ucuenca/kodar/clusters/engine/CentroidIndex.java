@@ -0,0 +1,294 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.mahout.math.Vector;
+
+/**
+ * Inverted index <code>term -&gt; (centroid, weight)</code> to find the
+ * closest centroid of a document by cosine distance accumulating only over
+ * the non zero terms of the document.
+ *
+ * Each centroid is pruned to the terms holding <code>retainedMass</code> of
+ * its squared norm; the norm of the pruned terms bounds how much they can add
+ * to the similarity. Centroids whose bound could beat the best candidate are
+ * compared exactly, so the result is the same of a full scan.
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class CentroidIndex {
+
+    private static final double EPSILON = 1.0E-9;
+
+    private final Vector[] centers;
+    private final double[] norms;
+    /**
+     * Norm of the pruned terms divided by the norm of the centroid.
+     */
+    private final double[] residuals;
+    /**
+     * Centroids sorted by residual, greatest first.
+     */
+    private final int[] byResidual;
+    private final int[] start;
+    private final int[] postingCenters;
+    private final double[] postingWeights;
+
+    private final AtomicLong searches = new AtomicLong();
+    private final AtomicLong exactComparisons = new AtomicLong();
+
+    /**
+     * @param centers centroids with fast random access.
+     * @param norms norms of the centroids.
+     * @param retainedMass share of the squared norm of each centroid kept in
+     * the index, in <code>(0, 1]</code>.
+     */
+    public CentroidIndex(Vector[] centers, double[] norms, double retainedMass) {
+        this.centers = centers;
+        this.norms = norms;
+        this.residuals = new double[centers.length];
+
+        int cardinality = centers.length == 0 ? 0 : centers[0].size();
+        List<int[]> kept = new ArrayList<>(centers.length);
+        int[] counts = new int[cardinality + 1];
+        for (int c = 0; c < centers.length; c++) {
+            int[] terms = prune(c, retainedMass);
+            kept.add(terms);
+            for (int term : terms) {
+                counts[term + 1]++;
+            }
+        }
+
+        start = new int[cardinality + 1];
+        for (int t = 0; t < cardinality; t++) {
+            start[t + 1] = start[t] + counts[t + 1];
+        }
+        postingCenters = new int[start[cardinality]];
+        postingWeights = new double[start[cardinality]];
+        int[] next = Arrays.copyOf(start, cardinality);
+        for (int c = 0; c < centers.length; c++) {
+            for (int term : kept.get(c)) {
+                postingCenters[next[term]] = c;
+                postingWeights[next[term]++] = centers[c].getQuick(term) / norms[c];
+            }
+        }
+
+        List<Integer> order = new ArrayList<>(centers.length);
+        for (int c = 0; c < centers.length; c++) {
+            order.add(c);
+        }
+        Collections.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Double.compare(residuals[b], residuals[a]);
+            }
+        });
+        byResidual = new int[centers.length];
+        for (int i = 0; i < byResidual.length; i++) {
+            byResidual[i] = order.get(i);
+        }
+    }
+
+    /**
+     * Terms of a centroid with the greatest weights until
+     * <code>retainedMass</code> of the squared norm is reached.
+     */
+    private int[] prune(int c, double retainedMass) {
+        if (norms[c] == 0) {
+            return new int[0];
+        }
+        List<Vector.Element> elements = new ArrayList<>();
+        for (Vector.Element element : centers[c].nonZeroes()) {
+            elements.add(new Term(element.index(), element.get()));
+        }
+        Collections.sort(elements, new Comparator<Vector.Element>() {
+            @Override
+            public int compare(Vector.Element a, Vector.Element b) {
+                return Double.compare(Math.abs(b.get()), Math.abs(a.get()));
+            }
+        });
+
+        double total = norms[c] * norms[c];
+        double mass = 0;
+        int size = 0;
+        while (size < elements.size() && mass < retainedMass * total) {
+            double value = elements.get(size++).get();
+            mass += value * value;
+        }
+        residuals[c] = Math.sqrt(Math.max(0, total - mass)) / norms[c];
+
+        int[] terms = new int[size];
+        for (int i = 0; i < size; i++) {
+            terms[i] = elements.get(i).index();
+        }
+        return terms;
+    }
+
+    /**
+     * A searcher accumulates similarities in its own buffers, use one per
+     * thread.
+     *
+     * @return
+     */
+    public Searcher searcher() {
+        return new Searcher();
+    }
+
+    /**
+     * Number of centroids compared exactly per search, over the number of
+     * centroids, or the fraction of work of a full scan.
+     *
+     * @return
+     */
+    public double getExactFraction() {
+        long total = searches.get() * centers.length;
+        return total == 0 ? 0 : (double) exactComparisons.get() / total;
+    }
+
+    /**
+     * Finds the closest centroid of a document.
+     */
+    public class Searcher {
+
+        private final double[] accumulator = new double[centers.length];
+        private final int[] stamps = new int[centers.length];
+        private final int[] touched = new int[centers.length];
+        private int stamp = 0;
+        private int comparisons;
+
+        private int closest;
+        private double distance;
+
+        /**
+         * Search the closest centroid, read it with {@link #getClosest()} and
+         * {@link #getDistance()}.
+         *
+         * @param point
+         * @param pointNorm
+         */
+        public void search(Vector point, double pointNorm) {
+            closest = 0;
+            distance = Double.MAX_VALUE;
+            comparisons = 0;
+            if (pointNorm == 0) {
+                for (int c = 0; c < centers.length; c++) {
+                    compare(point, pointNorm, c);
+                }
+            } else {
+                searchIndex(point, pointNorm);
+            }
+            searches.incrementAndGet();
+            exactComparisons.addAndGet(comparisons);
+        }
+
+        private void searchIndex(Vector point, double pointNorm) {
+            stamp++;
+            int size = 0;
+            for (Vector.Element element : point.nonZeroes()) {
+                int term = element.index();
+                for (int p = start[term]; p < start[term + 1]; p++) {
+                    int c = postingCenters[p];
+                    if (stamps[c] != stamp) {
+                        stamps[c] = stamp;
+                        accumulator[c] = 0;
+                        touched[size++] = c;
+                    }
+                    accumulator[c] += element.get() * postingWeights[p];
+                }
+            }
+
+            // Exact distance to the best candidate of the index.
+            int candidate = size == 0 ? 0 : touched[0];
+            for (int i = 1; i < size; i++) {
+                if (accumulator[touched[i]] > accumulator[candidate]) {
+                    candidate = touched[i];
+                }
+            }
+            compare(point, pointNorm, candidate);
+
+            // Borderline centroids, their bound could beat the best so far.
+            for (int i = 0; i < size; i++) {
+                int c = touched[i];
+                if (c != candidate && accumulator[c] / pointNorm + residuals[c] >= 1.0 - distance - EPSILON) {
+                    compare(point, pointNorm, c);
+                }
+            }
+            for (int c : byResidual) {
+                if (residuals[c] < 1.0 - distance - EPSILON) {
+                    break;
+                }
+                if (c != candidate && stamps[c] != stamp) {
+                    compare(point, pointNorm, c);
+                }
+            }
+        }
+
+        private void compare(Vector point, double pointNorm, int c) {
+            comparisons++;
+            double d = Cosine.distance(point, pointNorm, centers[c], norms[c]);
+            if (d < distance || (d == distance && c < closest)) {
+                distance = d;
+                closest = c;
+            }
+        }
+
+        public int getClosest() {
+            return closest;
+        }
+
+        public double getDistance() {
+            return distance;
+        }
+    }
+
+    /**
+     * Copy of an element, the elements of a sparse vector are reused by its
+     * iterator.
+     */
+    private static class Term implements Vector.Element {
+
+        private final int index;
+        private final double value;
+
+        Term(int index, double value) {
+            this.index = index;
+            this.value = value;
+        }
+
+        @Override
+        public double get() {
+            return value;
+        }
+
+        @Override
+        public int index() {
+            return index;
+        }
+
+        @Override
+        public void set(double value) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
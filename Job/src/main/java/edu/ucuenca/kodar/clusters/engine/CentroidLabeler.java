@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.engine;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.Text;
+import org.apache.mahout.clustering.iterator.ClusterWritable;
+import org.apache.mahout.common.Pair;
+import org.apache.mahout.common.iterator.sequencefile.PathFilters;
+import org.apache.mahout.common.iterator.sequencefile.PathType;
+import org.apache.mahout.common.iterator.sequencefile.SequenceFileDirIterable;
+import org.apache.mahout.common.iterator.sequencefile.SequenceFileDirValueIterable;
+import org.apache.mahout.math.Vector;
+import org.apache.mahout.math.map.OpenIntDoubleHashMap;
+
+/**
+ * Labels every cluster of a clustering in one pass over its centroids, with
+ * no topic model. The terms of a centroid are scored by their weight, or by
+ * class-based TF-IDF: the weight of the term in the centroid relative to the
+ * weight of the centroid, times the log of the average weight of the
+ * centroids over the weight of the term in all of them. The second one
+ * prefers the terms that distinguish a cluster from the others.
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class CentroidLabeler {
+
+    public enum Scoring {
+        CENTROID, CLASS_TFIDF
+    }
+
+    private static final Comparator<Pair<Integer, Double>> BY_SCORE = new Comparator<Pair<Integer, Double>>() {
+        @Override
+        public int compare(Pair<Integer, Double> a, Pair<Integer, Double> b) {
+            int c = Double.compare(a.getSecond(), b.getSecond());
+            // Ties prefer the lowest term id.
+            return c != 0 ? c : Integer.compare(b.getFirst(), a.getFirst());
+        }
+    };
+
+    private final String[] dictionary;
+    private Scoring scoring = Scoring.CLASS_TFIDF;
+
+    /**
+     * @param dictionary terms by id, as read by {@link #readDictionary}.
+     */
+    public CentroidLabeler(String[] dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Read the <code>&lt;Text, IntWritable&gt;</code> dictionary written by
+     * <code>seq2sparse</code>.
+     *
+     * @param conf
+     * @param dictionary <code>dictionary.file-0</code>, or a glob of all its
+     * chunks.
+     * @return the terms by id.
+     */
+    public static String[] readDictionary(Configuration conf, Path dictionary) {
+        List<String> terms = new ArrayList<>();
+        for (Pair<Text, IntWritable> entry : new SequenceFileDirIterable<Text, IntWritable>(dictionary,
+                PathType.GLOB, conf)) {
+            int id = entry.getSecond().get();
+            while (terms.size() <= id) {
+                terms.add(null);
+            }
+            terms.set(id, entry.getFirst().toString());
+        }
+        return terms.toArray(new String[terms.size()]);
+    }
+
+    /**
+     * Read the centroids of a <code>clusters-*</code> directory by cluster id.
+     *
+     * @param conf
+     * @param clustersDir
+     * @return
+     */
+    public static Map<Integer, Vector> readCentroids(Configuration conf, Path clustersDir) {
+        Map<Integer, Vector> centroids = new TreeMap<>();
+        for (ClusterWritable cw : new SequenceFileDirValueIterable<ClusterWritable>(clustersDir, PathType.LIST,
+                PathFilters.partFilter(), conf)) {
+            centroids.put(cw.getValue().getId(), cw.getValue().getCenter());
+        }
+        return centroids;
+    }
+
+    /**
+     * Label the clusters written in the <code>clusters-*-final</code>
+     * directory of a clustering.
+     *
+     * @param conf
+     * @param outputDir output directory of the clustering.
+     * @param n maximum number of terms of a label.
+     * @return the terms of every cluster by cluster id.
+     * @throws IOException if the clustering did not write its final clusters.
+     */
+    public Map<Integer, List<String>> label(Configuration conf, Path outputDir, int n) throws IOException {
+        Path clusters = ClusterFiles.findFinalClusters(conf, outputDir);
+        if (clusters == null) {
+            throw new IOException("No final clusters in " + outputDir);
+        }
+        return label(readCentroids(conf, clusters), n);
+    }
+
+    /**
+     * Return the <code>n</code> terms with the highest score of every
+     * centroid.
+     *
+     * @param centroids by cluster id.
+     * @param n
+     * @return the terms of every cluster by cluster id, from the highest
+     * score.
+     */
+    public Map<Integer, List<String>> label(Map<Integer, Vector> centroids, int n) {
+        OpenIntDoubleHashMap termWeights = new OpenIntDoubleHashMap();
+        double averageWeight = 0;
+        if (scoring == Scoring.CLASS_TFIDF) {
+            for (Vector centroid : centroids.values()) {
+                for (Vector.Element e : centroid.nonZeroes()) {
+                    if (e.get() > 0) {
+                        termWeights.adjustOrPutValue(e.index(), e.get(), e.get());
+                        averageWeight += e.get();
+                    }
+                }
+            }
+            averageWeight /= Math.max(1, centroids.size());
+        }
+
+        Map<Integer, List<String>> labels = new TreeMap<>();
+        for (Map.Entry<Integer, Vector> centroid : centroids.entrySet()) {
+            double weight = scoring == Scoring.CLASS_TFIDF ? centroid.getValue().zSum() : 1;
+            // The lowest score of the best terms on top.
+            PriorityQueue<Pair<Integer, Double>> best = new PriorityQueue<>(Math.max(1, n), BY_SCORE);
+            for (Vector.Element e : centroid.getValue().nonZeroes()) {
+                if (e.get() <= 0 || e.index() >= dictionary.length || dictionary[e.index()] == null) {
+                    continue;
+                }
+                double score = e.get() / weight;
+                if (scoring == Scoring.CLASS_TFIDF) {
+                    score *= Math.log(1 + averageWeight / termWeights.get(e.index()));
+                }
+                Pair<Integer, Double> term = new Pair<>(e.index(), score);
+                if (best.size() < n) {
+                    best.add(term);
+                } else if (n > 0 && BY_SCORE.compare(term, best.peek()) > 0) {
+                    best.poll();
+                    best.add(term);
+                }
+            }
+            List<Pair<Integer, Double>> sorted = new ArrayList<>(best);
+            Collections.sort(sorted, Collections.reverseOrder(BY_SCORE));
+            List<String> terms = new ArrayList<>(sorted.size());
+            for (Pair<Integer, Double> term : sorted) {
+                terms.add(dictionary[term.getFirst()]);
+            }
+            labels.put(centroid.getKey(), terms);
+        }
+        return labels;
+    }
+
+    public Scoring getScoring() {
+        return scoring;
+    }
+
+    /**
+     * Score the terms by their weight in the centroid or by class-based
+     * TF-IDF. By default class-based TF-IDF.
+     *
+     * @param scoring
+     */
+    public void setScoring(Scoring scoring) {
+        this.scoring = scoring;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.engine;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import org.apache.mahout.math.RandomAccessSparseVector;
+import org.apache.mahout.math.Vector;
+
+/**
+ * Keeps centroids sparse: only the <code>maxTerms</code> terms with the
+ * greatest weights, or the terms holding <code>massShare</code> of the sum of
+ * the weights, are kept; whichever keeps less terms. The error of a truncation
+ * is the norm of the dropped terms relative to the norm of the centroid.
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class CentroidTruncation {
+
+    private final int maxTerms;
+    private final double massShare;
+
+    /**
+     * @param maxTerms maximum number of terms of a centroid, 0 for no limit.
+     * @param massShare share of the sum of the weights to keep, in
+     * <code>(0, 1]</code>.
+     */
+    public CentroidTruncation(int maxTerms, double massShare) {
+        this.maxTerms = maxTerms;
+        this.massShare = massShare;
+    }
+
+    /**
+     * Return true if some centroid could be truncated with these settings.
+     *
+     * @return
+     */
+    public boolean isEnabled() {
+        return maxTerms > 0 || massShare < 1.0;
+    }
+
+    /**
+     * Truncated copy of a centroid.
+     *
+     * @param center
+     * @return
+     */
+    public Vector truncate(Vector center) {
+        int size = center.getNumNonZeroElements();
+        final int[] indexes = new int[size];
+        final double[] values = new double[size];
+        double total = 0;
+        int n = 0;
+        for (Vector.Element element : center.nonZeroes()) {
+            indexes[n] = element.index();
+            values[n++] = element.get();
+            total += Math.abs(element.get());
+        }
+        Integer[] order = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Double.compare(Math.abs(values[b]), Math.abs(values[a]));
+            }
+        });
+
+        int limit = maxTerms > 0 ? Math.min(maxTerms, n) : n;
+        Vector truncated = new RandomAccessSparseVector(center.size(), limit);
+        double mass = 0;
+        for (int i = 0; i < limit && mass < massShare * total; i++) {
+            truncated.setQuick(indexes[order[i]], values[order[i]]);
+            mass += Math.abs(values[order[i]]);
+        }
+        return truncated;
+    }
+
+    /**
+     * Norm of the terms dropped from <code>original</code> relative to its
+     * norm.
+     *
+     * @param original
+     * @param truncated a truncation of <code>original</code>.
+     * @return a value in <code>[0, 1]</code>.
+     */
+    public static double error(Vector original, Vector truncated) {
+        double norm = original.getLengthSquared();
+        if (norm == 0) {
+            return 0;
+        }
+        return Math.sqrt(Math.max(0, norm - truncated.getLengthSquared()) / norm);
+    }
+
+    /**
+     * Fold these settings into the fingerprint of a checkpoint, the fingerprint
+     * is unchanged if the truncation is disabled.
+     *
+     * @param fingerprint
+     * @return
+     */
+    public long fingerprint(long fingerprint) {
+        if (!isEnabled()) {
+            return fingerprint;
+        }
+        return (fingerprint * 31 + maxTerms) * 31 + Double.doubleToLongBits(massShare);
+    }
+
+    public int getMaxTerms() {
+        return maxTerms;
+    }
+
+    public double getMassShare() {
+        return massShare;
+    }
+}
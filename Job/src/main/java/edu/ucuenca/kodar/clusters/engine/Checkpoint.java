@@ -0,0 +1,150 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.engine;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.List;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+import org.apache.mahout.math.Vector;
+import org.apache.mahout.math.VectorWritable;
+
+/**
+ * State of {@link KMeans} or {@link FuzzyKMeans} after an iteration: the
+ * centroids and the (most likely) cluster of every point. The fingerprint
+ * identifies the input vectors and parameters of the run that wrote it.
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class Checkpoint implements Writable {
+
+    private long fingerprint;
+    private int iteration;
+    private boolean converged;
+    private Vector[] centers;
+    private int[] assignments;
+
+    public Checkpoint() {
+    }
+
+    public Checkpoint(long fingerprint, int iteration, boolean converged, Vector[] centers, int[] assignments) {
+        this.fingerprint = fingerprint;
+        this.iteration = iteration;
+        this.converged = converged;
+        this.centers = centers;
+        this.assignments = assignments;
+    }
+
+    /**
+     * Combine the fingerprint of the vectors with the parameters of a run.
+     *
+     * @param vectors
+     * @param parameters
+     * @return
+     */
+    public static long fingerprint(VectorStore vectors, Object... parameters) {
+        long hash = vectors.fingerprint();
+        for (Object parameter : parameters) {
+            for (char c : String.valueOf(parameter).toCharArray()) {
+                hash = (hash ^ c) * 0x100000001b3L;
+            }
+            hash = (hash ^ ';') * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    /**
+     * Hash of the values of some vectors, i.e. the seeds of a run.
+     *
+     * @param vectors
+     * @return
+     */
+    public static long hash(List<Vector> vectors) {
+        long hash = 0xcbf29ce484222325L;
+        for (Vector vector : vectors) {
+            for (Vector.Element element : vector.nonZeroes()) {
+                hash = (hash ^ element.index()) * 0x100000001b3L;
+                hash = (hash ^ Double.doubleToLongBits(element.get())) * 0x100000001b3L;
+            }
+            hash = (hash ^ vector.size()) * 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    public long getFingerprint() {
+        return fingerprint;
+    }
+
+    /**
+     * Number of iterations done.
+     *
+     * @return
+     */
+    public int getIteration() {
+        return iteration;
+    }
+
+    /**
+     * Return true if the run finished its iterations.
+     *
+     * @return
+     */
+    public boolean isConverged() {
+        return converged;
+    }
+
+    public Vector[] getCenters() {
+        return centers;
+    }
+
+    public int[] getAssignments() {
+        return assignments;
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        out.writeLong(fingerprint);
+        WritableUtils.writeVInt(out, iteration);
+        out.writeBoolean(converged);
+        WritableUtils.writeVInt(out, centers.length);
+        for (Vector center : centers) {
+            VectorWritable.writeVector(out, center);
+        }
+        WritableUtils.writeVInt(out, assignments.length);
+        for (int assignment : assignments) {
+            WritableUtils.writeVInt(out, assignment);
+        }
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        fingerprint = in.readLong();
+        iteration = WritableUtils.readVInt(in);
+        converged = in.readBoolean();
+        centers = new Vector[WritableUtils.readVInt(in)];
+        for (int c = 0; c < centers.length; c++) {
+            centers[c] = VectorWritable.readVector(in);
+        }
+        assignments = new int[WritableUtils.readVInt(in)];
+        for (int i = 0; i < assignments.length; i++) {
+            assignments[i] = WritableUtils.readVInt(in);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.engine;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.DataInputBuffer;
+import org.apache.hadoop.io.DataOutputBuffer;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+/**
+ * Directory of checkpoints of a run. A checkpoint is written in a temporary
+ * file and renamed to <code>checkpoint-N</code>, N being the iteration, so a
+ * run killed while writing never leaves a partial checkpoint under that name.
+ * Each file carries a checksum; the previous checkpoint is kept in case the
+ * last one is damaged.
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class CheckpointStore {
+
+    private static final String PREFIX = "checkpoint-";
+    private static final int KEPT = 2;
+
+    private final Logger log = Logger.getLogger(CheckpointStore.class.getName());
+    private final Configuration conf;
+    private final Path dir;
+
+    public CheckpointStore(Configuration conf, Path dir) {
+        this.conf = conf;
+        this.dir = dir;
+    }
+
+    /**
+     * Write a checkpoint and remove the older ones but the previous.
+     *
+     * @param checkpoint
+     * @throws IOException
+     */
+    public void save(Checkpoint checkpoint) throws IOException {
+        DataOutputBuffer buffer = new DataOutputBuffer();
+        checkpoint.write(buffer);
+        CRC32 crc = new CRC32();
+        crc.update(buffer.getData(), 0, buffer.getLength());
+
+        FileSystem fs = dir.getFileSystem(conf);
+        Path temp = new Path(dir, "_" + PREFIX + checkpoint.getIteration());
+        try (FSDataOutputStream out = fs.create(temp, true)) {
+            out.writeLong(crc.getValue());
+            out.writeInt(buffer.getLength());
+            out.write(buffer.getData(), 0, buffer.getLength());
+        }
+        Path target = new Path(dir, PREFIX + checkpoint.getIteration());
+        fs.delete(target, false);
+        if (!fs.rename(temp, target)) {
+            throw new IOException("Unable to rename " + temp + " to " + target);
+        }
+
+        List<Integer> iterations = iterations(fs);
+        for (int i = KEPT; i < iterations.size(); i++) {
+            fs.delete(new Path(dir, PREFIX + iterations.get(i)), false);
+        }
+    }
+
+    /**
+     * Latest checkpoint with the given fingerprint, damaged checkpoints or
+     * checkpoints of other runs are skipped.
+     *
+     * @param fingerprint
+     * @return null if there is no valid checkpoint.
+     * @throws IOException
+     */
+    public Checkpoint latest(long fingerprint) throws IOException {
+        FileSystem fs = dir.getFileSystem(conf);
+        if (!fs.exists(dir)) {
+            return null;
+        }
+        for (int iteration : iterations(fs)) {
+            Path file = new Path(dir, PREFIX + iteration);
+            try {
+                Checkpoint checkpoint = read(fs, file);
+                if (checkpoint.getFingerprint() == fingerprint) {
+                    return checkpoint;
+                }
+                log.log(Level.INFO, "Ignoring checkpoint of another run " + file);
+            } catch (IOException e) {
+                log.log(Level.WARN, "Ignoring damaged checkpoint " + file, e);
+            }
+        }
+        return null;
+    }
+
+    private Checkpoint read(FileSystem fs, Path file) throws IOException {
+        byte[] data;
+        long checksum;
+        long length = fs.getFileStatus(file).getLen();
+        try (FSDataInputStream in = fs.open(file)) {
+            checksum = in.readLong();
+            int size = in.readInt();
+            if (size < 0 || size > length) {
+                throw new IOException("Invalid length " + size);
+            }
+            data = new byte[size];
+            in.readFully(data);
+        }
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        if (crc.getValue() != checksum) {
+            throw new IOException("Checksum mismatch");
+        }
+        DataInputBuffer buffer = new DataInputBuffer();
+        buffer.reset(data, data.length);
+        Checkpoint checkpoint = new Checkpoint();
+        checkpoint.readFields(buffer);
+        return checkpoint;
+    }
+
+    /**
+     * Iterations with a checkpoint, latest first.
+     */
+    private List<Integer> iterations(FileSystem fs) throws IOException {
+        List<Integer> iterations = new ArrayList<>();
+        for (FileStatus status : fs.listStatus(dir)) {
+            String name = status.getPath().getName();
+            if (name.startsWith(PREFIX)) {
+                try {
+                    iterations.add(Integer.parseInt(name.substring(PREFIX.length())));
+                } catch (NumberFormatException e) {
+                    // Not a checkpoint.
+                }
+            }
+        }
+        Collections.sort(iterations, Collections.reverseOrder());
+        return iterations;
+    }
+
+    /**
+     * Remove every checkpoint, once the output of the run is written.
+     *
+     * @throws IOException
+     */
+    public void clear() throws IOException {
+        dir.getFileSystem(conf).delete(dir, true);
+    }
+
+    public Path getDir() {
+        return dir;
+    }
+}
@@ -0,0 +1,288 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.engine;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileStatus;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.mahout.clustering.Cluster;
+import org.apache.mahout.clustering.classify.WeightedPropertyVectorWritable;
+import org.apache.mahout.clustering.iterator.ClusterWritable;
+import org.apache.mahout.common.iterator.sequencefile.PathFilters;
+import org.apache.mahout.common.iterator.sequencefile.PathType;
+import org.apache.mahout.common.iterator.sequencefile.SequenceFileDirValueIterable;
+import org.apache.mahout.math.Sorting;
+import org.apache.mahout.math.Vector;
+import org.apache.mahout.math.function.IntComparator;
+
+/**
+ * Reads and writes clusters with the same layout used by the Mahout drivers,
+ * so the results of the in-memory engines can be consumed by the rest of the
+ * work-flow (evaluation, joins, fuzzy k-means seeds).
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public final class ClusterFiles {
+
+    public static final String MEMBERSHIPS = "memberships";
+    public static final String CLUSTERED_POINTS = "clusteredPoints";
+    public static final String ASSIGNMENTS = "assignments";
+
+    private ClusterFiles() {
+    }
+
+    /**
+     * Read the centers of a <code>clusters-*</code> directory sorted by cluster
+     * id.
+     *
+     * @param conf
+     * @param clustersDir
+     * @return
+     */
+    public static List<Vector> readCenters(Configuration conf, Path clustersDir) {
+        List<Cluster> clusters = new ArrayList<>();
+        for (ClusterWritable cw : new SequenceFileDirValueIterable<ClusterWritable>(clustersDir, PathType.LIST,
+                PathFilters.partFilter(), conf)) {
+            clusters.add(cw.getValue());
+        }
+        Collections.sort(clusters, new Comparator<Cluster>() {
+            @Override
+            public int compare(Cluster a, Cluster b) {
+                return Integer.compare(a.getId(), b.getId());
+            }
+        });
+
+        List<Vector> centers = new ArrayList<>(clusters.size());
+        for (Cluster cluster : clusters) {
+            centers.add(cluster.getCenter());
+        }
+        return centers;
+    }
+
+    /**
+     * Find the <code>clusters-*-final</code> directory written by a clustering.
+     *
+     * @param conf
+     * @param outputDir
+     * @return null if the clustering did not finish.
+     * @throws IOException
+     */
+    public static Path findFinalClusters(Configuration conf, Path outputDir) throws IOException {
+        FileSystem fs = outputDir.getFileSystem(conf);
+        if (!fs.exists(outputDir)) {
+            return null;
+        }
+        for (FileStatus status : fs.listStatus(outputDir)) {
+            if (status.isDirectory() && status.getPath().getName().endsWith("-final")) {
+                return status.getPath();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Write clusters in <code>clustersDir/part-r-00000</code> as
+     * <code>&lt;IntWritable, ClusterWritable&gt;</code>.
+     *
+     * @param conf
+     * @param clustersDir i.e. <code>clusters-10-final</code>.
+     * @param clusters
+     * @throws IOException
+     */
+    public static void writeClusters(Configuration conf, Path clustersDir, List<? extends Cluster> clusters) throws IOException {
+        FileSystem fs = FileSystem.get(conf);
+        try (SequenceFile.Writer writer = new SequenceFile.Writer(fs, conf, new Path(clustersDir, "part-r-00000"),
+                IntWritable.class, ClusterWritable.class)) {
+            IntWritable key = new IntWritable();
+            ClusterWritable value = new ClusterWritable();
+            for (Cluster cluster : clusters) {
+                key.set(cluster.getId());
+                value.setValue(cluster);
+                writer.append(key, value);
+            }
+        }
+    }
+
+    /**
+     * Write memberships in <code>outputDir/memberships/part-m-00000</code> as
+     * <code>&lt;LongWritable, MembershipWritable&gt;</code>, keyed by the id of
+     * the document.
+     *
+     * @param conf
+     * @param outputDir
+     * @param vectors
+     * @param memberships one entry per vector in <code>vectors</code>.
+     * @throws IOException
+     */
+    public static void writeMemberships(Configuration conf, Path outputDir, VectorStore vectors,
+            MembershipWritable[] memberships) throws IOException {
+        FileSystem fs = FileSystem.get(conf);
+        try (SequenceFile.Writer writer = new SequenceFile.Writer(fs, conf, new Path(new Path(outputDir, MEMBERSHIPS),
+                "part-m-00000"), LongWritable.class, MembershipWritable.class)) {
+            LongWritable key = new LongWritable();
+            for (int i = 0; i < vectors.size(); i++) {
+                key.set(vectors.getDocumentId(i));
+                writer.append(key, memberships[i]);
+            }
+        }
+    }
+
+    /**
+     * Write the cluster of every document in
+     * <code>outputDir/assignments/part-00000</code> as
+     * <code>&lt;LongWritable, AssignmentWritable&gt;</code> sorted by document
+     * id. The joins read this file as it is, so the clustered points do not
+     * have to be mapped back to their documents.
+     *
+     * @param conf
+     * @param outputDir
+     * @param documentIds
+     * @param clusters cluster of each document in <code>documentIds</code>.
+     * @param distances distance of each document to its cluster.
+     * @param size number of entries used from the arrays.
+     * @throws IOException
+     */
+    public static void writeAssignments(Configuration conf, Path outputDir, final long[] documentIds, int[] clusters,
+            double[] distances, int size) throws IOException {
+        int[] order = new int[size];
+        boolean sorted = true;
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+            sorted &= i == 0 || documentIds[i - 1] <= documentIds[i];
+        }
+        if (!sorted) {
+            Sorting.mergeSort(order, 0, size, new IntComparator() {
+                @Override
+                public int compare(int a, int b) {
+                    return Long.compare(documentIds[a], documentIds[b]);
+                }
+            });
+        }
+
+        FileSystem fs = FileSystem.get(conf);
+        try (SequenceFile.Writer writer = new SequenceFile.Writer(fs, conf, new Path(new Path(outputDir, ASSIGNMENTS),
+                "part-00000"), LongWritable.class, AssignmentWritable.class)) {
+            LongWritable key = new LongWritable();
+            AssignmentWritable value = new AssignmentWritable();
+            for (int i : order) {
+                key.set(documentIds[i]);
+                value.set(clusters[i], distances[i]);
+                writer.append(key, value);
+            }
+        }
+    }
+
+    /**
+     * Open <code>outputDir/assignments.unsorted</code>, where assignments are
+     * appended in any order as <code>&lt;LongWritable,
+     * AssignmentWritable&gt;</code> and then sorted by
+     * {@link #sortAssignments}, so they are never held in memory.
+     *
+     * @param conf
+     * @param outputDir
+     * @return
+     * @throws IOException
+     */
+    public static SequenceFile.Writer createAssignmentsWriter(Configuration conf, Path outputDir) throws IOException {
+        FileSystem fs = FileSystem.get(conf);
+        return new SequenceFile.Writer(fs, conf, new Path(outputDir, ASSIGNMENTS + ".unsorted"), LongWritable.class,
+                AssignmentWritable.class);
+    }
+
+    /**
+     * Sort by document id the assignments written with
+     * {@link #createAssignmentsWriter} into
+     * <code>outputDir/assignments/part-00000</code>. The sort merges runs on
+     * disk, the unsorted file is deleted.
+     *
+     * @param conf
+     * @param outputDir
+     * @throws IOException
+     */
+    public static void sortAssignments(Configuration conf, Path outputDir) throws IOException {
+        FileSystem fs = FileSystem.get(conf);
+        Path assignments = new Path(outputDir, ASSIGNMENTS);
+        fs.delete(assignments, true);
+        SequenceFile.Sorter sorter = new SequenceFile.Sorter(fs, LongWritable.class, AssignmentWritable.class, conf);
+        sorter.sort(new Path[]{new Path(outputDir, ASSIGNMENTS + ".unsorted")}, new Path(assignments, "part-00000"),
+                true);
+    }
+
+    /**
+     * Write the assignments of the vectors of a store, see
+     * {@link #writeAssignments(Configuration, Path, long[], int[], double[], int)}.
+     *
+     * @param conf
+     * @param outputDir
+     * @param vectors
+     * @param clusters one entry per vector in <code>vectors</code>.
+     * @param distances one entry per vector in <code>vectors</code>.
+     * @throws IOException
+     */
+    public static void writeAssignments(Configuration conf, Path outputDir, VectorStore vectors, int[] clusters,
+            double[] distances) throws IOException {
+        long[] documentIds = new long[vectors.size()];
+        for (int i = 0; i < documentIds.length; i++) {
+            documentIds[i] = vectors.getDocumentId(i);
+        }
+        writeAssignments(conf, outputDir, documentIds, clusters, distances, documentIds.length);
+    }
+
+    /**
+     * Open <code>outputDir/clusteredPoints/part-m-0</code>, records are
+     * appended with {@link #appendClusteredPoint}.
+     *
+     * @param conf
+     * @param outputDir
+     * @return
+     * @throws IOException
+     */
+    public static SequenceFile.Writer createClusteredPointsWriter(Configuration conf, Path outputDir) throws IOException {
+        FileSystem fs = FileSystem.get(conf);
+        return new SequenceFile.Writer(fs, conf, new Path(new Path(outputDir, CLUSTERED_POINTS), "part-m-0"),
+                IntWritable.class, WeightedPropertyVectorWritable.class);
+    }
+
+    /**
+     * Append a point as the Mahout classification does:
+     * <code>&lt;clusterId, (1.0, point, {distance})&gt;</code>.
+     *
+     * @param writer
+     * @param clusterId
+     * @param point
+     * @param distance
+     * @throws IOException
+     */
+    public static void appendClusteredPoint(SequenceFile.Writer writer, int clusterId, Vector point, double distance) throws IOException {
+        Map<Text, Text> properties = new HashMap<>();
+        properties.put(new Text("distance"), new Text(String.valueOf(distance)));
+        writer.append(new IntWritable(clusterId), new WeightedPropertyVectorWritable(1.0, point, properties));
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.engine;
+
+import org.apache.mahout.math.Vector;
+
+/**
+ * Cosine distance with cached norms. Returns the same values as
+ * {@link org.apache.mahout.common.distance.CosineDistanceMeasure}, but only
+ * iterates the non zero elements of the document.
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public final class Cosine {
+
+    private Cosine() {
+    }
+
+    /**
+     * Dot product over the non zero elements of <code>point</code>.
+     *
+     * @param point sparse vector, usually a document.
+     * @param center vector with fast random access, usually a centroid.
+     * @return
+     */
+    public static double dot(Vector point, Vector center) {
+        double sum = 0;
+        for (Vector.Element element : point.nonZeroes()) {
+            sum += element.get() * center.getQuick(element.index());
+        }
+        return sum;
+    }
+
+    public static double norm(Vector vector) {
+        return Math.sqrt(vector.getLengthSquared());
+    }
+
+    public static double distance(Vector point, double pointNorm, Vector center, double centerNorm) {
+        return distance(dot(point, center), pointNorm, centerNorm);
+    }
+
+    /**
+     * Cosine distance given a dot product already computed.
+     *
+     * @param dot
+     * @param pointNorm
+     * @param centerNorm
+     * @return
+     */
+    public static double distance(double dot, double pointNorm, double centerNorm) {
+        double denominator = pointNorm * centerNorm;
+        if (denominator == 0) {
+            return pointNorm == centerNorm ? 0.0 : 1.0;
+        }
+        // Rounding errors could produce dot products greater than the denominator.
+        if (denominator < dot) {
+            denominator = dot;
+        }
+        return 1.0 - dot / denominator;
+    }
+}
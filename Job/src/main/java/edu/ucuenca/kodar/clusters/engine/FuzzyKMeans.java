@@ -0,0 +1,507 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.engine;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.mahout.clustering.fuzzykmeans.SoftCluster;
+import org.apache.mahout.common.distance.CosineDistanceMeasure;
+import org.apache.mahout.math.RandomAccessSparseVector;
+import org.apache.mahout.math.Vector;
+
+/**
+ * Multi-threaded fuzzy k-means over a {@link VectorStore} using cosine
+ * distance. Unlike {@link org.apache.mahout.clustering.fuzzykmeans.FuzzyKMeansDriver}
+ * only the <code>maxMemberships</code> closest clusters of each point are kept;
+ * their memberships are renormalized to sum one and only they contribute to
+ * the new centroids.
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class FuzzyKMeans {
+
+    private static final double MIN_DISTANCE = 1.0E-10;
+
+    private final Logger log = Logger.getLogger(FuzzyKMeans.class.getName());
+    private final VectorStore vectors;
+
+    private double fuzziness = 2.0;
+    private int maxMemberships = 3;
+    private double convergenceDelta = 0.5;
+    private int maxIterations = 100;
+    private int numThreads = Runtime.getRuntime().availableProcessors();
+    private double minReassignedFraction = 0;
+    private final List<IterationListener> listeners = new ArrayList<>();
+    private CheckpointStore checkpoints;
+    private CentroidTruncation truncation;
+    private double[] truncationErrors;
+    private int checkpointInterval = 10;
+
+    private Vector[] centers;
+    private double[] centerNorms;
+    private MembershipWritable[] memberships;
+    private int[] mostLikely;
+    private double[] objectives;
+    private int iterations;
+
+    public FuzzyKMeans(VectorStore vectors) {
+        this.vectors = vectors;
+    }
+
+    /**
+     * Iterate until every centroid moves less than the convergence delta, the
+     * fraction of points whose most likely cluster changes drops below the
+     * minimum or the maximum number of iterations is reached. When a
+     * checkpoint store is set, the run resumes from the latest checkpoint of
+     * the same vectors and parameters.
+     *
+     * @param seeds initial centroids, usually the result of k-means.
+     * @throws InterruptedException
+     * @throws ExecutionException
+     * @throws IOException if checkpoints can not be read or written.
+     */
+    public void run(List<Vector> seeds) throws InterruptedException, ExecutionException, IOException {
+        centers = new Vector[seeds.size()];
+        centerNorms = new double[seeds.size()];
+        for (int c = 0; c < centers.length; c++) {
+            centers[c] = new RandomAccessSparseVector(seeds.get(c));
+            centerNorms[c] = Cosine.norm(centers[c]);
+        }
+        memberships = new MembershipWritable[vectors.size()];
+        mostLikely = new int[vectors.size()];
+        Arrays.fill(mostLikely, -1);
+        objectives = new double[vectors.size()];
+
+        truncationErrors = new double[centers.length];
+
+        ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+        try {
+            boolean converged = false;
+            iterations = 0;
+            long fingerprint = 0;
+            if (checkpoints != null) {
+                fingerprint = Checkpoint.fingerprint(vectors, "fkmeans", Checkpoint.hash(seeds), fuzziness,
+                        maxMemberships, convergenceDelta, maxIterations, minReassignedFraction);
+                if (truncation != null) {
+                    fingerprint = truncation.fingerprint(fingerprint);
+                }
+                converged = resume(checkpoints.latest(fingerprint));
+            }
+            while (!converged && iterations < maxIterations) {
+                long begin = System.currentTimeMillis();
+                int reassigned = computeMemberships(pool);
+                double objective = getObjective();
+                double maxShift = updateCenters(pool);
+                iterations++;
+
+                IterationStats stats = new IterationStats("fkmeans", iterations, System.currentTimeMillis() - begin,
+                        reassigned, vectors.size(), maxShift, objective, getTruncationError(), getMaxTruncationError());
+                for (IterationListener listener : listeners) {
+                    listener.iterationFinished(stats);
+                }
+                converged = maxShift <= convergenceDelta;
+                if (!converged && stats.getReassignedFraction() < minReassignedFraction) {
+                    log.log(Level.INFO, String.format("Fuzzy k-means stopped early, %d points reassigned in iteration %d",
+                            reassigned, iterations));
+                    converged = true;
+                }
+                if (checkpoints != null && (converged || iterations % checkpointInterval == 0
+                        || iterations == maxIterations)) {
+                    checkpoints.save(new Checkpoint(fingerprint, iterations, converged, centers, mostLikely));
+                }
+            }
+            // Memberships of the final centroids.
+            computeMemberships(pool);
+        } finally {
+            pool.shutdown();
+        }
+        log.log(Level.INFO, String.format("Fuzzy k-means finished after %d iterations (k=%d, memberships=%d, threads=%d)",
+                iterations, centers.length, maxMemberships, numThreads));
+    }
+
+    /**
+     * Restore the centroids and iteration of a checkpoint.
+     *
+     * @return true if the checkpointed run had finished its iterations.
+     */
+    private boolean resume(Checkpoint checkpoint) {
+        if (checkpoint == null) {
+            return false;
+        }
+        for (int c = 0; c < centers.length; c++) {
+            centers[c] = new RandomAccessSparseVector(checkpoint.getCenters()[c]);
+            centerNorms[c] = Cosine.norm(centers[c]);
+        }
+        mostLikely = checkpoint.getAssignments();
+        iterations = checkpoint.getIteration();
+        log.log(Level.INFO, String.format("Fuzzy k-means resumed from the checkpoint of iteration %d", iterations));
+        return checkpoint.isConverged();
+    }
+
+    /**
+     * @return number of points whose most likely cluster changed.
+     */
+    private int computeMemberships(ExecutorService pool) throws InterruptedException, ExecutionException {
+        final AtomicInteger reassigned = new AtomicInteger();
+        new Tasks() {
+            @Override
+            void run(int from, int to) {
+                int changed = 0;
+                for (int i = from; i < to; i++) {
+                    memberships[i] = membership(i);
+                    if (mostLikely[i] != memberships[i].getMostLikelyCluster()) {
+                        mostLikely[i] = memberships[i].getMostLikelyCluster();
+                        changed++;
+                    }
+                }
+                reassigned.addAndGet(changed);
+            }
+        }.execute(pool, numThreads, vectors.size());
+        return reassigned.get();
+    }
+
+    /**
+     * Keep the closest clusters of a point; membership weights are computed as
+     * in {@link org.apache.mahout.clustering.fuzzykmeans.FuzzyKMeansClusterer}
+     * but only over the clusters kept. The contribution of the point to the
+     * objective, <code>sum(u^m d)</code>, is kept in <code>objectives</code>.
+     */
+    private MembershipWritable membership(int index) {
+        int limit = Math.min(maxMemberships, centers.length);
+        int[] ids = new int[limit];
+        double[] distances = new double[limit];
+        int size = 0;
+
+        Vector point = vectors.get(index);
+        double norm = vectors.getNorm(index);
+        for (int c = 0; c < centers.length; c++) {
+            double d = Cosine.distance(point, norm, centers[c], centerNorms[c]);
+            if (size < limit) {
+                insert(ids, distances, size++, c, d);
+            } else if (d < distances[limit - 1]) {
+                insert(ids, distances, limit - 1, c, d);
+            }
+        }
+
+        double exponent = 2.0 / (fuzziness - 1.0);
+        double[] weights = new double[size];
+        double objective = 0;
+        for (int i = 0; i < size; i++) {
+            double distance = Math.max(distances[i], MIN_DISTANCE);
+            double denominator = 0;
+            for (int j = 0; j < size; j++) {
+                denominator += Math.pow(distance / Math.max(distances[j], MIN_DISTANCE), exponent);
+            }
+            weights[i] = 1.0 / denominator;
+            objective += Math.pow(weights[i], fuzziness) * distances[i];
+        }
+        objectives[index] = objective;
+        return new MembershipWritable(ids, weights, size);
+    }
+
+    /**
+     * Insert in ascending order of distance, the element at position
+     * <code>last</code> is overwritten.
+     */
+    private static void insert(int[] ids, double[] distances, int last, int id, double distance) {
+        int position = last;
+        while (position > 0 && distances[position - 1] > distance) {
+            ids[position] = ids[position - 1];
+            distances[position] = distances[position - 1];
+            position--;
+        }
+        ids[position] = id;
+        distances[position] = distance;
+    }
+
+    /**
+     * Compute the new centroids in parallel, each task owns a range of
+     * clusters so no synchronization is needed.
+     *
+     * @return maximum distance moved by a centroid.
+     */
+    private double updateCenters(ExecutorService pool) throws InterruptedException, ExecutionException {
+        final int[][] members = new int[centers.length][];
+        final double[][] coefficients = new double[centers.length][];
+        int[] counts = new int[centers.length];
+        for (MembershipWritable membership : memberships) {
+            for (int j = 0; j < membership.size(); j++) {
+                counts[membership.getClusterId(j)]++;
+            }
+        }
+        for (int c = 0; c < centers.length; c++) {
+            members[c] = new int[counts[c]];
+            coefficients[c] = new double[counts[c]];
+        }
+        Arrays.fill(counts, 0);
+        for (int i = 0; i < memberships.length; i++) {
+            for (int j = 0; j < memberships[i].size(); j++) {
+                int c = memberships[i].getClusterId(j);
+                members[c][counts[c]] = i;
+                coefficients[c][counts[c]++] = Math.pow(memberships[i].getWeight(j), fuzziness);
+            }
+        }
+
+        final Vector[] updated = new Vector[centers.length];
+        final double[] shifts = new double[centers.length];
+        new Tasks() {
+            @Override
+            void run(int from, int to) {
+                for (int c = from; c < to; c++) {
+                    updated[c] = truncate(c, centroid(members[c], coefficients[c], centers[c]));
+                    shifts[c] = Cosine.distance(Cosine.dot(centers[c], updated[c]), centerNorms[c],
+                            Cosine.norm(updated[c]));
+                }
+            }
+        }.execute(pool, numThreads, centers.length);
+
+        double maxShift = 0;
+        for (int c = 0; c < centers.length; c++) {
+            maxShift = Math.max(maxShift, shifts[c]);
+            centers[c] = updated[c];
+            centerNorms[c] = Cosine.norm(updated[c]);
+        }
+        return maxShift;
+    }
+
+    /**
+     * Truncate a new centroid if a truncation is set, keeping its error.
+     */
+    private Vector truncate(int c, Vector centroid) {
+        if (truncation == null || !truncation.isEnabled()) {
+            return centroid;
+        }
+        Vector truncated = truncation.truncate(centroid);
+        truncationErrors[c] = CentroidTruncation.error(centroid, truncated);
+        return truncated;
+    }
+
+    private Vector centroid(int[] members, double[] coefficients, Vector current) {
+        if (members.length == 0) {
+            return current;
+        }
+        Vector sum = new RandomAccessSparseVector(vectors.getCardinality());
+        double total = 0;
+        for (int i = 0; i < members.length; i++) {
+            for (Vector.Element element : vectors.get(members[i]).nonZeroes()) {
+                sum.incrementQuick(element.index(), coefficients[i] * element.get());
+            }
+            total += coefficients[i];
+        }
+        return sum.divide(total);
+    }
+
+    /**
+     * Write the final clusters in <code>clusters-N-final</code>, the sparse
+     * memberships in <code>memberships</code> and the most likely cluster of
+     * every document in <code>assignments</code>.
+     *
+     * @param conf
+     * @param outputDir
+     * @throws IOException
+     */
+    public void write(Configuration conf, Path outputDir) throws IOException {
+        List<SoftCluster> clusters = new ArrayList<>(centers.length);
+        for (int c = 0; c < centers.length; c++) {
+            clusters.add(new SoftCluster(centers[c], c, new CosineDistanceMeasure()));
+        }
+        ClusterFiles.writeClusters(conf, new Path(outputDir, "clusters-" + iterations + "-final"), clusters);
+        ClusterFiles.writeMemberships(conf, outputDir, vectors, memberships);
+
+        long[] documentIds = new long[vectors.size()];
+        int[] mostLikelyClusters = new int[vectors.size()];
+        double[] distances = new double[vectors.size()];
+        int size = 0;
+        for (int i = 0; i < vectors.size(); i++) {
+            if (memberships[i].size() == 0) {
+                continue;
+            }
+            int c = memberships[i].getMostLikelyCluster();
+            documentIds[size] = vectors.getDocumentId(i);
+            mostLikelyClusters[size] = c;
+            distances[size] = Cosine.distance(vectors.get(i), vectors.getNorm(i), centers[c], centerNorms[c]);
+            size++;
+        }
+        ClusterFiles.writeAssignments(conf, outputDir, documentIds, mostLikelyClusters, distances, size);
+    }
+
+    public List<Vector> getCenters() {
+        return Arrays.asList(centers);
+    }
+
+    public MembershipWritable[] getMemberships() {
+        return memberships;
+    }
+
+    /**
+     * Objective of the last memberships, <code>sum(u^m d)</code> over the kept
+     * memberships.
+     *
+     * @return
+     */
+    public double getObjective() {
+        double objective = 0;
+        for (double value : objectives) {
+            objective += value;
+        }
+        return objective;
+    }
+
+    /**
+     * Mean relative error of the centroids truncated in the last iteration.
+     *
+     * @return
+     */
+    public double getTruncationError() {
+        double sum = 0;
+        for (double error : truncationErrors) {
+            sum += error;
+        }
+        return truncationErrors.length == 0 ? 0 : sum / truncationErrors.length;
+    }
+
+    /**
+     * Maximum relative error of the centroids truncated in the last iteration.
+     *
+     * @return
+     */
+    public double getMaxTruncationError() {
+        double max = 0;
+        for (double error : truncationErrors) {
+            max = Math.max(max, error);
+        }
+        return max;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public double getFuzziness() {
+        return fuzziness;
+    }
+
+    /**
+     * Fuzziness factor <code>m</code>, greater than one.
+     *
+     * @param fuzziness
+     */
+    public void setFuzziness(double fuzziness) {
+        this.fuzziness = fuzziness;
+    }
+
+    public int getMaxMemberships() {
+        return maxMemberships;
+    }
+
+    /**
+     * Number of clusters kept per point, at least one.
+     *
+     * @param maxMemberships
+     * @throws IllegalArgumentException if it is less than one.
+     */
+    public void setMaxMemberships(int maxMemberships) {
+        if (maxMemberships < 1) {
+            throw new IllegalArgumentException("Every point keeps at least one membership: " + maxMemberships);
+        }
+        this.maxMemberships = maxMemberships;
+    }
+
+    public double getConvergenceDelta() {
+        return convergenceDelta;
+    }
+
+    public void setConvergenceDelta(double convergenceDelta) {
+        this.convergenceDelta = convergenceDelta;
+    }
+
+    public int getMaxIterations() {
+        return maxIterations;
+    }
+
+    public void setMaxIterations(int maxIterations) {
+        this.maxIterations = maxIterations;
+    }
+
+    public double getMinReassignedFraction() {
+        return minReassignedFraction;
+    }
+
+    /**
+     * Stop when the fraction of points whose most likely cluster changes in an
+     * iteration is below this value. By default 0, stopping only on the
+     * convergence delta.
+     *
+     * @param minReassignedFraction
+     */
+    public void setMinReassignedFraction(double minReassignedFraction) {
+        this.minReassignedFraction = minReassignedFraction;
+    }
+
+    public CentroidTruncation getTruncation() {
+        return truncation;
+    }
+
+    /**
+     * Keep centroids sparse as they are updated, the error of the truncation is
+     * reported in the {@link IterationStats}.
+     *
+     * @param truncation null to keep the whole centroids.
+     */
+    public void setTruncation(CentroidTruncation truncation) {
+        this.truncation = truncation;
+    }
+
+    /**
+     * Write a checkpoint every <code>interval</code> iterations and when the
+     * run finishes, resuming from the latest one.
+     *
+     * @param checkpoints null to disable checkpoints.
+     * @param interval
+     */
+    public void setCheckpoints(CheckpointStore checkpoints, int interval) {
+        this.checkpoints = checkpoints;
+        this.checkpointInterval = interval;
+    }
+
+    public void addIterationListener(IterationListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeIterationListener(IterationListener listener) {
+        listeners.remove(listener);
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    public void setNumThreads(int numThreads) {
+        this.numThreads = numThreads;
+    }
+}
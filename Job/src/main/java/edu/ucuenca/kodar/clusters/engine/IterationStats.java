@@ -0,0 +1,115 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.engine;
+
+/**
+ * Metrics of one iteration of an in-memory clustering.
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class IterationStats {
+
+    private final String algorithm;
+    private final int iteration;
+    private final long millis;
+    private final int reassigned;
+    private final int numPoints;
+    private final double maxShift;
+    private final double objective;
+    private final double truncationError;
+    private final double maxTruncationError;
+
+    /**
+     * @param algorithm name of the algorithm, i.e. <code>kmeans</code>.
+     * @param iteration number of the iteration, starting at one.
+     * @param millis wall time of the iteration.
+     * @param reassigned points whose (most likely) cluster changed.
+     * @param numPoints
+     * @param maxShift maximum cosine distance between the old and the new
+     * centroids.
+     * @param objective value of the objective before the centroids are
+     * updated.
+     * @param truncationError mean relative error of the truncated centroids,
+     * see {@link CentroidTruncation}.
+     * @param maxTruncationError
+     */
+    public IterationStats(String algorithm, int iteration, long millis, int reassigned, int numPoints,
+            double maxShift, double objective, double truncationError, double maxTruncationError) {
+        this.algorithm = algorithm;
+        this.iteration = iteration;
+        this.millis = millis;
+        this.reassigned = reassigned;
+        this.numPoints = numPoints;
+        this.maxShift = maxShift;
+        this.objective = objective;
+        this.truncationError = truncationError;
+        this.maxTruncationError = maxTruncationError;
+    }
+
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    public int getIteration() {
+        return iteration;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    public int getReassigned() {
+        return reassigned;
+    }
+
+    public int getNumPoints() {
+        return numPoints;
+    }
+
+    /**
+     * Fraction of the points that changed of cluster.
+     *
+     * @return
+     */
+    public double getReassignedFraction() {
+        return numPoints == 0 ? 0 : (double) reassigned / numPoints;
+    }
+
+    public double getMaxShift() {
+        return maxShift;
+    }
+
+    public double getObjective() {
+        return objective;
+    }
+
+    public double getTruncationError() {
+        return truncationError;
+    }
+
+    public double getMaxTruncationError() {
+        return maxTruncationError;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s iteration=%d time=%dms reassigned=%d (%.4f) maxShift=%f objective=%f"
+                + " truncationError=%f (max %f)", algorithm, iteration, millis, reassigned, getReassignedFraction(),
+                maxShift, objective, truncationError, maxTruncationError);
+    }
+}
@@ -0,0 +1,577 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.engine;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.mahout.clustering.kmeans.Kluster;
+import org.apache.mahout.common.distance.CosineDistanceMeasure;
+import org.apache.mahout.math.RandomAccessSparseVector;
+import org.apache.mahout.math.Vector;
+
+/**
+ * Multi-threaded k-means over a {@link VectorStore} using cosine distance.
+ * Produces the same output layout as
+ * {@link org.apache.mahout.clustering.kmeans.KMeansDriver} with
+ * <code>-cl</code>.
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class KMeans {
+
+    private final Logger log = Logger.getLogger(KMeans.class.getName());
+    private final VectorStore vectors;
+
+    private double convergenceDelta = 0.5;
+    private int maxIterations = 100;
+    private int numThreads = Runtime.getRuntime().availableProcessors();
+    private double minReassignedFraction = 0;
+    private boolean indexedAssignment = true;
+    private double indexRetainedMass = 0.9;
+    private final List<IterationListener> listeners = new ArrayList<>();
+    private CheckpointStore checkpoints;
+    private CentroidTruncation truncation;
+    private double[] truncationErrors;
+    private int checkpointInterval = 10;
+
+    private Vector[] centers;
+    private double[] centerNorms;
+    private int[] assignments;
+    private double[] distances;
+    private int iterations;
+
+    public KMeans(VectorStore vectors) {
+        this.vectors = vectors;
+    }
+
+    /**
+     * Choose <code>k</code> distinct points at random, as
+     * {@link org.apache.mahout.clustering.kmeans.RandomSeedGenerator} does.
+     *
+     * @param vectors
+     * @param k
+     * @param seed seed of the random generator, to get reproducible runs.
+     * @return
+     */
+    public static List<Vector> randomSeeds(VectorStore vectors, int k, long seed) {
+        List<Integer> indexes = new ArrayList<>(vectors.size());
+        for (int i = 0; i < vectors.size(); i++) {
+            indexes.add(i);
+        }
+        Collections.shuffle(indexes, new Random(seed));
+
+        List<Vector> seeds = new ArrayList<>(k);
+        for (int i = 0; i < Math.min(k, indexes.size()); i++) {
+            seeds.add(vectors.get(indexes.get(i)));
+        }
+        return seeds;
+    }
+
+    /**
+     * Choose <code>k</code> points with the k-means++ rule: after a first
+     * point at random, every point is chosen with probability proportional to
+     * its squared cosine distance to the nearest chosen point.
+     *
+     * @param vectors
+     * @param k
+     * @param seed seed of the random generator, to get reproducible runs.
+     * @return
+     */
+    public static List<Vector> plusPlusSeeds(VectorStore vectors, int k, long seed) {
+        Random random = new Random(seed);
+        List<Vector> seeds = new ArrayList<>(k);
+        if (vectors.size() == 0) {
+            return seeds;
+        }
+        double[] nearest = new double[vectors.size()];
+        Arrays.fill(nearest, Double.MAX_VALUE);
+        int chosen = random.nextInt(vectors.size());
+        while (seeds.size() < Math.min(k, vectors.size())) {
+            Vector center = vectors.get(chosen);
+            double centerNorm = vectors.getNorm(chosen);
+            seeds.add(center);
+            double total = 0;
+            for (int i = 0; i < nearest.length; i++) {
+                double d = Cosine.distance(vectors.get(i), vectors.getNorm(i), center, centerNorm);
+                nearest[i] = Math.min(nearest[i], d * d);
+                total += nearest[i];
+            }
+            if (total <= 0) {
+                // Every point is on a chosen one, the rest are taken at random.
+                chosen = random.nextInt(vectors.size());
+                continue;
+            }
+            double target = random.nextDouble() * total;
+            chosen = nearest.length - 1;
+            for (int i = 0; i < nearest.length; i++) {
+                target -= nearest[i];
+                if (target < 0) {
+                    chosen = i;
+                    break;
+                }
+            }
+        }
+        return seeds;
+    }
+
+    /**
+     * Seeds for <code>k</code> clusters reusing a previous solution. When the
+     * previous solution has less clusters, the points farthest from their
+     * centroid become new centroids; otherwise the biggest clusters are kept.
+     *
+     * @param previous a finished run.
+     * @param k
+     * @return
+     */
+    public static List<Vector> warmSeeds(final KMeans previous, int k) {
+        final int[] sizes = previous.getClusterSizes();
+        List<Integer> order = new ArrayList<>();
+        for (int c = 0; c < previous.centers.length; c++) {
+            order.add(c);
+        }
+        Collections.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Integer.compare(sizes[b], sizes[a]);
+            }
+        });
+
+        List<Vector> seeds = new ArrayList<>(k);
+        for (int i = 0; i < Math.min(k, order.size()); i++) {
+            seeds.add(previous.centers[order.get(i)]);
+        }
+
+        List<Integer> farthest = new ArrayList<>(previous.vectors.size());
+        for (int i = 0; i < previous.vectors.size(); i++) {
+            farthest.add(i);
+        }
+        Collections.sort(farthest, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Double.compare(previous.distances[b], previous.distances[a]);
+            }
+        });
+        for (int i = 0; seeds.size() < k && i < farthest.size(); i++) {
+            seeds.add(previous.vectors.get(farthest.get(i)));
+        }
+        return seeds;
+    }
+
+    /**
+     * Iterate until every centroid moves less than the convergence delta, the
+     * fraction of reassigned points drops below the minimum or the maximum
+     * number of iterations is reached. When a checkpoint store is set, the
+     * run resumes from the latest checkpoint of the same vectors, seeds and
+     * parameters.
+     *
+     * @param seeds initial centroids.
+     * @throws InterruptedException
+     * @throws ExecutionException
+     * @throws IOException if checkpoints can not be read or written.
+     */
+    public void run(List<Vector> seeds) throws InterruptedException, ExecutionException, IOException {
+        centers = new Vector[seeds.size()];
+        centerNorms = new double[seeds.size()];
+        for (int c = 0; c < centers.length; c++) {
+            centers[c] = new RandomAccessSparseVector(seeds.get(c));
+            centerNorms[c] = Cosine.norm(centers[c]);
+        }
+        assignments = new int[vectors.size()];
+        Arrays.fill(assignments, -1);
+        distances = new double[vectors.size()];
+
+        truncationErrors = new double[centers.length];
+
+        ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+        try {
+            boolean converged = false;
+            iterations = 0;
+            long fingerprint = 0;
+            if (checkpoints != null) {
+                fingerprint = Checkpoint.fingerprint(vectors, "kmeans", Checkpoint.hash(seeds), convergenceDelta,
+                        maxIterations, minReassignedFraction);
+                if (truncation != null) {
+                    fingerprint = truncation.fingerprint(fingerprint);
+                }
+                converged = resume(checkpoints.latest(fingerprint));
+            }
+            while (!converged && iterations < maxIterations) {
+                long begin = System.currentTimeMillis();
+                int reassigned = assign(pool);
+                double objective = getCost();
+                double maxShift = updateCenters(pool);
+                iterations++;
+
+                IterationStats stats = new IterationStats("kmeans", iterations, System.currentTimeMillis() - begin,
+                        reassigned, vectors.size(), maxShift, objective, getTruncationError(), getMaxTruncationError());
+                for (IterationListener listener : listeners) {
+                    listener.iterationFinished(stats);
+                }
+                converged = maxShift <= convergenceDelta;
+                if (!converged && stats.getReassignedFraction() < minReassignedFraction) {
+                    log.log(Level.INFO, String.format("K-means stopped early, %d points reassigned in iteration %d",
+                            reassigned, iterations));
+                    converged = true;
+                }
+                if (checkpoints != null && (converged || iterations % checkpointInterval == 0
+                        || iterations == maxIterations)) {
+                    checkpoints.save(new Checkpoint(fingerprint, iterations, converged, centers, assignments));
+                }
+            }
+            // Assignment to the final centroids.
+            assign(pool);
+        } finally {
+            pool.shutdown();
+        }
+        log.log(Level.INFO, String.format("K-means finished after %d iterations (k=%d, threads=%d)",
+                iterations, centers.length, numThreads));
+    }
+
+    /**
+     * Restore the centroids and iteration of a checkpoint.
+     *
+     * @return true if the checkpointed run had finished its iterations.
+     */
+    private boolean resume(Checkpoint checkpoint) {
+        if (checkpoint == null) {
+            return false;
+        }
+        for (int c = 0; c < centers.length; c++) {
+            centers[c] = new RandomAccessSparseVector(checkpoint.getCenters()[c]);
+            centerNorms[c] = Cosine.norm(centers[c]);
+        }
+        assignments = checkpoint.getAssignments();
+        iterations = checkpoint.getIteration();
+        log.log(Level.INFO, String.format("K-means resumed from the checkpoint of iteration %d", iterations));
+        return checkpoint.isConverged();
+    }
+
+    /**
+     * @return number of points that changed of cluster.
+     */
+    private int assign(ExecutorService pool) throws InterruptedException, ExecutionException {
+        final AtomicInteger reassigned = new AtomicInteger();
+        final CentroidIndex index = indexedAssignment ? new CentroidIndex(centers, centerNorms, indexRetainedMass) : null;
+        new Tasks() {
+            @Override
+            void run(int from, int to) {
+                int changed = 0;
+                CentroidIndex.Searcher searcher = index == null ? null : index.searcher();
+                for (int i = from; i < to; i++) {
+                    Vector point = vectors.get(i);
+                    double norm = vectors.getNorm(i);
+                    int closest = 0;
+                    double minimum = Double.MAX_VALUE;
+                    if (searcher != null) {
+                        searcher.search(point, norm);
+                        closest = searcher.getClosest();
+                        minimum = searcher.getDistance();
+                    } else {
+                        for (int c = 0; c < centers.length; c++) {
+                            double d = Cosine.distance(point, norm, centers[c], centerNorms[c]);
+                            if (d < minimum) {
+                                minimum = d;
+                                closest = c;
+                            }
+                        }
+                    }
+                    if (assignments[i] != closest) {
+                        changed++;
+                    }
+                    assignments[i] = closest;
+                    distances[i] = minimum;
+                }
+                reassigned.addAndGet(changed);
+            }
+        }.execute(pool, numThreads, vectors.size());
+        if (index != null) {
+            log.log(Level.DEBUG, String.format("Indexed assignment compared %.4f of the centroids exactly",
+                    index.getExactFraction()));
+        }
+        return reassigned.get();
+    }
+
+    /**
+     * @return maximum distance moved by a centroid.
+     */
+    private double updateCenters(ExecutorService pool) throws InterruptedException, ExecutionException {
+        final int[][] members = members();
+        final Vector[] updated = new Vector[centers.length];
+        final double[] shifts = new double[centers.length];
+        new Tasks() {
+            @Override
+            void run(int from, int to) {
+                for (int c = from; c < to; c++) {
+                    updated[c] = truncate(c, centroid(members[c], centers[c]));
+                    shifts[c] = Cosine.distance(Cosine.dot(centers[c], updated[c]), centerNorms[c],
+                            Cosine.norm(updated[c]));
+                }
+            }
+        }.execute(pool, numThreads, centers.length);
+
+        double maxShift = 0;
+        for (int c = 0; c < centers.length; c++) {
+            maxShift = Math.max(maxShift, shifts[c]);
+            centers[c] = updated[c];
+            centerNorms[c] = Cosine.norm(updated[c]);
+        }
+        return maxShift;
+    }
+
+    private int[][] members() {
+        int[] sizes = getClusterSizes();
+        int[][] members = new int[centers.length][];
+        for (int c = 0; c < centers.length; c++) {
+            members[c] = new int[sizes[c]];
+        }
+        Arrays.fill(sizes, 0);
+        for (int i = 0; i < assignments.length; i++) {
+            members[assignments[i]][sizes[assignments[i]]++] = i;
+        }
+        return members;
+    }
+
+    /**
+     * Truncate a new centroid if a truncation is set, keeping its error.
+     */
+    private Vector truncate(int c, Vector centroid) {
+        if (truncation == null || !truncation.isEnabled()) {
+            return centroid;
+        }
+        Vector truncated = truncation.truncate(centroid);
+        truncationErrors[c] = CentroidTruncation.error(centroid, truncated);
+        return truncated;
+    }
+
+    private Vector centroid(int[] members, Vector current) {
+        if (members.length == 0) {
+            return current;
+        }
+        Vector sum = new RandomAccessSparseVector(vectors.getCardinality());
+        for (int member : members) {
+            for (Vector.Element element : vectors.get(member).nonZeroes()) {
+                sum.incrementQuick(element.index(), element.get());
+            }
+        }
+        return sum.divide(members.length);
+    }
+
+    /**
+     * Write the final clusters in <code>clusters-N-final</code>, the points
+     * with their cluster in <code>clusteredPoints/part-m-0</code> and the
+     * cluster of every document in <code>assignments</code>.
+     *
+     * @param conf
+     * @param outputDir
+     * @throws IOException
+     */
+    public void write(Configuration conf, Path outputDir) throws IOException {
+        List<Kluster> clusters = new ArrayList<>(centers.length);
+        for (int c = 0; c < centers.length; c++) {
+            clusters.add(new Kluster(centers[c], c, new CosineDistanceMeasure()));
+        }
+        ClusterFiles.writeClusters(conf, new Path(outputDir, "clusters-" + iterations + "-final"), clusters);
+
+        try (SequenceFile.Writer writer = ClusterFiles.createClusteredPointsWriter(conf, outputDir)) {
+            for (int i = 0; i < vectors.size(); i++) {
+                ClusterFiles.appendClusteredPoint(writer, assignments[i], vectors.get(i), distances[i]);
+            }
+        }
+        ClusterFiles.writeAssignments(conf, outputDir, vectors, assignments, distances);
+    }
+
+    public int[] getClusterSizes() {
+        int[] sizes = new int[centers.length];
+        for (int assignment : assignments) {
+            sizes[assignment]++;
+        }
+        return sizes;
+    }
+
+    /**
+     * Sum of the distances of every point to its centroid.
+     *
+     * @return
+     */
+    public double getCost() {
+        double cost = 0;
+        for (double distance : distances) {
+            cost += distance;
+        }
+        return cost;
+    }
+
+    public List<Vector> getCenters() {
+        return Arrays.asList(centers);
+    }
+
+    public int[] getAssignments() {
+        return assignments;
+    }
+
+    public double[] getDistances() {
+        return distances;
+    }
+
+    /**
+     * Mean relative error of the centroids truncated in the last iteration.
+     *
+     * @return
+     */
+    public double getTruncationError() {
+        double sum = 0;
+        for (double error : truncationErrors) {
+            sum += error;
+        }
+        return truncationErrors.length == 0 ? 0 : sum / truncationErrors.length;
+    }
+
+    /**
+     * Maximum relative error of the centroids truncated in the last iteration.
+     *
+     * @return
+     */
+    public double getMaxTruncationError() {
+        double max = 0;
+        for (double error : truncationErrors) {
+            max = Math.max(max, error);
+        }
+        return max;
+    }
+
+    public int getIterations() {
+        return iterations;
+    }
+
+    public double getConvergenceDelta() {
+        return convergenceDelta;
+    }
+
+    public void setConvergenceDelta(double convergenceDelta) {
+        this.convergenceDelta = convergenceDelta;
+    }
+
+    public int getMaxIterations() {
+        return maxIterations;
+    }
+
+    public void setMaxIterations(int maxIterations) {
+        this.maxIterations = maxIterations;
+    }
+
+    public double getMinReassignedFraction() {
+        return minReassignedFraction;
+    }
+
+    /**
+     * Stop when the fraction of points that change of cluster in an iteration
+     * is below this value, i.e. 0.001. By default 0, stopping only on the
+     * convergence delta.
+     *
+     * @param minReassignedFraction
+     */
+    public void setMinReassignedFraction(double minReassignedFraction) {
+        this.minReassignedFraction = minReassignedFraction;
+    }
+
+    public boolean isIndexedAssignment() {
+        return indexedAssignment;
+    }
+
+    /**
+     * Assign points through a {@link CentroidIndex} rebuilt every iteration,
+     * the cost of the assignment depends on the non zero terms of the points
+     * instead of the number of clusters. Results are the same of the full
+     * scan. Enabled by default.
+     *
+     * @param indexedAssignment
+     */
+    public void setIndexedAssignment(boolean indexedAssignment) {
+        this.indexedAssignment = indexedAssignment;
+    }
+
+    public double getIndexRetainedMass() {
+        return indexRetainedMass;
+    }
+
+    /**
+     * Share of the squared norm of each centroid kept in the index, by default
+     * 0.9. Lower values give smaller indexes but more exact comparisons.
+     *
+     * @param indexRetainedMass
+     */
+    public void setIndexRetainedMass(double indexRetainedMass) {
+        this.indexRetainedMass = indexRetainedMass;
+    }
+
+    public CentroidTruncation getTruncation() {
+        return truncation;
+    }
+
+    /**
+     * Keep centroids sparse as they are updated, the error of the truncation is
+     * reported in the {@link IterationStats}.
+     *
+     * @param truncation null to keep the whole centroids.
+     */
+    public void setTruncation(CentroidTruncation truncation) {
+        this.truncation = truncation;
+    }
+
+    /**
+     * Write a checkpoint every <code>interval</code> iterations and when the
+     * run finishes, resuming from the latest one.
+     *
+     * @param checkpoints null to disable checkpoints.
+     * @param interval
+     */
+    public void setCheckpoints(CheckpointStore checkpoints, int interval) {
+        this.checkpoints = checkpoints;
+        this.checkpointInterval = interval;
+    }
+
+    public void addIterationListener(IterationListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeIterationListener(IterationListener listener) {
+        listeners.remove(listener);
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    public void setNumThreads(int numThreads) {
+        this.numThreads = numThreads;
+    }
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.engine;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import org.apache.hadoop.io.Writable;
+import org.apache.hadoop.io.WritableUtils;
+
+/**
+ * Sparse memberships of a document, only the clusters with the highest
+ * membership are kept. Entries are sorted by weight in descending order, so the
+ * first one is the most likely cluster.
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class MembershipWritable implements Writable {
+
+    private int[] clusterIds;
+    private double[] weights;
+    private int size;
+
+    public MembershipWritable() {
+        this(new int[0], new double[0], 0);
+    }
+
+    public MembershipWritable(int[] clusterIds, double[] weights, int size) {
+        set(clusterIds, weights, size);
+    }
+
+    /**
+     * Reuse this instance with new memberships.
+     *
+     * @param clusterIds
+     * @param weights
+     * @param size number of entries used from both arrays.
+     */
+    public final void set(int[] clusterIds, double[] weights, int size) {
+        this.clusterIds = clusterIds;
+        this.weights = weights;
+        this.size = size;
+    }
+
+    /**
+     * Copy the memberships of another instance.
+     *
+     * @param other
+     */
+    public void set(MembershipWritable other) {
+        if (clusterIds.length < other.size) {
+            clusterIds = new int[other.size];
+            weights = new double[other.size];
+        }
+        System.arraycopy(other.clusterIds, 0, clusterIds, 0, other.size);
+        System.arraycopy(other.weights, 0, weights, 0, other.size);
+        size = other.size;
+    }
+
+    /**
+     * Keep at most <code>max</code> memberships with a weight of at least
+     * <code>threshold</code>, the most likely cluster is always kept. Weights
+     * are not renormalized.
+     *
+     * @param max
+     * @param threshold
+     */
+    public void truncate(int max, double threshold) {
+        int kept = Math.min(size, Math.max(1, max));
+        while (kept > 1 && weights[kept - 1] < threshold) {
+            kept--;
+        }
+        size = kept;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getClusterId(int index) {
+        return clusterIds[index];
+    }
+
+    public double getWeight(int index) {
+        return weights[index];
+    }
+
+    public int getMostLikelyCluster() {
+        return clusterIds[0];
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        WritableUtils.writeVInt(out, size);
+        for (int i = 0; i < size; i++) {
+            WritableUtils.writeVInt(out, clusterIds[i]);
+            out.writeDouble(weights[i]);
+        }
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        size = WritableUtils.readVInt(in);
+        if (clusterIds.length < size) {
+            clusterIds = new int[size];
+            weights = new double[size];
+        }
+        for (int i = 0; i < size; i++) {
+            clusterIds[i] = WritableUtils.readVInt(in);
+            weights[i] = in.readDouble();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(Arrays.copyOf(clusterIds, size)) + " " + Arrays.toString(Arrays.copyOf(weights, size));
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.engine;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+/**
+ * Runs several k-means from different random seeds concurrently over the same
+ * {@link VectorStore} and keeps the one with the lowest cost. The seed of every
+ * restart is derived from a base seed, so the same base seed gives the same
+ * result.
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class MultiRestartKMeans {
+
+    private final Logger log = Logger.getLogger(MultiRestartKMeans.class.getName());
+    private final VectorStore vectors;
+
+    private int restarts = 8;
+    private long seed = 1;
+    private int numThreads = Runtime.getRuntime().availableProcessors();
+    private double convergenceDelta = 0.5;
+    private int maxIterations = 100;
+    private double minReassignedFraction = 0;
+    private CentroidTruncation truncation;
+
+    private KMeans best;
+    private int bestRestart;
+    private List<Result> results;
+
+    public MultiRestartKMeans(VectorStore vectors) {
+        this.vectors = vectors;
+    }
+
+    /**
+     * Seed of every restart, derived from the base seed.
+     *
+     * @param seed
+     * @param restarts
+     * @return
+     */
+    public static long[] restartSeeds(long seed, int restarts) {
+        Random random = new Random(seed);
+        long[] seeds = new long[restarts];
+        for (int r = 0; r < restarts; r++) {
+            seeds[r] = random.nextLong();
+        }
+        return seeds;
+    }
+
+    /**
+     * Run the restarts and keep the best one, ties are broken by the lowest
+     * restart. When a restart fails the others are cancelled.
+     *
+     * @param k
+     * @throws InterruptedException
+     * @throws ExecutionException
+     */
+    public void run(final int k) throws InterruptedException, ExecutionException {
+        final long[] seeds = restartSeeds(seed, restarts);
+        // Threads left over by the restarts are used inside each k-means.
+        final int threadsPerRestart = Math.max(1, numThreads / restarts);
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(numThreads, restarts));
+        List<KMeans> runs = new ArrayList<>(restarts);
+        results = new ArrayList<>(restarts);
+        try {
+            List<Future<KMeans>> futures = new ArrayList<>(restarts);
+            final long[] millis = new long[restarts];
+            for (int r = 0; r < restarts; r++) {
+                final int restart = r;
+                futures.add(pool.submit(new Callable<KMeans>() {
+                    @Override
+                    public KMeans call() throws Exception {
+                        long begin = System.currentTimeMillis();
+                        KMeans kmeans = new KMeans(vectors);
+                        kmeans.setNumThreads(threadsPerRestart);
+                        kmeans.setConvergenceDelta(convergenceDelta);
+                        kmeans.setMaxIterations(maxIterations);
+                        kmeans.setMinReassignedFraction(minReassignedFraction);
+                        kmeans.setTruncation(truncation);
+                        kmeans.run(KMeans.randomSeeds(vectors, k, seeds[restart]));
+                        millis[restart] = System.currentTimeMillis() - begin;
+                        return kmeans;
+                    }
+                }));
+            }
+            for (Future<KMeans> future : futures) {
+                runs.add(future.get());
+            }
+            for (int r = 0; r < restarts; r++) {
+                KMeans kmeans = runs.get(r);
+                results.add(new Result(r, seeds[r], kmeans.getCost(), kmeans.getIterations(), millis[r]));
+                log.log(Level.INFO, String.format("Restart %d (seed %d) cost=%f iterations=%d time=%dms", r, seeds[r],
+                        kmeans.getCost(), kmeans.getIterations(), millis[r]));
+            }
+        } finally {
+            // A failed restart stops the ones still running.
+            pool.shutdownNow();
+        }
+
+        int selected = 0;
+        for (int r = 1; r < restarts; r++) {
+            if (runs.get(r).getCost() < runs.get(selected).getCost()) {
+                selected = r;
+            }
+        }
+        best = runs.get(selected);
+        bestRestart = selected;
+        log.log(Level.INFO, String.format("Restart %d kept with cost %f", selected, best.getCost()));
+    }
+
+    /**
+     * Write the objective of every restart.
+     *
+     * @param file
+     * @throws IOException
+     */
+    public void writeCsv(File file) throws IOException {
+        if (!file.getParentFile().exists()) {
+            file.getParentFile().mkdirs();
+        }
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(file))) {
+            bw.write("restart,seed,cost,iterations,millis,kept");
+            bw.newLine();
+            for (Result result : results) {
+                bw.write(result.getRestart() + "," + result.getSeed() + "," + result.getCost() + ","
+                        + result.getIterations() + "," + result.getMillis() + ","
+                        + (result.getRestart() == bestRestart));
+                bw.newLine();
+            }
+        }
+        log.log(Level.INFO, "Restarts written in " + file);
+    }
+
+    /**
+     * Restart with the lowest cost.
+     *
+     * @return
+     */
+    public KMeans getBest() {
+        return best;
+    }
+
+    public int getBestRestart() {
+        return bestRestart;
+    }
+
+    /**
+     * Objective of every restart, ordered by restart.
+     *
+     * @return
+     */
+    public List<Result> getResults() {
+        return results;
+    }
+
+    public int getRestarts() {
+        return restarts;
+    }
+
+    public void setRestarts(int restarts) {
+        this.restarts = restarts;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Base seed from which the seed of every restart is derived.
+     *
+     * @param seed
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    public void setNumThreads(int numThreads) {
+        this.numThreads = numThreads;
+    }
+
+    public double getConvergenceDelta() {
+        return convergenceDelta;
+    }
+
+    public void setConvergenceDelta(double convergenceDelta) {
+        this.convergenceDelta = convergenceDelta;
+    }
+
+    public int getMaxIterations() {
+        return maxIterations;
+    }
+
+    public void setMaxIterations(int maxIterations) {
+        this.maxIterations = maxIterations;
+    }
+
+    public double getMinReassignedFraction() {
+        return minReassignedFraction;
+    }
+
+    public void setMinReassignedFraction(double minReassignedFraction) {
+        this.minReassignedFraction = minReassignedFraction;
+    }
+
+    public CentroidTruncation getTruncation() {
+        return truncation;
+    }
+
+    /**
+     * Truncation of the centroids of every restart.
+     *
+     * @param truncation
+     */
+    public void setTruncation(CentroidTruncation truncation) {
+        this.truncation = truncation;
+    }
+
+    /**
+     * Objective of one restart.
+     */
+    public static class Result {
+
+        private final int restart;
+        private final long seed;
+        private final double cost;
+        private final int iterations;
+        private final long millis;
+
+        public Result(int restart, long seed, double cost, int iterations, long millis) {
+            this.restart = restart;
+            this.seed = seed;
+            this.cost = cost;
+            this.iterations = iterations;
+            this.millis = millis;
+        }
+
+        public int getRestart() {
+            return restart;
+        }
+
+        public long getSeed() {
+            return seed;
+        }
+
+        /**
+         * Sum of the distances of every point to its centroid.
+         *
+         * @return
+         */
+        public double getCost() {
+            return cost;
+        }
+
+        public int getIterations() {
+            return iterations;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+    }
+}
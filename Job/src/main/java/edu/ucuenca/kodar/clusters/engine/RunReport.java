@@ -0,0 +1,77 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.engine;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+/**
+ * Keeps the metrics of every iteration of a run, they are logged as they
+ * arrive and can be written as a CSV file.
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class RunReport implements IterationListener {
+
+    private final Logger log = Logger.getLogger(RunReport.class.getName());
+    private final List<IterationStats> iterations = Collections.synchronizedList(new ArrayList<IterationStats>());
+
+    @Override
+    public void iterationFinished(IterationStats stats) {
+        iterations.add(stats);
+        log.log(Level.INFO, stats.toString());
+    }
+
+    public List<IterationStats> getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Write one line per iteration.
+     *
+     * @param file
+     * @throws IOException
+     */
+    public void writeCsv(File file) throws IOException {
+        if (!file.getParentFile().exists()) {
+            file.getParentFile().mkdirs();
+        }
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(file))) {
+            bw.write("algorithm,iteration,millis,reassigned,reassignedFraction,maxShift,objective,truncationError,"
+                    + "maxTruncationError");
+            bw.newLine();
+            synchronized (iterations) {
+                for (IterationStats stats : iterations) {
+                    bw.write(stats.getAlgorithm() + "," + stats.getIteration() + "," + stats.getMillis() + ","
+                            + stats.getReassigned() + "," + stats.getReassignedFraction() + ","
+                            + stats.getMaxShift() + "," + stats.getObjective() + "," + stats.getTruncationError() + ","
+                            + stats.getMaxTruncationError());
+                    bw.newLine();
+                }
+            }
+        }
+        log.log(Level.INFO, "Run report written in " + file);
+    }
+}
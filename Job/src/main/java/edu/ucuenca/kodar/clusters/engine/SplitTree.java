@@ -0,0 +1,281 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.engine;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Writable;
+import org.apache.mahout.math.Vector;
+import org.apache.mahout.math.VectorWritable;
+
+/**
+ * Splits done by {@link BisectingKMeans}. The root holds every point and each
+ * split replaces a node by its two children, so after <code>k - 1</code>
+ * splits there are <code>k</code> active nodes: the clustering with
+ * <code>k</code> clusters. Any <code>k</code> up to {@link #getMaxK()} is read
+ * from the tree without clustering again.
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class SplitTree implements Writable {
+
+    /**
+     * Split of a node that was never split.
+     */
+    public static final int NOT_SPLIT = Integer.MAX_VALUE;
+
+    private final List<Node> nodes = new ArrayList<>();
+
+    /**
+     * Add a node, its id is its position in the tree.
+     *
+     * @param parent id of the parent, -1 for the root.
+     * @param center
+     * @param size
+     * @param cost
+     * @return the new node.
+     */
+    public Node add(int parent, Vector center, int size, double cost) {
+        Node node = new Node();
+        node.id = nodes.size();
+        node.parent = parent;
+        node.created = parent < 0 ? 0 : nodes.get(parent).split;
+        node.center = center;
+        node.size = size;
+        node.cost = cost;
+        nodes.add(node);
+        return node;
+    }
+
+    /**
+     * Record the split number <code>split</code>, starting at one, of a node
+     * into two children.
+     */
+    void split(Node node, int split, Vector leftCenter, int leftSize, double leftCost,
+            Vector rightCenter, int rightSize, double rightCost) {
+        node.split = split;
+        node.left = add(node.id, leftCenter, leftSize, leftCost).id;
+        node.right = add(node.id, rightCenter, rightSize, rightCost).id;
+    }
+
+    public List<Node> getNodes() {
+        return nodes;
+    }
+
+    public Node getNode(int id) {
+        return nodes.get(id);
+    }
+
+    /**
+     * Greatest number of clusters available, one more than the number of
+     * splits.
+     *
+     * @return
+     */
+    public int getMaxK() {
+        return (nodes.size() - 1) / 2 + 1;
+    }
+
+    /**
+     * Return true if the node is one of the clusters when there are
+     * <code>k</code> clusters.
+     *
+     * @param node
+     * @param k
+     * @return
+     */
+    public boolean isActive(Node node, int k) {
+        return node.created <= k - 1 && node.split > k - 1;
+    }
+
+    /**
+     * Clusters when there are <code>k</code> clusters, ordered by id.
+     *
+     * @param k
+     * @return
+     */
+    public List<Node> level(int k) {
+        List<Node> level = new ArrayList<>(k);
+        for (Node node : nodes) {
+            if (isActive(node, k)) {
+                level.add(node);
+            }
+        }
+        return level;
+    }
+
+    /**
+     * Cluster containing a node when there are <code>k</code> clusters, a point
+     * is mapped to any level through the leaf that contains it.
+     *
+     * @param id node, usually a leaf.
+     * @param k
+     * @return id of the ancestor that is active at <code>k</code>.
+     */
+    public int clusterAt(int id, int k) {
+        Node node = nodes.get(id);
+        while (!isActive(node, k)) {
+            node = nodes.get(node.parent);
+        }
+        return node.id;
+    }
+
+    @Override
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(nodes.size());
+        for (Node node : nodes) {
+            out.writeInt(node.parent);
+            out.writeInt(node.left);
+            out.writeInt(node.right);
+            out.writeInt(node.created);
+            out.writeInt(node.split);
+            out.writeInt(node.size);
+            out.writeDouble(node.cost);
+            VectorWritable.writeVector(out, node.center);
+        }
+    }
+
+    @Override
+    public void readFields(DataInput in) throws IOException {
+        nodes.clear();
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            Node node = new Node();
+            node.id = i;
+            node.parent = in.readInt();
+            node.left = in.readInt();
+            node.right = in.readInt();
+            node.created = in.readInt();
+            node.split = in.readInt();
+            node.size = in.readInt();
+            node.cost = in.readDouble();
+            node.center = VectorWritable.readVector(in);
+            nodes.add(node);
+        }
+    }
+
+    /**
+     * Write the tree in <code>file</code>.
+     *
+     * @param conf
+     * @param file
+     * @throws IOException
+     */
+    public void write(Configuration conf, Path file) throws IOException {
+        FileSystem fs = file.getFileSystem(conf);
+        try (FSDataOutputStream out = fs.create(file, true)) {
+            write(out);
+        }
+    }
+
+    /**
+     * Read a tree written by {@link #write(Configuration, Path)}.
+     *
+     * @param conf
+     * @param file
+     * @return
+     * @throws IOException
+     */
+    public static SplitTree read(Configuration conf, Path file) throws IOException {
+        SplitTree tree = new SplitTree();
+        FileSystem fs = file.getFileSystem(conf);
+        try (FSDataInputStream in = fs.open(file)) {
+            tree.readFields(in);
+        }
+        return tree;
+    }
+
+    /**
+     * Cluster of the tree. The center is not serialized to JSON.
+     */
+    public static class Node {
+
+        private int id;
+        private int parent = -1;
+        private int left = -1;
+        private int right = -1;
+        private int created;
+        private int split = NOT_SPLIT;
+        private int size;
+        private double cost;
+        private transient Vector center;
+
+        public int getId() {
+            return id;
+        }
+
+        public int getParent() {
+            return parent;
+        }
+
+        public int getLeft() {
+            return left;
+        }
+
+        public int getRight() {
+            return right;
+        }
+
+        /**
+         * Number of the split that created this node, 0 for the root.
+         *
+         * @return
+         */
+        public int getCreated() {
+            return created;
+        }
+
+        /**
+         * Number of the split of this node, {@link #NOT_SPLIT} for the leaves.
+         *
+         * @return
+         */
+        public int getSplit() {
+            return split;
+        }
+
+        public boolean isLeaf() {
+            return split == NOT_SPLIT;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        /**
+         * Sum of the distances of the points to the center.
+         *
+         * @return
+         */
+        public double getCost() {
+            return cost;
+        }
+
+        public Vector getCenter() {
+            return center;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.engine;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.mahout.clustering.ClusteringUtils;
+import org.apache.mahout.clustering.kmeans.Kluster;
+import org.apache.mahout.clustering.streaming.cluster.BallKMeans;
+import org.apache.mahout.clustering.streaming.cluster.StreamingKMeans;
+import org.apache.mahout.common.Pair;
+import org.apache.mahout.common.distance.CosineDistanceMeasure;
+import org.apache.mahout.common.distance.DistanceMeasure;
+import org.apache.mahout.common.iterator.sequencefile.PathFilters;
+import org.apache.mahout.common.iterator.sequencefile.PathType;
+import org.apache.mahout.common.iterator.sequencefile.SequenceFileDirIterable;
+import org.apache.mahout.math.Centroid;
+import org.apache.mahout.math.NamedVector;
+import org.apache.mahout.math.RandomAccessSparseVector;
+import org.apache.mahout.math.Vector;
+import org.apache.mahout.math.VectorWritable;
+import org.apache.mahout.math.neighborhood.BruteSearch;
+
+/**
+ * One pass k-means for datasets that do not fit in memory. A single scan of the
+ * vectors builds a weighted sketch of about <code>k log n</code> centroids with
+ * {@link StreamingKMeans}; {@link BallKMeans} reduces the sketch to
+ * <code>k</code> clusters in memory, and a last pass assigns every point to its
+ * closest cluster. Only the sketch is kept in memory.
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class StreamingKMeansSketch {
+
+    private static final int CUTOFF_SAMPLE = 100;
+
+    private final Logger log = Logger.getLogger(StreamingKMeansSketch.class.getName());
+    private final Configuration conf;
+    private final DistanceMeasure measure = new CosineDistanceMeasure();
+
+    private int maxIterations = 10;
+    private List<Centroid> sketch;
+    private Vector[] centers;
+    private long numPoints;
+
+    public StreamingKMeansSketch(Configuration conf) {
+        this.conf = conf;
+    }
+
+    /**
+     * Sketch, cluster and assign the vectors, the output has the same layout of
+     * {@link org.apache.mahout.clustering.kmeans.KMeansDriver}.
+     *
+     * @param vectorsDir i.e. <code>sparse/tfidf-vectors</code>.
+     * @param outputDir
+     * @param k
+     * @throws IOException
+     */
+    public void run(Path vectorsDir, Path outputDir, int k) throws IOException {
+        sketch(vectorsDir, k);
+        cluster(k);
+        assign(vectorsDir, outputDir);
+    }
+
+    /**
+     * Single scan of the vectors. The number of centroids of the sketch grows
+     * as <code>k log n</code> while points are processed.
+     *
+     * @param vectorsDir
+     * @param k
+     */
+    public void sketch(Path vectorsDir, int k) {
+        List<Centroid> buffer = new ArrayList<>(CUTOFF_SAMPLE);
+        StreamingKMeans streaming = null;
+        numPoints = 0;
+
+        for (Pair<Text, VectorWritable> record : new SequenceFileDirIterable<Text, VectorWritable>(vectorsDir,
+                PathType.LIST, PathFilters.partFilter(), conf)) {
+            Centroid point = new Centroid((int) numPoints++, new RandomAccessSparseVector(record.getSecond().get()), 1);
+            if (streaming == null) {
+                // The first points estimate the initial distance cutoff.
+                buffer.add(point);
+                if (buffer.size() == CUTOFF_SAMPLE) {
+                    streaming = createStreaming(buffer, k);
+                    buffer.clear();
+                }
+            } else {
+                streaming.cluster(point);
+            }
+        }
+        if (streaming == null) {
+            streaming = createStreaming(buffer, k);
+        }
+        streaming.reindexCentroids();
+
+        sketch = new ArrayList<>();
+        for (Centroid centroid : streaming) {
+            sketch.add(centroid);
+        }
+        log.log(Level.INFO, String.format("Sketch of %d centroids built from %d points", sketch.size(), numPoints));
+    }
+
+    private StreamingKMeans createStreaming(List<Centroid> buffer, int k) {
+        double cutoff = buffer.size() > 1 ? ClusteringUtils.estimateDistanceCutoff(buffer, measure) : 1.0 / k;
+        if (cutoff <= 0) {
+            cutoff = 1.0 / k;
+        }
+        // Growing the number of clusters by k log(n) bounds the sketch size.
+        StreamingKMeans streaming = new StreamingKMeans(new BruteSearch(measure), k, cutoff, 1.3, k, 2.0);
+        streaming.cluster(buffer);
+        return streaming;
+    }
+
+    /**
+     * Ball k-means over the weighted centroids of the sketch.
+     *
+     * @param k
+     */
+    public void cluster(int k) {
+        BallKMeans ballKMeans = new BallKMeans(new BruteSearch(measure), Math.min(k, sketch.size()), maxIterations);
+        ballKMeans.cluster(sketch);
+
+        List<Vector> clusters = new ArrayList<>();
+        for (Centroid centroid : ballKMeans) {
+            clusters.add(new RandomAccessSparseVector(centroid.getVector()));
+        }
+        centers = clusters.toArray(new Vector[clusters.size()]);
+    }
+
+    /**
+     * Second scan of the vectors, points are assigned through a
+     * {@link CentroidIndex}, writing <code>clusteredPoints</code>,
+     * <code>assignments</code> and <code>clusters-1-final</code> in
+     * <code>outputDir</code>.
+     *
+     * @param vectorsDir
+     * @param outputDir
+     * @throws IOException
+     */
+    public void assign(Path vectorsDir, Path outputDir) throws IOException {
+        double[] norms = new double[centers.length];
+        for (int c = 0; c < centers.length; c++) {
+            norms[c] = Cosine.norm(centers[c]);
+        }
+
+        CentroidIndex.Searcher searcher = new CentroidIndex(centers, norms, 0.9).searcher();
+        LongWritable documentId = new LongWritable();
+        AssignmentWritable assignment = new AssignmentWritable();
+        // Assignments are streamed unsorted and sorted on disk afterwards.
+        try (SequenceFile.Writer writer = ClusterFiles.createClusteredPointsWriter(conf, outputDir);
+                SequenceFile.Writer assignments = ClusterFiles.createAssignmentsWriter(conf, outputDir)) {
+            for (Pair<Text, VectorWritable> record : new SequenceFileDirIterable<Text, VectorWritable>(vectorsDir,
+                    PathType.LIST, PathFilters.partFilter(), conf)) {
+                Vector point = record.getSecond().get();
+                searcher.search(point, Cosine.norm(point));
+                ClusterFiles.appendClusteredPoint(writer, searcher.getClosest(), point, searcher.getDistance());
+
+                documentId.set(Long.parseLong(point instanceof NamedVector
+                        ? ((NamedVector) point).getName() : record.getFirst().toString()));
+                assignment.set(searcher.getClosest(), searcher.getDistance());
+                assignments.append(documentId, assignment);
+            }
+        }
+        ClusterFiles.sortAssignments(conf, outputDir);
+
+        List<Kluster> clusters = new ArrayList<>(centers.length);
+        for (int c = 0; c < centers.length; c++) {
+            clusters.add(new Kluster(centers[c], c, measure));
+        }
+        ClusterFiles.writeClusters(conf, new Path(outputDir, "clusters-1-final"), clusters);
+    }
+
+    public List<Centroid> getSketch() {
+        return sketch;
+    }
+
+    public long getNumPoints() {
+        return numPoints;
+    }
+
+    public int getMaxIterations() {
+        return maxIterations;
+    }
+
+    /**
+     * Maximum number of iterations of ball k-means over the sketch.
+     *
+     * @param maxIterations
+     */
+    public void setMaxIterations(int maxIterations) {
+        this.maxIterations = maxIterations;
+    }
+}
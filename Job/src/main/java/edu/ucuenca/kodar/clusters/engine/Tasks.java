@@ -0,0 +1,67 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Splits a range of indexes in chunks executed by a pool of threads.
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+abstract class Tasks {
+
+    /**
+     * Process the indexes <code>[from, to)</code>.
+     */
+    abstract void run(int from, int to);
+
+    /**
+     * Execute {@link #run(int, int)} over <code>[0, size)</code> and wait until
+     * every chunk finishes.
+     *
+     * @param pool
+     * @param numThreads
+     * @param size
+     * @throws InterruptedException
+     * @throws ExecutionException if any chunk failed.
+     */
+    void execute(ExecutorService pool, int numThreads, int size) throws InterruptedException, ExecutionException {
+        List<Callable<Void>> tasks = new ArrayList<>();
+        int chunk = Math.max(1, (size + numThreads * 4 - 1) / (numThreads * 4));
+        for (int start = 0; start < size; start += chunk) {
+            final int from = start;
+            final int to = Math.min(start + chunk, size);
+            tasks.add(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    run(from, to);
+                    return null;
+                }
+            });
+        }
+        for (Future<Void> future : pool.invokeAll(tasks)) {
+            future.get();
+        }
+    }
+}
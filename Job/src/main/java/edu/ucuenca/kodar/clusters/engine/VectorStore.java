@@ -0,0 +1,144 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.engine;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.Text;
+import org.apache.mahout.common.Pair;
+import org.apache.mahout.common.iterator.sequencefile.PathFilters;
+import org.apache.mahout.common.iterator.sequencefile.PathType;
+import org.apache.mahout.common.iterator.sequencefile.SequenceFileDirIterable;
+import org.apache.mahout.math.NamedVector;
+import org.apache.mahout.math.SequentialAccessSparseVector;
+import org.apache.mahout.math.Vector;
+import org.apache.mahout.math.VectorWritable;
+
+/**
+ * Read-only copy in memory of the vectors generated by seq2sparse. Vectors are
+ * kept in sequential access format and sorted by document id, so every engine
+ * iterates them in the same order.
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class VectorStore {
+
+    private final long[] documentIds;
+    private final NamedVector[] vectors;
+    private final double[] norms;
+    private final int cardinality;
+
+    /**
+     * @param points vectors named with the id of the document.
+     */
+    public VectorStore(List<NamedVector> points) {
+        List<NamedVector> sorted = new ArrayList<>(points);
+        Collections.sort(sorted, new Comparator<NamedVector>() {
+            @Override
+            public int compare(NamedVector a, NamedVector b) {
+                return Long.compare(Long.parseLong(a.getName()), Long.parseLong(b.getName()));
+            }
+        });
+
+        documentIds = new long[sorted.size()];
+        vectors = new NamedVector[sorted.size()];
+        norms = new double[sorted.size()];
+        int maxCardinality = 0;
+        for (int i = 0; i < sorted.size(); i++) {
+            NamedVector point = sorted.get(i);
+            documentIds[i] = Long.parseLong(point.getName());
+            vectors[i] = new NamedVector(new SequentialAccessSparseVector(point.getDelegate()), point.getName());
+            norms[i] = Math.sqrt(vectors[i].getLengthSquared());
+            maxCardinality = Math.max(maxCardinality, point.size());
+        }
+        cardinality = maxCardinality;
+    }
+
+    /**
+     * Load every part file of a directory of vectors, i.e.
+     * <code>sparse/tfidf-vectors</code>.
+     *
+     * @param conf
+     * @param vectorsDir directory with <code>&lt;Text, VectorWritable&gt;</code>
+     * files.
+     * @return
+     * @throws IOException
+     */
+    public static VectorStore load(Configuration conf, Path vectorsDir) throws IOException {
+        List<NamedVector> points = new ArrayList<>();
+        for (Pair<Text, VectorWritable> record : new SequenceFileDirIterable<Text, VectorWritable>(vectorsDir,
+                PathType.LIST, PathFilters.partFilter(), conf)) {
+            Vector vector = record.getSecond().get();
+            if (vector instanceof NamedVector) {
+                points.add((NamedVector) vector);
+            } else {
+                points.add(new NamedVector(vector, record.getFirst().toString()));
+            }
+        }
+        return new VectorStore(points);
+    }
+
+    public int size() {
+        return vectors.length;
+    }
+
+    public int getCardinality() {
+        return cardinality;
+    }
+
+    public NamedVector get(int index) {
+        return vectors[index];
+    }
+
+    public long getDocumentId(int index) {
+        return documentIds[index];
+    }
+
+    /**
+     * Euclidean norm of a vector, cached to compute cosine distances.
+     *
+     * @param index
+     * @return
+     */
+    public double getNorm(int index) {
+        return norms[index];
+    }
+
+    /**
+     * Hash of the ids and values of every vector, two stores with the same
+     * fingerprint hold the same vectors.
+     *
+     * @return
+     */
+    public long fingerprint() {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < vectors.length; i++) {
+            hash = (hash ^ documentIds[i]) * 0x100000001b3L;
+            for (Vector.Element element : vectors[i].nonZeroes()) {
+                hash = (hash ^ element.index()) * 0x100000001b3L;
+                hash = (hash ^ Double.doubleToLongBits(element.get())) * 0x100000001b3L;
+            }
+        }
+        return (hash ^ cardinality) * 0x100000001b3L;
+    }
+}
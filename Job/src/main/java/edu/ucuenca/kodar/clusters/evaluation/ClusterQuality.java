@@ -0,0 +1,66 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.evaluation;
+
+import edu.ucuenca.kodar.clusters.engine.Cosine;
+import java.util.List;
+import org.apache.mahout.math.Vector;
+
+/**
+ * Quality measures computed over clusters held in memory.
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public final class ClusterQuality {
+
+    private ClusterQuality() {
+    }
+
+    /**
+     * Scaled inter-cluster density, computed as in
+     * {@link org.apache.mahout.clustering.evaluation.ClusterEvaluator#interClusterDensity()}
+     * with cosine distance.
+     *
+     * @param centers
+     * @return
+     */
+    public static double interClusterDensity(List<Vector> centers) {
+        double max = Double.NEGATIVE_INFINITY;
+        double min = Double.POSITIVE_INFINITY;
+        double sum = 0;
+        int count = 0;
+        double[] norms = new double[centers.size()];
+        for (int i = 0; i < centers.size(); i++) {
+            norms[i] = Cosine.norm(centers.get(i));
+        }
+        for (int i = 0; i < centers.size(); i++) {
+            for (int j = i + 1; j < centers.size(); j++) {
+                double d = Cosine.distance(centers.get(i), norms[i], centers.get(j), norms[j]);
+                // ClusterEvaluator keeps distances in sparse vectors, zeros are ignored.
+                if (d == 0) {
+                    continue;
+                }
+                min = Math.min(d, min);
+                max = Math.max(d, max);
+                sum += d;
+                count++;
+            }
+        }
+        return (sum / count - min) / (max - min);
+    }
+}
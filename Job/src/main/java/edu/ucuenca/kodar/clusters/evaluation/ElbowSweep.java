@@ -0,0 +1,242 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.evaluation;
+
+import edu.ucuenca.kodar.clusters.engine.KMeans;
+import edu.ucuenca.kodar.clusters.engine.VectorStore;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.mahout.math.Vector;
+
+/**
+ * Evaluates many values of k over the same vectors held in memory. Each k runs
+ * on a pool of threads; with warm start the values of k are split in chains,
+ * one per thread, and each k is seeded with the previous solution of its
+ * chain.
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class ElbowSweep {
+
+    private final Logger log = Logger.getLogger(ElbowSweep.class.getName());
+
+    private int numThreads = Runtime.getRuntime().availableProcessors();
+    private boolean warmStart = false;
+    private long seed = 1;
+    private int maxIterations = 100;
+    private double convergenceDelta = 0.5;
+
+    /**
+     * Evaluate k = start, start + inc, ..., end.
+     *
+     * @param vectors
+     * @param start
+     * @param end
+     * @param inc
+     * @return results sorted by k.
+     * @throws InterruptedException
+     * @throws ExecutionException
+     */
+    public List<Result> sweep(final VectorStore vectors, int start, int end, int inc) throws InterruptedException, ExecutionException {
+        List<Integer> ks = new ArrayList<>();
+        for (int k = start; k <= end; k += inc) {
+            ks.add(k);
+        }
+
+        int chains = warmStart ? Math.min(numThreads, ks.size()) : ks.size();
+        ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+        List<Result> results = new ArrayList<>();
+        try {
+            List<Future<List<Result>>> futures = new ArrayList<>();
+            for (int chain = 0; chain < chains; chain++) {
+                final List<Integer> chainKs = new ArrayList<>();
+                for (int i = chain; i < ks.size(); i += chains) {
+                    chainKs.add(ks.get(i));
+                }
+                futures.add(pool.submit(new Callable<List<Result>>() {
+                    @Override
+                    public List<Result> call() throws Exception {
+                        return evaluate(vectors, chainKs);
+                    }
+                }));
+            }
+            for (Future<List<Result>> future : futures) {
+                results.addAll(future.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        Collections.sort(results, new Comparator<Result>() {
+            @Override
+            public int compare(Result a, Result b) {
+                return Integer.compare(a.getK(), b.getK());
+            }
+        });
+        return results;
+    }
+
+    private List<Result> evaluate(VectorStore vectors, List<Integer> ks) throws InterruptedException, ExecutionException,
+            IOException {
+        List<Result> results = new ArrayList<>();
+        KMeans previous = null;
+        for (int k : ks) {
+            long begin = System.currentTimeMillis();
+            List<Vector> seeds = (warmStart && previous != null)
+                    ? KMeans.warmSeeds(previous, k)
+                    : KMeans.plusPlusSeeds(vectors, k, seed + k);
+
+            KMeans kmeans = new KMeans(vectors);
+            kmeans.setNumThreads(1);
+            kmeans.setMaxIterations(maxIterations);
+            kmeans.setConvergenceDelta(convergenceDelta);
+            kmeans.run(seeds);
+
+            Result result = new Result(k, ClusterQuality.interClusterDensity(kmeans.getCenters()), kmeans.getCost(),
+                    kmeans.getIterations(), System.currentTimeMillis() - begin);
+            log.log(Level.INFO, String.format("k=%d inter-cluster density=%f cost=%f iterations=%d time=%dms",
+                    k, result.getInterClusterDensity(), result.getCost(), result.getIterations(), result.getMillis()));
+            results.add(result);
+            previous = kmeans;
+        }
+        return results;
+    }
+
+    /**
+     * Write results in the format read by
+     * <code>R/elbow method/elbow-method.R</code>.
+     *
+     * @param results
+     * @param file
+     * @throws IOException
+     */
+    public void writeCsv(List<Result> results, File file) throws IOException {
+        if (!file.getParentFile().exists()) {
+            file.getParentFile().mkdirs();
+        }
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(file))) {
+            bw.write("k,interClusterDensity,cost,iterations");
+            bw.newLine();
+            for (Result result : results) {
+                bw.write(result.getK() + "," + result.getInterClusterDensity() + "," + result.getCost() + ","
+                        + result.getIterations());
+                bw.newLine();
+            }
+        }
+        log.log(Level.INFO, "Elbow sweep written in " + file);
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    public void setNumThreads(int numThreads) {
+        this.numThreads = numThreads;
+    }
+
+    public boolean isWarmStart() {
+        return warmStart;
+    }
+
+    /**
+     * Seed each k with the solution of the previous k of the same chain,
+     * instead of k-means++ seeds.
+     *
+     * @param warmStart
+     */
+    public void setWarmStart(boolean warmStart) {
+        this.warmStart = warmStart;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public int getMaxIterations() {
+        return maxIterations;
+    }
+
+    public void setMaxIterations(int maxIterations) {
+        this.maxIterations = maxIterations;
+    }
+
+    public double getConvergenceDelta() {
+        return convergenceDelta;
+    }
+
+    public void setConvergenceDelta(double convergenceDelta) {
+        this.convergenceDelta = convergenceDelta;
+    }
+
+    /**
+     * Evaluation of one value of k.
+     */
+    public static class Result {
+
+        private final int k;
+        private final double interClusterDensity;
+        private final double cost;
+        private final int iterations;
+        private final long millis;
+
+        public Result(int k, double interClusterDensity, double cost, int iterations, long millis) {
+            this.k = k;
+            this.interClusterDensity = interClusterDensity;
+            this.cost = cost;
+            this.iterations = iterations;
+            this.millis = millis;
+        }
+
+        public int getK() {
+            return k;
+        }
+
+        public double getInterClusterDensity() {
+            return interClusterDensity;
+        }
+
+        public double getCost() {
+            return cost;
+        }
+
+        public int getIterations() {
+            return iterations;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+    }
+}
@@ -18,8 +18,12 @@
 package edu.ucuenca.kodar.clusters.evaluation;
 
 import edu.ucuenca.kodar.clusters.Clustering;
+import edu.ucuenca.kodar.clusters.engine.VectorStore;
+import java.io.File;
 import java.util.LinkedList;
 import java.util.List;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
 import org.apache.log4j.PropertyConfigurator;
 
 /**
@@ -55,10 +59,44 @@ public class Evaluate {
         }
     }
 
+    /**
+     * Same curve of {@link #elbowMethod(int, int, int)}, but the dataset is
+     * vectorized once and every k is clustered in memory concurrently.
+     *
+     * @param datasetPath
+     * @param start
+     * @param end
+     * @param inc
+     * @param warmStart seed each k with the solution of a previous k.
+     * @return csv file with the results.
+     * @throws Exception
+     */
+    public File elbowSweep(String datasetPath, int start, int end, int inc, boolean warmStart) throws Exception {
+        Clustering c = new Clustering(datasetPath);
+        c.vectorize();
+
+        VectorStore vectors = VectorStore.load(new Configuration(),
+                new Path(Clustering.SPARSE_VECTORS.getPath(), "tfidf-vectors"));
+        ElbowSweep sweep = new ElbowSweep();
+        sweep.setWarmStart(warmStart);
+        List<ElbowSweep.Result> results = sweep.sweep(vectors, start, end, inc);
+
+        File csv = new File(Clustering.EVALUATION, "wss levels.csv");
+        sweep.writeCsv(results, csv);
+        return csv;
+    }
+
     public static void main(String[] args) throws Exception {
         PropertyConfigurator.configure("log4j.properties");
 
-        Evaluate e = new Evaluate();
-        e.elbowMethod(50, 600, 50);
+        if (args.length >= 1) {
+            int start = args.length >= 2 ? Integer.parseInt(args[1]) : 50;
+            int end = args.length >= 3 ? Integer.parseInt(args[2]) : 600;
+            int inc = args.length >= 4 ? Integer.parseInt(args[3]) : 50;
+            Evaluate e = new Evaluate();
+            e.elbowSweep(args[0], start, end, inc, true);
+        } else {
+            throw new Exception("ERROR: Invalid number of arguments");
+        }
     }
 }
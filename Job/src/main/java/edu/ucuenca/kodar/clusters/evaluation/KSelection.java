@@ -0,0 +1,575 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.evaluation;
+
+import edu.ucuenca.kodar.clusters.engine.Cosine;
+import edu.ucuenca.kodar.clusters.engine.KMeans;
+import edu.ucuenca.kodar.clusters.engine.VectorStore;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.mahout.math.NamedVector;
+import org.apache.mahout.math.RandomAccessSparseVector;
+import org.apache.mahout.math.Vector;
+
+/**
+ * Chooses the number of clusters on a sample of the vectors. Each candidate k
+ * is clustered on a stratified sample and scored with the silhouette and the
+ * gap statistic; candidates are evaluated concurrently and the ones not
+ * finished within the time budget are discarded.
+ *
+ * The silhouette is averaged over enough points to be within
+ * <code>epsilon</code> of the silhouette of the sample with probability
+ * <code>1 - delta</code> (Hoeffding bound). The references of the gap
+ * statistic permute the documents of every term, so they keep the sparsity
+ * of the sample.
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class KSelection {
+
+    /**
+     * Rule used to choose k.
+     */
+    public enum Criterion {
+
+        /**
+         * Greatest mean silhouette.
+         */
+        SILHOUETTE,
+        /**
+         * Smallest k with <code>gap(k) &gt;= gap(k') - s(k')</code>, k' the
+         * next candidate.
+         */
+        GAP
+    }
+
+    private final Logger log = Logger.getLogger(KSelection.class.getName());
+
+    private int numThreads = Runtime.getRuntime().availableProcessors();
+    private Criterion criterion = Criterion.SILHOUETTE;
+    private int sampleSize = 4000;
+    private double epsilon = 0.05;
+    private double delta = 0.05;
+    private int references = 5;
+    private long timeBudget = TimeUnit.MINUTES.toMillis(10);
+    private int maxIterations = 50;
+    private long seed = 1;
+
+    private List<Result> results;
+
+    /**
+     * Evaluate k = start, start + inc, ..., end and return the chosen k.
+     *
+     * @param vectors
+     * @param start
+     * @param end
+     * @param inc
+     * @return chosen k, <code>start</code> if no candidate finished.
+     * @throws InterruptedException
+     */
+    public int select(VectorStore vectors, int start, int end, int inc) throws InterruptedException {
+        long begin = System.currentTimeMillis();
+        Random random = new Random(seed);
+        final List<NamedVector> sample = stratifiedSample(vectors, random);
+        final VectorStore store = new VectorStore(sample);
+        final Vector[] points = new Vector[store.size()];
+        for (int i = 0; i < points.length; i++) {
+            points[i] = new RandomAccessSparseVector(store.get(i));
+        }
+        final int[] evaluated = evaluationPoints(points.length, random);
+        final List<VectorStore> referenceStores = new ArrayList<>(references);
+        for (int b = 0; b < references; b++) {
+            referenceStores.add(reference(store, random));
+        }
+        log.log(Level.INFO, String.format("Selecting k over a sample of %d vectors, silhouette of %d points (error %.4f)",
+                store.size(), evaluated.length, silhouetteError(evaluated.length)));
+
+        List<Integer> ks = new ArrayList<>();
+        for (int k = start; k <= end; k += inc) {
+            if (k <= store.size()) {
+                ks.add(k);
+            }
+        }
+        List<Callable<Result>> tasks = new ArrayList<>();
+        for (final int k : coverageOrder(ks)) {
+            tasks.add(new Callable<Result>() {
+                @Override
+                public Result call() throws Exception {
+                    return evaluate(k, store, points, evaluated, referenceStores);
+                }
+            });
+        }
+
+        results = new ArrayList<>();
+        ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+        try {
+            long remaining = Math.max(0, timeBudget - (System.currentTimeMillis() - begin));
+            for (Future<Result> future : pool.invokeAll(tasks, remaining, TimeUnit.MILLISECONDS)) {
+                try {
+                    results.add(future.get());
+                } catch (CancellationException e) {
+                    // Out of the time budget.
+                } catch (ExecutionException e) {
+                    log.log(Level.WARN, "Candidate skipped, its evaluation failed", e.getCause());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        Collections.sort(results, new Comparator<Result>() {
+            @Override
+            public int compare(Result a, Result b) {
+                return Integer.compare(a.getK(), b.getK());
+            }
+        });
+        log.log(Level.INFO, String.format("%d of %d candidates evaluated within %d ms", results.size(), ks.size(),
+                timeBudget));
+        return choose(start);
+    }
+
+    private int choose(int fallback) {
+        if (results.isEmpty()) {
+            return fallback;
+        }
+        if (criterion == Criterion.GAP) {
+            for (int i = 0; i + 1 < results.size(); i++) {
+                Result next = results.get(i + 1);
+                if (results.get(i).getGap() >= next.getGap() - next.getGapError()) {
+                    return results.get(i).getK();
+                }
+            }
+            return results.get(results.size() - 1).getK();
+        }
+        Result best = results.get(0);
+        for (Result result : results) {
+            if (result.getSilhouette() > best.getSilhouette()) {
+                best = result;
+            }
+        }
+        return best.getK();
+    }
+
+    /**
+     * Sample with proportional allocation over strata of documents with the
+     * same number of terms. Strata get the floor of their quota and the
+     * points left go to the largest remainders, so the sample has exactly
+     * <code>sampleSize</code> vectors.
+     */
+    List<NamedVector> stratifiedSample(VectorStore vectors, Random random) {
+        if (vectors.size() <= sampleSize) {
+            List<NamedVector> all = new ArrayList<>(vectors.size());
+            for (int i = 0; i < vectors.size(); i++) {
+                all.add(vectors.get(i));
+            }
+            return all;
+        }
+        Map<Integer, List<Integer>> strata = new TreeMap<>();
+        for (int i = 0; i < vectors.size(); i++) {
+            int terms = vectors.get(i).getNumNondefaultElements();
+            if (!strata.containsKey(terms)) {
+                strata.put(terms, new ArrayList<Integer>());
+            }
+            strata.get(terms).add(i);
+        }
+        List<List<Integer>> groups = new ArrayList<>(strata.values());
+        int[] sizes = new int[groups.size()];
+        final double[] remainders = new double[groups.size()];
+        List<Integer> order = new ArrayList<>(groups.size());
+        double fraction = (double) sampleSize / vectors.size();
+        int left = sampleSize;
+        for (int s = 0; s < groups.size(); s++) {
+            double quota = groups.get(s).size() * fraction;
+            sizes[s] = (int) Math.floor(quota);
+            remainders[s] = quota - sizes[s];
+            left -= sizes[s];
+            order.add(s);
+        }
+        Collections.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Double.compare(remainders[b], remainders[a]);
+            }
+        });
+        for (int i = 0; i < left; i++) {
+            sizes[order.get(i)]++;
+        }
+
+        List<NamedVector> sample = new ArrayList<>(sampleSize);
+        for (int s = 0; s < groups.size(); s++) {
+            List<Integer> stratum = groups.get(s);
+            Collections.shuffle(stratum, random);
+            for (int i = 0; i < sizes[s]; i++) {
+                sample.add(vectors.get(stratum.get(i)));
+            }
+        }
+        return sample;
+    }
+
+    /**
+     * Points used to estimate the silhouette, as many as the Hoeffding bound
+     * requires for silhouettes in <code>[-1, 1]</code>.
+     */
+    private int[] evaluationPoints(int size, Random random) {
+        int required = (int) Math.ceil(2 * Math.log(2 / delta) / (epsilon * epsilon));
+        List<Integer> indexes = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            indexes.add(i);
+        }
+        Collections.shuffle(indexes, random);
+        int[] evaluated = new int[Math.min(size, required)];
+        for (int i = 0; i < evaluated.length; i++) {
+            evaluated[i] = indexes.get(i);
+        }
+        return evaluated;
+    }
+
+    private double silhouetteError(int points) {
+        return Math.sqrt(2 * Math.log(2 / delta) / points);
+    }
+
+    /**
+     * Reference dataset of the gap statistic: the values of every term are
+     * moved to random documents.
+     */
+    private VectorStore reference(VectorStore sample, Random random) {
+        Vector[] permuted = new Vector[sample.size()];
+        for (int i = 0; i < permuted.length; i++) {
+            permuted[i] = new RandomAccessSparseVector(sample.getCardinality());
+        }
+        for (int i = 0; i < sample.size(); i++) {
+            for (Vector.Element element : sample.get(i).nonZeroes()) {
+                permuted[random.nextInt(permuted.length)].setQuick(element.index(), element.get());
+            }
+        }
+        List<NamedVector> reference = new ArrayList<>(permuted.length);
+        for (int i = 0; i < permuted.length; i++) {
+            reference.add(new NamedVector(permuted[i], String.valueOf(i)));
+        }
+        return new VectorStore(reference);
+    }
+
+    private Result evaluate(int k, VectorStore sample, Vector[] points, int[] evaluated,
+            List<VectorStore> referenceStores) throws Exception {
+        long begin = System.currentTimeMillis();
+        KMeans kmeans = cluster(sample, k);
+        double silhouette = silhouette(kmeans.getAssignments(), k, points, evaluated);
+
+        double logW = Math.log(kmeans.getCost());
+        double[] referenceLogW = new double[referenceStores.size()];
+        double mean = 0;
+        for (int b = 0; b < referenceLogW.length; b++) {
+            referenceLogW[b] = Math.log(cluster(referenceStores.get(b), k).getCost());
+            mean += referenceLogW[b] / referenceLogW.length;
+        }
+        double variance = 0;
+        for (double value : referenceLogW) {
+            variance += (value - mean) * (value - mean) / referenceLogW.length;
+        }
+        double gapError = Math.sqrt(variance) * Math.sqrt(1 + 1.0 / referenceLogW.length);
+
+        Result result = new Result(k, silhouette, silhouetteError(evaluated.length), mean - logW, gapError,
+                System.currentTimeMillis() - begin);
+        log.log(Level.INFO, String.format("k=%d silhouette=%f gap=%f (%f) time=%dms", k, result.getSilhouette(),
+                result.getGap(), result.getGapError(), result.getMillis()));
+        return result;
+    }
+
+    private KMeans cluster(VectorStore vectors, int k) throws Exception {
+        KMeans kmeans = new KMeans(vectors);
+        kmeans.setNumThreads(1);
+        kmeans.setMaxIterations(maxIterations);
+        kmeans.setMinReassignedFraction(0.001);
+        kmeans.run(KMeans.plusPlusSeeds(vectors, k, seed + k));
+        return kmeans;
+    }
+
+    /**
+     * Mean silhouette of the evaluated points, with cosine distance to every
+     * point of the sample.
+     */
+    private static double silhouette(int[] assignments, int k, Vector[] points, int[] evaluated)
+            throws InterruptedException {
+        int[] sizes = new int[k];
+        for (int assignment : assignments) {
+            sizes[assignment]++;
+        }
+        double[] norms = new double[points.length];
+        for (int j = 0; j < points.length; j++) {
+            norms[j] = Cosine.norm(points[j]);
+        }
+
+        double total = 0;
+        double[] sums = new double[k];
+        for (int i : evaluated) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException("Out of the time budget");
+            }
+            int own = assignments[i];
+            if (sizes[own] <= 1) {
+                // The silhouette of a singleton is 0.
+                continue;
+            }
+            Arrays.fill(sums, 0);
+            for (int j = 0; j < points.length; j++) {
+                if (j != i) {
+                    sums[assignments[j]] += Cosine.distance(points[i], norms[i], points[j], norms[j]);
+                }
+            }
+            double a = sums[own] / (sizes[own] - 1);
+            double b = Double.MAX_VALUE;
+            for (int c = 0; c < k; c++) {
+                if (c != own && sizes[c] > 0) {
+                    b = Math.min(b, sums[c] / sizes[c]);
+                }
+            }
+            if (b != Double.MAX_VALUE && Math.max(a, b) > 0) {
+                total += (b - a) / Math.max(a, b);
+            }
+        }
+        return total / evaluated.length;
+    }
+
+    /**
+     * Order candidates so that any prefix covers the whole range: both ends
+     * first and then the middle of every interval.
+     */
+    static List<Integer> coverageOrder(List<Integer> ks) {
+        List<Integer> order = new ArrayList<>(ks.size());
+        if (ks.isEmpty()) {
+            return order;
+        }
+        order.add(ks.get(0));
+        if (ks.size() > 1) {
+            order.add(ks.get(ks.size() - 1));
+        }
+        LinkedList<int[]> intervals = new LinkedList<>();
+        intervals.add(new int[]{0, ks.size() - 1});
+        while (!intervals.isEmpty()) {
+            int[] interval = intervals.removeFirst();
+            if (interval[1] - interval[0] < 2) {
+                continue;
+            }
+            int middle = (interval[0] + interval[1]) / 2;
+            order.add(ks.get(middle));
+            intervals.add(new int[]{interval[0], middle});
+            intervals.add(new int[]{middle, interval[1]});
+        }
+        return order;
+    }
+
+    /**
+     * Write the evaluated candidates.
+     *
+     * @param file
+     * @throws IOException
+     */
+    public void writeCsv(File file) throws IOException {
+        if (!file.getParentFile().exists()) {
+            file.getParentFile().mkdirs();
+        }
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(file))) {
+            bw.write("k,silhouette,silhouetteError,gap,gapError,millis");
+            bw.newLine();
+            for (Result result : results) {
+                bw.write(result.getK() + "," + result.getSilhouette() + "," + result.getSilhouetteError() + ","
+                        + result.getGap() + "," + result.getGapError() + "," + result.getMillis());
+                bw.newLine();
+            }
+        }
+        log.log(Level.INFO, "K selection written in " + file);
+    }
+
+    /**
+     * Candidates evaluated by the last {@link #select}, sorted by k.
+     *
+     * @return
+     */
+    public List<Result> getResults() {
+        return results;
+    }
+
+    public int getNumThreads() {
+        return numThreads;
+    }
+
+    public void setNumThreads(int numThreads) {
+        this.numThreads = numThreads;
+    }
+
+    public Criterion getCriterion() {
+        return criterion;
+    }
+
+    public void setCriterion(Criterion criterion) {
+        this.criterion = criterion;
+    }
+
+    public int getSampleSize() {
+        return sampleSize;
+    }
+
+    /**
+     * Number of vectors clustered for every candidate, by default 4000.
+     *
+     * @param sampleSize
+     */
+    public void setSampleSize(int sampleSize) {
+        this.sampleSize = sampleSize;
+    }
+
+    public double getEpsilon() {
+        return epsilon;
+    }
+
+    /**
+     * Maximum error of the estimated silhouette, by default 0.05.
+     *
+     * @param epsilon
+     */
+    public void setEpsilon(double epsilon) {
+        this.epsilon = epsilon;
+    }
+
+    public double getDelta() {
+        return delta;
+    }
+
+    /**
+     * Probability that the error of the silhouette exceeds epsilon, by default
+     * 0.05.
+     *
+     * @param delta
+     */
+    public void setDelta(double delta) {
+        this.delta = delta;
+    }
+
+    public int getReferences() {
+        return references;
+    }
+
+    /**
+     * Number of reference datasets of the gap statistic, by default 5.
+     *
+     * @param references
+     */
+    public void setReferences(int references) {
+        this.references = references;
+    }
+
+    public long getTimeBudget() {
+        return timeBudget;
+    }
+
+    /**
+     * Time allowed to evaluate candidates, in milliseconds. By default 10
+     * minutes.
+     *
+     * @param timeBudget
+     */
+    public void setTimeBudget(long timeBudget) {
+        this.timeBudget = timeBudget;
+    }
+
+    public int getMaxIterations() {
+        return maxIterations;
+    }
+
+    public void setMaxIterations(int maxIterations) {
+        this.maxIterations = maxIterations;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Scores of one candidate k.
+     */
+    public static class Result {
+
+        private final int k;
+        private final double silhouette;
+        private final double silhouetteError;
+        private final double gap;
+        private final double gapError;
+        private final long millis;
+
+        public Result(int k, double silhouette, double silhouetteError, double gap, double gapError, long millis) {
+            this.k = k;
+            this.silhouette = silhouette;
+            this.silhouetteError = silhouetteError;
+            this.gap = gap;
+            this.gapError = gapError;
+            this.millis = millis;
+        }
+
+        public int getK() {
+            return k;
+        }
+
+        public double getSilhouette() {
+            return silhouette;
+        }
+
+        public double getSilhouetteError() {
+            return silhouetteError;
+        }
+
+        public double getGap() {
+            return gap;
+        }
+
+        /**
+         * Standard deviation of the references, <code>s(k)</code>.
+         *
+         * @return
+         */
+        public double getGapError() {
+            return gapError;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+    }
+}
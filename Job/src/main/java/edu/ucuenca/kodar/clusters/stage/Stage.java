@@ -0,0 +1,163 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.stage;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.apache.hadoop.fs.Path;
+
+/**
+ * A step of the work-flow with the paths it reads and writes. A stage depends
+ * on every stage added before it to the same {@link StageScheduler} that
+ * writes what it reads, reads what it writes or writes the same paths, so
+ * running them concurrently gives the same results as running them in the
+ * order they were added. A path covers everything below it.
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public abstract class Stage {
+
+    private final String name;
+    private final List<Path> inputs = new ArrayList<>();
+    private final List<Path> outputs = new ArrayList<>();
+    private final List<Stage> after = new ArrayList<>();
+
+    public Stage(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Execute the stage.
+     *
+     * @throws Exception
+     */
+    public abstract void run() throws Exception;
+
+    /**
+     * Declare the paths read by this stage.
+     *
+     * @param paths
+     * @return this stage.
+     */
+    public Stage reads(Path... paths) {
+        inputs.addAll(Arrays.asList(paths));
+        return this;
+    }
+
+    /**
+     * Declare the files or directories read by this stage.
+     *
+     * @param files
+     * @return this stage.
+     */
+    public Stage reads(File... files) {
+        for (File file : files) {
+            inputs.add(new Path(file.getPath()));
+        }
+        return this;
+    }
+
+    /**
+     * Declare the paths written by this stage.
+     *
+     * @param paths
+     * @return this stage.
+     */
+    public Stage writes(Path... paths) {
+        outputs.addAll(Arrays.asList(paths));
+        return this;
+    }
+
+    /**
+     * Declare the files or directories written by this stage.
+     *
+     * @param files
+     * @return this stage.
+     */
+    public Stage writes(File... files) {
+        for (File file : files) {
+            outputs.add(new Path(file.getPath()));
+        }
+        return this;
+    }
+
+    /**
+     * Declare a dependency that is not visible in the paths, i.e. a value
+     * computed by another stage.
+     *
+     * @param stages
+     * @return this stage.
+     */
+    public Stage after(Stage... stages) {
+        after.addAll(Arrays.asList(stages));
+        return this;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public List<Path> getInputs() {
+        return Collections.unmodifiableList(inputs);
+    }
+
+    public List<Path> getOutputs() {
+        return Collections.unmodifiableList(outputs);
+    }
+
+    /**
+     * Return true if this stage must run after <code>other</code>, which was
+     * added before it.
+     *
+     * @param other
+     * @return
+     */
+    public boolean dependsOn(Stage other) {
+        return after.contains(other) || overlap(inputs, other.outputs) || overlap(outputs, other.outputs)
+                || overlap(outputs, other.inputs);
+    }
+
+    private static boolean overlap(List<Path> paths, List<Path> others) {
+        for (Path path : paths) {
+            for (Path other : others) {
+                if (contains(path, other) || contains(other, path)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Return true if <code>child</code> is <code>parent</code> or is below
+     * it.
+     */
+    private static boolean contains(Path parent, Path child) {
+        String p = parent.toUri().getPath();
+        String c = child.toUri().getPath();
+        return c.equals(p) || c.startsWith(p.endsWith("/") ? p : p + "/");
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
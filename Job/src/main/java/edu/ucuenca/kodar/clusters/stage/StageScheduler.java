@@ -0,0 +1,202 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.stage;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+/**
+ * Runs a DAG of {@link Stage}s on a bounded pool of threads. A stage is
+ * submitted once every stage it depends on has finished, so independent
+ * branches run concurrently and a waiting stage never holds a thread.
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class StageScheduler {
+
+    private final Logger log = Logger.getLogger(StageScheduler.class.getName());
+
+    private final int threads;
+    private final List<Stage> stages = new ArrayList<>();
+    private final List<StageTiming> timings = Collections.synchronizedList(new ArrayList<StageTiming>());
+    private long millis;
+
+    /**
+     * @param threads maximum number of stages running at the same time.
+     */
+    public StageScheduler(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    /**
+     * Add a stage, it depends on the stages added before it that touch its
+     * paths.
+     *
+     * @param <T>
+     * @param stage
+     * @return the stage.
+     */
+    public <T extends Stage> T add(T stage) {
+        stages.add(stage);
+        return stage;
+    }
+
+    /**
+     * Run every stage. If one fails, the stages not started are skipped and
+     * the running ones are interrupted.
+     *
+     * @throws Exception the failure of the first stage that failed.
+     */
+    public void run() throws Exception {
+        int n = stages.size();
+        int[] pending = new int[n];
+        List<List<Integer>> dependents = new ArrayList<>(n);
+        List<List<String>> dependencies = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            dependents.add(new ArrayList<Integer>());
+            dependencies.add(new ArrayList<String>());
+            for (int j = 0; j < i; j++) {
+                if (stages.get(i).dependsOn(stages.get(j))) {
+                    pending[i]++;
+                    dependents.get(j).add(i);
+                    dependencies.get(i).add(stages.get(j).getName());
+                }
+            }
+        }
+
+        timings.clear();
+        long begin = System.currentTimeMillis();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CompletionService<Integer> completion = new ExecutorCompletionService<>(pool);
+        try {
+            int submitted = 0;
+            for (int i = 0; i < n; i++) {
+                if (pending[i] == 0) {
+                    submit(completion, i, begin, dependencies.get(i));
+                    submitted++;
+                }
+            }
+            for (int finished = 0; finished < submitted; finished++) {
+                Future<Integer> done = completion.take();
+                int i;
+                try {
+                    i = done.get();
+                } catch (ExecutionException ex) {
+                    if (ex.getCause() instanceof Exception) {
+                        throw (Exception) ex.getCause();
+                    }
+                    throw ex;
+                }
+                for (int dependent : dependents.get(i)) {
+                    if (--pending[dependent] == 0) {
+                        submit(completion, dependent, begin, dependencies.get(dependent));
+                        submitted++;
+                    }
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        millis = System.currentTimeMillis() - begin;
+
+        long work = 0;
+        for (StageTiming timing : timings) {
+            work += timing.getMillis();
+        }
+        log.log(Level.INFO, String.format("%d stages finished in %dms, %dms of work in %d threads", n, millis, work,
+                threads));
+    }
+
+    private void submit(CompletionService<Integer> completion, final int index, final long begin,
+            final List<String> dependencies) {
+        final Stage stage = stages.get(index);
+        completion.submit(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                long start = System.currentTimeMillis();
+                stage.run();
+                long elapsed = System.currentTimeMillis() - start;
+                timings.add(new StageTiming(stage.getName(), Thread.currentThread().getName(), start - begin,
+                        elapsed, dependencies));
+                log.log(Level.INFO, String.format("Stage %s finished in %dms", stage.getName(), elapsed));
+                return index;
+            }
+        });
+    }
+
+    /**
+     * Return the timing of the stages of the last run, in the order they
+     * finished.
+     *
+     * @return
+     */
+    public List<StageTiming> getTimings() {
+        synchronized (timings) {
+            return new ArrayList<>(timings);
+        }
+    }
+
+    /**
+     * Return the elapsed time of the last run.
+     *
+     * @return
+     */
+    public long getMillis() {
+        return millis;
+    }
+
+    /**
+     * Write the timing of every stage with the stages it waited for.
+     *
+     * @param file
+     * @throws IOException
+     */
+    public void writeCsv(File file) throws IOException {
+        if (!file.getParentFile().exists()) {
+            file.getParentFile().mkdirs();
+        }
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(file))) {
+            bw.write("stage,thread,start,millis,dependencies");
+            bw.newLine();
+            for (StageTiming timing : getTimings()) {
+                StringBuilder after = new StringBuilder();
+                for (String dependency : timing.getDependencies()) {
+                    after.append(after.length() > 0 ? " " : "").append(dependency);
+                }
+                bw.write(timing.getStage() + "," + timing.getThread() + "," + timing.getStart() + ","
+                        + timing.getMillis() + "," + after);
+                bw.newLine();
+            }
+        }
+        log.log(Level.INFO, "Stage timings written in " + file);
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.stage;
+
+import java.util.List;
+
+/**
+ * When and where a {@link Stage} ran.
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class StageTiming {
+
+    private final String stage;
+    private final String thread;
+    private final long start;
+    private final long millis;
+    private final List<String> dependencies;
+
+    /**
+     * @param stage
+     * @param thread
+     * @param start milliseconds since the scheduler started.
+     * @param millis
+     * @param dependencies names of the stages it waited for.
+     */
+    public StageTiming(String stage, String thread, long start, long millis, List<String> dependencies) {
+        this.stage = stage;
+        this.thread = thread;
+        this.start = start;
+        this.millis = millis;
+        this.dependencies = dependencies;
+    }
+
+    public String getStage() {
+        return stage;
+    }
+
+    public String getThread() {
+        return thread;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    public List<String> getDependencies() {
+        return dependencies;
+    }
+}
@@ -6,10 +6,16 @@
 package edu.ucuenca.kodar.utils;
 
 import com.google.gson.Gson;
+import edu.ucuenca.kodar.clusters.ClusteredDocument;
+import edu.ucuenca.kodar.clusters.engine.MembershipWritable;
+import edu.ucuenca.kodar.clusters.engine.SplitTree;
 import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
@@ -28,10 +34,6 @@ import org.apache.jena.vocabulary.RDFS;
 public class ExportFileClusterig {
 
     private static ExportFileClusterig instanceExport = new ExportFileClusterig();
-    private static final String delimiter = "2db5c8";
-    private static final String kw1 = "Cluster Id: ",
-            kw2 = "Content: ", kw3 = " Author: ", kw6 = " Title: ",
-            kw4 = " URI_A: ", kw5 = " URI_P: ";
 
     private ExportFileClusterig() {
     }
@@ -49,7 +51,7 @@ public class ExportFileClusterig {
         FileSystem fs = FileSystem.get(conf);
         SequenceFile.Reader reader = new SequenceFile.Reader(fs, path, conf);
         Text k = new Text();
-        Text v = new Text();
+        ClusteredDocument v = new ClusteredDocument();
 
         File file = new File(pathToWrite);
         FileWriter fw = new FileWriter(file);
@@ -59,19 +61,12 @@ public class ExportFileClusterig {
             file.createNewFile();
         }
 
-        bw.write("clusterId,label,author,kw,title,uriAuthor,uriPublication" + newline);
+        bw.write("clusterId,label,author,kw,title,uriAuthor,uriPublication,memberships" + newline);
         while (reader.next(k, v)) {
-            String[] values = v.toString().split(delimiter);
-            for (String value : values) {
-                String cluster = value.substring(value.indexOf(kw1) + kw1.length(), value.indexOf(kw2));
-                String kw = value.substring(value.indexOf(kw2) + kw2.length(), value.indexOf(kw3));
-                String author = value.substring(value.indexOf(kw3) + kw3.length(), value.indexOf(kw4));
-                String uriA = value.substring(value.indexOf(kw4) + kw4.length(), value.indexOf(kw5));
-                String uriP = value.substring(value.indexOf(kw5) + kw5.length(), value.indexOf(kw6));
-                String title = value.substring(value.indexOf(kw6) + kw6.length());
-                bw.write(cluster + "," + k.toString() + "," + author + "," + kw + "," + title + "," + uriA + "," + uriP);
-                bw.write(newline);
-            }
+            bw.write(v.getClusterId() + "," + k.toString() + "," + v.getAuthor() + "," + v.getDocumentContent() + ","
+                    + v.getDocumentTitle() + "," + v.getAuthorUri() + "," + v.getPublicationUri() + ","
+                    + formatMemberships(v.getMemberships()));
+            bw.write(newline);
 
         }
 
@@ -79,6 +74,22 @@ public class ExportFileClusterig {
         bw.close();
     }
 
+    /**
+     * Memberships as <code>cluster:weight</code> separated by spaces, empty
+     * for hard clusterings.
+     */
+    private static String formatMemberships(MembershipWritable memberships) {
+        StringBuilder formatted = new StringBuilder();
+        for (int i = 0; i < memberships.size(); i++) {
+            if (i > 0) {
+                formatted.append(' ');
+            }
+            formatted.append(String.format(Locale.ROOT, "%d:%.4f", memberships.getClusterId(i),
+                    memberships.getWeight(i)));
+        }
+        return formatted.toString();
+    }
+
     static String clusterURI = "http://ucuenca.edu.ec/resource/cluster";
 
     public void writeResultFileRDF(String pathFileInput, String pathToWrite) throws IOException {
@@ -97,7 +108,7 @@ public class ExportFileClusterig {
         FileSystem fs = FileSystem.get(conf);
         SequenceFile.Reader reader = new SequenceFile.Reader(fs, path, conf);
         Text k = new Text();
-        Text v = new Text();
+        ClusteredDocument v = new ClusteredDocument();
 
         File file = new File(pathToWrite);
         FileWriter fw = new FileWriter(file);
@@ -110,21 +121,18 @@ public class ExportFileClusterig {
         String cluster = "", uriA = "", uriP = "";
 
         while (reader.next(k, v)) {
-            String[] values = v.toString().split(delimiter);
-            for (String value : values) {
-                cluster = value.substring(value.indexOf(kw1) + kw1.length(), value.indexOf(kw2)).trim();
-                uriA = value.substring(value.indexOf(kw4) + kw4.length(), value.indexOf(kw5));//.replace(",", "");
-                uriP = value.substring(value.indexOf(kw5) + kw5.length(), value.indexOf(kw6));//.replace(",", "");
-
-                if (!uriA.trim().equals("") && !uriP.trim().equals("")) {
-                    //uriA = URIUtil.encodeQuery(uriA);
-                    //uriP = URIUtil.encodeQuery(uriP);
-
-                    Resource r = model.createResource(clusterURI + cluster);
-                    r.addProperty(foafPublication, model.createResource(uriP));
-                    r.addProperty(RDFS.label, k.toString());
-                    model.createResource(uriP).addProperty(hasPerson, model.createResource(uriA));
-                }
+            cluster = String.valueOf(v.getClusterId());
+            uriA = v.getAuthorUri();
+            uriP = v.getPublicationUri();
+
+            if (!uriA.trim().equals("") && !uriP.trim().equals("")) {
+                //uriA = URIUtil.encodeQuery(uriA);
+                //uriP = URIUtil.encodeQuery(uriP);
+
+                Resource r = model.createResource(clusterURI + cluster);
+                r.addProperty(foafPublication, model.createResource(uriP));
+                r.addProperty(RDFS.label, k.toString());
+                model.createResource(uriP).addProperty(hasPerson, model.createResource(uriA));
             }
         }
         try {
@@ -149,7 +157,7 @@ public class ExportFileClusterig {
         FileSystem fs = FileSystem.get(conf);
         SequenceFile.Reader reader = new SequenceFile.Reader(fs, path, conf);
         Text k = new Text();
-        Text v = new Text();
+        ClusteredDocument v = new ClusteredDocument();
 
         File file = new File(pathToWrite);
         FileWriter fw = new FileWriter(file);
@@ -161,27 +169,42 @@ public class ExportFileClusterig {
 
         bw.write("[" + newline);
         while (reader.next(k, v)) {
-
-            String[] values = v.toString().split(delimiter);
-            for (String value : values) {
-                String cluster = value.substring(value.indexOf(kw1) + kw1.length(), value.indexOf(kw2));
-                String kw = value.substring(value.indexOf(kw2) + kw2.length(), value.indexOf(kw3));
-                String author = value.substring(value.indexOf(kw3) + kw3.length(), value.indexOf(kw4));
-                String uriA = value.substring(value.indexOf(kw4) + kw4.length(), value.indexOf(kw5));
-                String uriP = value.substring(value.indexOf(kw5) + kw5.length(), value.indexOf(kw6));
-                String title = value.substring(value.indexOf(kw6) + kw6.length());
-
-                Template template = new Template(k.toString(), kw, author, title, uriA, uriP);
-
-                String json = gson.toJson(template);
-
-                bw.write(json + "," + newline);
+            Template template = new Template(k.toString(), v.getDocumentContent(), v.getAuthor(),
+                    v.getDocumentTitle(), v.getAuthorUri(), v.getPublicationUri());
+            if (v.getMemberships().size() > 0) {
+                List<Template.Membership> memberships = new ArrayList<>();
+                for (int i = 0; i < v.getMemberships().size(); i++) {
+                    memberships.add(new Template.Membership(v.getMemberships().getClusterId(i),
+                            v.getMemberships().getWeight(i)));
+                }
+                template.setMemberships(memberships);
             }
 
+            String json = gson.toJson(template);
+
+            bw.write(json + "," + newline);
         }
         bw.write("]");
 
         System.out.println("File written in in " + pathToWrite);
         bw.close();
     }
+
+    /**
+     * Write the nodes of a split tree of bisecting k-means, without their
+     * centers. Leaves have <code>split</code> equal to
+     * {@link SplitTree#NOT_SPLIT}.
+     *
+     * @param pathFileInput
+     * @param pathToWrite
+     * @throws IOException
+     */
+    public void writeSplitTreeJSON(String pathFileInput, String pathToWrite) throws IOException {
+        SplitTree tree = SplitTree.read(new Configuration(), new Path(pathFileInput));
+
+        try (BufferedWriter bw = new BufferedWriter(new FileWriter(pathToWrite))) {
+            bw.write(new Gson().toJson(tree.getNodes()));
+        }
+        System.out.println("File written in " + pathToWrite);
+    }
 }
@@ -6,8 +6,11 @@
 package edu.ucuenca.kodar.utils;
 
 import edu.uc.mahout.base.topicmodel.Tagger;
+import edu.ucuenca.kodar.clusters.ClusteredDocument;
 import edu.ucuenca.kodar.utils.nlp.Category;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import net.didion.jwnl.JWNLException;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FileStatus;
@@ -25,8 +28,6 @@ import org.apache.mahout.common.HadoopUtil;
 public class NameCluster {
 
     private Configuration conf;
-    private static final String delimiter = "2db5c8", escapeContent = " Content: ", escapeAuthor = " Author:",
-            escapeTitle = " Title: ";
 
     public void execute(Path path) throws IOException, JWNLException, Exception {
         FileSystem fs = FileSystem.get(conf);
@@ -44,41 +45,56 @@ public class NameCluster {
 
             SequenceFile.Reader reader = new SequenceFile.Reader(fs, item.getPath(), conf);
             LongWritable k = new LongWritable();
-            Text v = new Text();
-            String document = "", kws, title;
+            ClusteredDocument v = new ClusteredDocument();
 
-            SequenceFile.Writer writeCluster = new SequenceFile.Writer(fs, conf, namedClusters, Text.class, Text.class);
+            SequenceFile.Writer writeCluster = new SequenceFile.Writer(fs, conf, namedClusters, Text.class,
+                    ClusteredDocument.class);
 
             System.out.println("Reading: " + path);
+            // Documents come one per record, grouped by cluster
+            List<ClusteredDocument> cluster = new ArrayList<>();
             while (reader.next(k, v)) {
-                //for (int i = 0; i < 2; i++) {
-
-                //reader.next(k, v);
-                String[] values = v.toString().split(delimiter);
-                int id = 0;
-
-                SequenceFile.Writer writer = new SequenceFile.Writer(fs, conf, temp, Text.class, Text.class);
-                for (String value : values) {
-                    kws = value.substring(value.indexOf(escapeContent) + escapeContent.length(),
-                            value.indexOf(escapeAuthor));
-                    title = value.substring(value.indexOf(escapeTitle) + escapeTitle.length());
-                    Category c = new Category(kws);
-                    c.populate();
-                    document = title + "\n" + kws + "\n" + c.toString();
-                    id++;
-                    writer.append(new Text(String.valueOf(id)), new Text(document));
+                if (!cluster.isEmpty() && cluster.get(0).getClusterId() != v.getClusterId()) {
+                    label(cluster, temp, writeCluster);
+                    cluster.clear();
                 }
-                writer.close();
-                Tagger tagger = new Tagger();
-                String label = tagger.tag(temp.toString());
-                writeCluster.append(new Text(label), v);
-                HadoopUtil.delete(conf, temp);
-                //}
+                ClusteredDocument document = new ClusteredDocument();
+                document.set(v);
+                cluster.add(document);
+            }
+            if (!cluster.isEmpty()) {
+                label(cluster, temp, writeCluster);
             }
+            reader.close();
             writeCluster.close();
         }
     }
 
+    private void label(List<ClusteredDocument> cluster, Path temp, SequenceFile.Writer writeCluster)
+            throws IOException, JWNLException, Exception {
+        FileSystem fs = FileSystem.get(conf);
+        String document, kws, title;
+        int id = 0;
+
+        SequenceFile.Writer writer = new SequenceFile.Writer(fs, conf, temp, Text.class, Text.class);
+        for (ClusteredDocument doc : cluster) {
+            kws = doc.getDocumentContent();
+            title = doc.getDocumentTitle();
+            Category c = new Category(kws);
+            c.populate();
+            document = title + "\n" + kws + "\n" + c.toString();
+            id++;
+            writer.append(new Text(String.valueOf(id)), new Text(document));
+        }
+        writer.close();
+        Tagger tagger = new Tagger();
+        Text label = new Text(tagger.tag(temp.toString()));
+        for (ClusteredDocument doc : cluster) {
+            writeCluster.append(label, doc);
+        }
+        HadoopUtil.delete(conf, temp);
+    }
+
     public Configuration getConf() {
         return conf;
     }
@@ -5,6 +5,8 @@
  */
 package edu.ucuenca.kodar.utils;
 
+import java.util.List;
+
 /**
  *
  * @author cuent
@@ -17,6 +19,7 @@ public class Template {
     private String title;
     private String uriAuthor;
     private String uriPublication;
+    private List<Membership> memberships;
 
     public Template(String cluster, String kw, String author, String title, String uri, String uriPublication) {
         this.cluster = cluster;
@@ -75,4 +78,39 @@ public class Template {
         this.uriPublication = uriPublication;
     }
 
+    public List<Membership> getMemberships() {
+        return memberships;
+    }
+
+    /**
+     * Top memberships of a soft clustering, left null for hard clusterings so
+     * they are not serialized.
+     *
+     * @param memberships
+     */
+    public void setMemberships(List<Membership> memberships) {
+        this.memberships = memberships;
+    }
+
+    /**
+     * Weight of a document in a cluster.
+     */
+    public static class Membership {
+
+        private final int cluster;
+        private final double weight;
+
+        public Membership(int cluster, double weight) {
+            this.cluster = cluster;
+            this.weight = weight;
+        }
+
+        public int getCluster() {
+            return cluster;
+        }
+
+        public double getWeight() {
+            return weight;
+        }
+    }
 }
@@ -21,6 +21,8 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import net.didion.jwnl.JWNLException;
 import net.didion.jwnl.data.IndexWord;
@@ -44,49 +46,84 @@ public class Category {
     }
 
     public void populate() throws JWNLException, IOException {
+        ExpansionCache cache = NlpUtils.getInstance().getExpansionCache();
         String[] keywords = kw.split(",");
         for (String keyword : keywords) {
-            keyword = NlpUtils.getInstance().stopWords(keyword);
-            POS[] pos = NlpUtils.getInstance().getPOS(keyword);
-            if (pos.length > 0) {
-                for (POS po : pos) {
-                    generate(po, keyword);
-                }
-            } else {
-                String[] tokens = NlpUtils.getInstance().tokenizer(keyword);
-                for (String token : tokens) {
-                    pos = NlpUtils.getInstance().getPOS(token);
-                    if (pos.length > 0) {
-                        for (POS p : pos) {
-                            generate(p, token);
-                        }
-                    }
+            List<Word> expansion = cache.get(keyword);
+            if (expansion == null) {
+                expansion = expand(keyword);
+                cache.put(keyword, expansion);
+            }
+            for (Word word : expansion) {
+                merge(word);
+            }
+        }
+    }
+
+    /**
+     * Words of a keyword in WordNet, in the order they are found. Empty if
+     * neither the keyword nor its tokens are in WordNet.
+     */
+    private List<Word> expand(String keyword) throws JWNLException, IOException {
+        NlpUtils nlp = NlpUtils.getInstance();
+        Map<String, Word> words = new LinkedHashMap<>();
+        keyword = nlp.stopWords(keyword);
+        POS[] pos = nlp.getPOS(keyword);
+        if (pos.length > 0) {
+            for (POS po : pos) {
+                generate(words, po, keyword);
+            }
+            return new ArrayList<>(words.values());
+        }
+        String[] tokens = nlp.tokenizer(keyword);
+        for (String token : tokens) {
+            POS[] tokenPos = nlp.getPOS(token);
+            if (tokenPos.length > 0) {
+                for (POS p : tokenPos) {
+                    generate(words, p, token);
                 }
-//                if (tokens.length == 2) {
-//                    POS[] posStart = NlpUtils.getInstance().getPOS(tokens[0]);
-//                    POS[] posEnd = NlpUtils.getInstance().getPOS(tokens[1]);
-//                    for (POS ps : posStart) {
-//                        for (POS pe : posEnd) {
-//                            findRelationships(NlpUtils.getInstance().getWord(ps, tokens[0]), NlpUtils.getInstance().getWord(pe, tokens[1]),
-//                                    PointerType.HYPERNYM);
-//                            findRelationships(NlpUtils.getInstance().getWord(ps, tokens[0]), NlpUtils.getInstance().getWord(pe, tokens[1]),
-//                                    PointerType.SIMILAR_TO);
-//                        }
+            }
+        }
+//            if (tokens.length == 2) {
+//                POS[] posStart = NlpUtils.getInstance().getPOS(tokens[0]);
+//                POS[] posEnd = NlpUtils.getInstance().getPOS(tokens[1]);
+//                for (POS ps : posStart) {
+//                    for (POS pe : posEnd) {
+//                        findRelationships(words, NlpUtils.getInstance().getWord(ps, tokens[0]),
+//                                NlpUtils.getInstance().getWord(pe, tokens[1]), PointerType.HYPERNYM);
+//                        findRelationships(words, NlpUtils.getInstance().getWord(ps, tokens[0]),
+//                                NlpUtils.getInstance().getWord(pe, tokens[1]), PointerType.SIMILAR_TO);
 //                    }
 //                }
-            }
+//            }
+        return new ArrayList<>(words.values());
+    }
+
+    /**
+     * Add a word of an expansion to the category, the cached word is copied.
+     */
+    private void merge(Word word) {
+        Word w = corpus.get(word.getValue());
+        if (w == null) {
+            w = new Word(word.getValue());
+            corpus.put(word.getValue(), w);
         }
+        w.getDefinitions().addAll(word.getDefinitions());
+        w.getHypernymy().addAll(word.getHypernymy());
+        w.getHyponymy().addAll(word.getHyponymy());
+        w.getSynonym().addAll(word.getSynonym());
+        w.getSimilar().addAll(word.getSimilar());
     }
 
     //Load definitions, synonyms, hyponym and hypernym
-    private void generate(POS pos, String word) throws JWNLException {
-        definitions(NlpUtils.getInstance().getWord(pos, word));
-        relatedWords(NlpUtils.getInstance().getWord(pos, word), PointerType.SIMILAR_TO);
-        relatedWords(NlpUtils.getInstance().getWord(pos, word), PointerType.HYPONYM);
-        relatedWords(NlpUtils.getInstance().getWord(pos, word), PointerType.HYPERNYM);
+    private void generate(Map<String, Word> words, POS pos, String word) throws JWNLException {
+        definitions(words, NlpUtils.getInstance().getWord(pos, word));
+        relatedWords(words, NlpUtils.getInstance().getWord(pos, word), PointerType.SIMILAR_TO);
+        relatedWords(words, NlpUtils.getInstance().getWord(pos, word), PointerType.HYPONYM);
+        relatedWords(words, NlpUtils.getInstance().getWord(pos, word), PointerType.HYPERNYM);
     }
 
-    private void definitions(IndexWord word) throws JWNLException {
+    private void definitions(Map<String, Word> corpus, IndexWord word) throws JWNLException {
         // Get an array of Synsets for a word
         Synset[] senses = word.getSenses();
         // Display all definitions
@@ -100,7 +137,7 @@ public class Category {
     }
 
     // This function lists related words of type of relation for a given word
-    private void relatedWords(IndexWord w, PointerType type) throws JWNLException {
+    private void relatedWords(Map<String, Word> corpus, IndexWord w, PointerType type) throws JWNLException {
         // Call a function that returns an ArrayList of related senses
         ArrayList a = NlpUtils.getInstance().getRelated(w, type);
         if (a != null) {
@@ -130,7 +167,8 @@ public class Category {
         }
     }
 
-    private void findRelationships(IndexWord start, IndexWord end, PointerType type) throws JWNLException {
+    private void findRelationships(Map<String, Word> corpus, IndexWord start, IndexWord end, PointerType type)
+            throws JWNLException {
         // Ask for a Relationship object
         Relationship rel = NlpUtils.getInstance().getRelationship(start, end, type);
         // If it's not null we found the relationship
@@ -0,0 +1,286 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.utils.nlp;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+/**
+ * Bounded cache of the WordNet expansion of each keyword, shared by every
+ * {@link Category}. The same keywords repeat across documents and clusters,
+ * a keyword is expanded once and the least recently used keywords are evicted
+ * when the cache is full. Keywords not found in WordNet are cached with an
+ * empty expansion.
+ *
+ * The cached words are not modified, categories copy them. Two threads that
+ * miss the same keyword may both expand it, the last one is kept.
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class ExpansionCache {
+
+    private static final Logger log = Logger.getLogger(ExpansionCache.class.getName());
+
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private final LinkedHashMap<String, List<Word>> entries = new LinkedHashMap<String, List<Word>>(16, 0.75f,
+            true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, List<Word>> eldest) {
+            if (size() > maxSize) {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+    private int maxSize;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong negativeHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param maxSize maximum number of keywords kept.
+     */
+    public ExpansionCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Return the expansion of a keyword, or null if it was not expanded yet.
+     *
+     * @param keyword
+     * @return
+     */
+    public List<Word> get(String keyword) {
+        List<Word> expansion;
+        synchronized (entries) {
+            expansion = entries.get(keyword);
+        }
+        if (expansion == null) {
+            misses.incrementAndGet();
+        } else if (expansion.isEmpty()) {
+            negativeHits.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return expansion;
+    }
+
+    /**
+     * Keep the expansion of a keyword, empty if it was not found in WordNet.
+     *
+     * @param keyword
+     * @param expansion
+     */
+    public void put(String keyword, List<Word> expansion) {
+        List<Word> kept = expansion.isEmpty() ? Collections.<Word>emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(expansion));
+        synchronized (entries) {
+            entries.put(keyword, kept);
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Remove every keyword, the metrics are kept.
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Set the maximum number of keywords kept, the least recently used are
+     * evicted if there are more.
+     *
+     * @param maxSize
+     */
+    public void setMaxSize(int maxSize) {
+        synchronized (entries) {
+            this.maxSize = maxSize;
+            Iterator<String> eldest = entries.keySet().iterator();
+            while (entries.size() > maxSize) {
+                eldest.next();
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Return the lookups of keywords found in WordNet that were cached.
+     *
+     * @return
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Return the lookups of keywords not found in WordNet that were cached.
+     *
+     * @return
+     */
+    public long getNegativeHits() {
+        return negativeHits.get();
+    }
+
+    /**
+     * Return the lookups of keywords that were expanded.
+     *
+     * @return
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Return the fraction of lookups, positive or negative, answered from the
+     * cache.
+     *
+     * @return
+     */
+    public double getHitRate() {
+        long cached = hits.get() + negativeHits.get();
+        long lookups = cached + misses.get();
+        return lookups == 0 ? 0 : (double) cached / lookups;
+    }
+
+    /**
+     * Reset the metrics.
+     */
+    public void resetMetrics() {
+        hits.set(0);
+        negativeHits.set(0);
+        misses.set(0);
+        evictions.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d keywords, %d hits, %d negative hits, %d misses, %d evictions, hit rate %.3f",
+                size(), getHits(), getNegativeHits(), getMisses(), getEvictions(), getHitRate());
+    }
+
+    /**
+     * Write the cached keywords, from the least to the most recently used.
+     *
+     * @param file
+     * @throws IOException
+     */
+    public void save(File file) throws IOException {
+        List<Map.Entry<String, List<Word>>> snapshot;
+        synchronized (entries) {
+            snapshot = new ArrayList<>(entries.entrySet());
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeInt(snapshot.size());
+            for (Map.Entry<String, List<Word>> entry : snapshot) {
+                out.writeUTF(entry.getKey());
+                out.writeInt(entry.getValue().size());
+                for (Word word : entry.getValue()) {
+                    out.writeUTF(word.getValue());
+                    writeList(out, word.getDefinitions());
+                    writeList(out, word.getHypernymy());
+                    writeList(out, word.getHyponymy());
+                    writeList(out, word.getSynonym());
+                    writeList(out, word.getSimilar());
+                }
+            }
+        }
+        log.log(Level.INFO, String.format("%d expanded keywords written in %s", snapshot.size(), file));
+    }
+
+    /**
+     * Add the keywords written by {@link #save(File)}, a snapshot of another
+     * version is ignored.
+     *
+     * @param file
+     * @throws IOException
+     */
+    public void load(File file) throws IOException {
+        int loaded = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != SNAPSHOT_VERSION) {
+                log.log(Level.WARN, String.format("%s ignored, it was written by another version", file));
+                return;
+            }
+            for (int entry = in.readInt(); entry > 0; entry--) {
+                String keyword = in.readUTF();
+                List<Word> expansion = new ArrayList<>();
+                for (int words = in.readInt(); words > 0; words--) {
+                    Word word = new Word(in.readUTF());
+                    readList(in, word.getDefinitions());
+                    readList(in, word.getHypernymy());
+                    readList(in, word.getHyponymy());
+                    readList(in, word.getSynonym());
+                    readList(in, word.getSimilar());
+                    expansion.add(word);
+                }
+                put(keyword, expansion);
+                loaded++;
+            }
+        }
+        log.log(Level.INFO, String.format("%d expanded keywords read from %s", loaded, file));
+    }
+
+    private static void writeList(DataOutputStream out, List<String> values) throws IOException {
+        out.writeInt(values.size());
+        for (String value : values) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static void readList(DataInputStream in, List<String> values) throws IOException {
+        for (int size = in.readInt(); size > 0; size--) {
+            values.add(in.readUTF());
+        }
+    }
+}
@@ -0,0 +1,275 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.utils.nlp;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import net.didion.jwnl.JWNLException;
+import net.didion.jwnl.data.POS;
+import net.didion.jwnl.dictionary.file.DictionaryFileType;
+import net.didion.jwnl.dictionary.file_manager.FileManager;
+import net.didion.jwnl.dictionary.file_manager.FileManagerImpl;
+import net.didion.jwnl.util.factory.Param;
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+
+/**
+ * JWNL file manager that loads the Princeton WordNet files once and answers
+ * every lookup from memory. The index and exception files keep their lemmas,
+ * interned and sorted as in the files, next to the offsets of their lines, so
+ * a lookup is a binary search over the array instead of seeks and byte reads
+ * on a <code>RandomAccessFile</code>. Synsets are read at their offset in the
+ * data files.
+ *
+ * Lookups do not keep a file pointer and the tables are not modified after
+ * they are loaded, so concurrent readers need no locks. The caches of the
+ * <code>FileBackedDictionary</code> on top of it are not synchronized and
+ * are redundant with the tables, {@link NlpUtils} disables them. Configured in
+ * <code>properties.xml</code> as the <code>file_manager</code> of a
+ * <code>FileBackedDictionary</code>, with the <code>dictionary_path</code>
+ * param.
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class InMemoryFileManager implements FileManager {
+
+    private static final Logger log = Logger.getLogger(InMemoryFileManager.class.getName());
+
+    private static final List<?> ALL_POS = POS.getAllPOS();
+    private static final List<?> ALL_TYPES = DictionaryFileType.getAllDictionaryFileTypes();
+
+    private final Table[][] tables;
+    private final Random random = new Random();
+
+    /**
+     * Instance used by JWNL to call {@link #create(Map)}.
+     */
+    public InMemoryFileManager() {
+        tables = null;
+    }
+
+    /**
+     * Load the index, data and exception files of every part of speech in
+     * <code>dictionaryPath</code>. Missing files are loaded empty, their
+     * words are not found.
+     *
+     * @param dictionaryPath
+     * @throws IOException
+     */
+    public InMemoryFileManager(String dictionaryPath) throws IOException {
+        long start = System.currentTimeMillis();
+        tables = new Table[ALL_POS.size()][ALL_TYPES.size()];
+        long bytes = 0;
+        int lemmas = 0;
+        for (int p = 0; p < ALL_POS.size(); p++) {
+            for (int t = 0; t < ALL_TYPES.size(); t++) {
+                File file = new File(dictionaryPath, fileName((POS) ALL_POS.get(p),
+                        (DictionaryFileType) ALL_TYPES.get(t)));
+                tables[p][t] = new Table(file, ALL_TYPES.get(t) != DictionaryFileType.DATA);
+                bytes += tables[p][t].data.length;
+                lemmas += tables[p][t].lemmas.length;
+            }
+        }
+        log.log(Level.INFO, String.format("WordNet loaded from %s in %d ms: %d bytes, %d lemmas", dictionaryPath,
+                System.currentTimeMillis() - start, bytes, lemmas));
+    }
+
+    @Override
+    public Object create(Map params) throws JWNLException {
+        String path = ((Param) params.get(FileManagerImpl.PATH)).getValue();
+        try {
+            return new InMemoryFileManager(path);
+        } catch (IOException ex) {
+            throw new JWNLException("DICTIONARY_EXCEPTION_019", ex);
+        }
+    }
+
+    /**
+     * Princeton file name, as <code>PrincetonRandomAccessDictionaryFile</code>
+     * names them outside Windows.
+     */
+    static String fileName(POS pos, DictionaryFileType type) {
+        String extension;
+        if (POS.VERB.equals(pos)) {
+            extension = "verb";
+        } else if (POS.ADJECTIVE.equals(pos)) {
+            extension = "adj";
+        } else if (POS.ADVERB.equals(pos)) {
+            extension = "adv";
+        } else {
+            extension = "noun";
+        }
+        if (type == DictionaryFileType.EXCEPTION) {
+            return extension + ".exc";
+        }
+        return (type == DictionaryFileType.INDEX ? "index." : "data.") + extension;
+    }
+
+    private Table table(POS pos, DictionaryFileType type) {
+        return tables[ALL_POS.indexOf(pos)][ALL_TYPES.indexOf(type)];
+    }
+
+    @Override
+    public long getIndexedLinePointer(POS pos, DictionaryFileType type, String lemma) throws IOException {
+        Table table = table(pos, type);
+        int index = Arrays.binarySearch(table.lemmas, lemma);
+        return index >= 0 ? table.lines[index] : -1;
+    }
+
+    @Override
+    public String readLineAt(POS pos, DictionaryFileType type, long offset) throws IOException {
+        Table table = table(pos, type);
+        if (offset < 0 || offset >= table.data.length) {
+            return null;
+        }
+        int end = table.lineEnd((int) offset);
+        return new String(table.data, (int) offset, end - (int) offset, StandardCharsets.ISO_8859_1);
+    }
+
+    @Override
+    public long getNextLinePointer(POS pos, DictionaryFileType type, long offset) throws IOException {
+        Table table = table(pos, type);
+        if (offset < 0 || offset >= table.data.length) {
+            return -1;
+        }
+        return table.nextLine((int) offset);
+    }
+
+    @Override
+    public long getMatchingLinePointer(POS pos, DictionaryFileType type, long offset, String substring)
+            throws IOException {
+        Table table = table(pos, type);
+        for (int line = (int) Math.max(0, offset); line < table.data.length; line = table.nextLine(line)) {
+            if (table.firstWord(line).contains(substring)) {
+                return line;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public long getRandomLinePointer(POS pos, DictionaryFileType type) throws IOException {
+        Table table = table(pos, type);
+        long first = getFirstLinePointer(pos, type);
+        if (first < 0) {
+            return -1;
+        }
+        return table.nextLine((int) first + random.nextInt(table.data.length - (int) first));
+    }
+
+    @Override
+    public long getFirstLinePointer(POS pos, DictionaryFileType type) throws IOException {
+        Table table = table(pos, type);
+        for (int line = 0; line < table.data.length; line = table.nextLine(line)) {
+            if (!table.isComment(line)) {
+                return line;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * Bytes of a dictionary file with, for the index and exception files, the
+     * lemma and offset of every line that is not a comment.
+     */
+    private static final class Table {
+
+        private final byte[] data;
+        private final int[] lines;
+        private final String[] lemmas;
+
+        Table(File file, boolean indexed) throws IOException {
+            if (!file.exists()) {
+                log.log(Level.WARN, String.format("%s not found, its words are not found", file));
+                data = new byte[0];
+            } else {
+                data = Files.readAllBytes(file.toPath());
+            }
+            if (!indexed) {
+                lines = new int[0];
+                lemmas = new String[0];
+                return;
+            }
+
+            int count = 0;
+            for (int line = 0; line < data.length; line = nextLine(line)) {
+                if (!isComment(line)) {
+                    count++;
+                }
+            }
+            lines = new int[count];
+            lemmas = new String[count];
+            int i = 0;
+            for (int line = 0; line < data.length; line = nextLine(line)) {
+                if (!isComment(line)) {
+                    lines[i] = line;
+                    lemmas[i] = firstWord(line).intern();
+                    if (i > 0 && lemmas[i].compareTo(lemmas[i - 1]) < 0) {
+                        throw new IOException(String.format("%s is not sorted, %s after %s", file, lemmas[i],
+                                lemmas[i - 1]));
+                    }
+                    i++;
+                }
+            }
+        }
+
+        /**
+         * License lines start with spaces.
+         */
+        boolean isComment(int line) {
+            return data[line] == ' ' || data[line] == '\n' || data[line] == '\r';
+        }
+
+        int lineEnd(int offset) {
+            int end = offset;
+            while (end < data.length && data[end] != '\n' && data[end] != '\r') {
+                end++;
+            }
+            return end;
+        }
+
+        int nextLine(int offset) {
+            int next = lineEnd(offset);
+            if (next < data.length && data[next] == '\r') {
+                next++;
+            }
+            if (next < data.length && data[next] == '\n') {
+                next++;
+            }
+            return next;
+        }
+
+        String firstWord(int line) {
+            int end = line;
+            while (end < data.length && data[end] != ' ' && data[end] != '\n' && data[end] != '\r') {
+                end++;
+            }
+            return new String(data, line, end - line, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
@@ -17,11 +17,10 @@
  */
 package edu.ucuenca.kodar.utils.nlp;
 
+import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Iterator;
 
@@ -30,31 +29,43 @@ import net.didion.jwnl.data.*;
 import net.didion.jwnl.data.list.*;
 import net.didion.jwnl.data.relationship.*;
 import net.didion.jwnl.dictionary.*;
-import opennlp.tools.tokenize.Tokenizer;
-import opennlp.tools.tokenize.TokenizerME;
-import opennlp.tools.tokenize.TokenizerModel;
-import org.apache.lucene.analysis.Analyzer;
-import org.apache.lucene.analysis.TokenStream;
-import org.apache.lucene.analysis.core.StopAnalyzer;
-import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
-import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
-import org.apache.lucene.util.Version;
 
+/**
+ * WordNet lookups, tokenization and stop words removal. The instance is
+ * shared by concurrent threads without locks: the text processing is done by
+ * a {@link TextService} and the caches of the JWNL dictionary, which are not
+ * synchronized, are disabled. Every lookup then builds its own words and
+ * synsets from the {@link InMemoryFileManager} tables.
+ */
 public class NlpUtils {
 
     // Dictionary object
-    public static Dictionary wordnet;
-    private static NlpUtils instance;
+    private final Dictionary wordnet;
+    private static volatile NlpUtils instance;
+    private final ExpansionCache expansionCache = new ExpansionCache(10000);
+    private final TextService textService = new TextService(new File("en-token.bin"));
 
     private NlpUtils() {
         initialize("properties.xml");
+        // Create dictionary object
+        wordnet = Dictionary.getInstance();
+        if (wordnet instanceof AbstractCachingDictionary) {
+            ((AbstractCachingDictionary) wordnet).setCachingEnabled(false);
+        }
     }
 
     public static NlpUtils getInstance() {
-        if (instance == null) {
-            instance = new NlpUtils();
+        NlpUtils utils = instance;
+        if (utils == null) {
+            synchronized (NlpUtils.class) {
+                utils = instance;
+                if (utils == null) {
+                    utils = new NlpUtils();
+                    instance = utils;
+                }
+            }
         }
-        return instance;
+        return utils;
     }
 
     // Initialize the database!
@@ -66,8 +77,15 @@ public class NlpUtils {
         } catch (JWNLException e) {
             e.printStackTrace();
         }
-        // Create dictionary object
-        wordnet = Dictionary.getInstance();
+    }
+
+    /**
+     * Return the expansions of the keywords shared by every {@link Category}.
+     *
+     * @return
+     */
+    public ExpansionCache getExpansionCache() {
+        return expansionCache;
     }
 
     // Return array of POS objects for a given String
@@ -187,38 +205,12 @@ public class NlpUtils {
 
     // Words are separated by tokens
     public String[] tokenizer(String text) throws FileNotFoundException, IOException {
-        //load model to train tokens in english language
-        InputStream is = new FileInputStream("en-token.bin");
-        TokenizerModel tm = new TokenizerModel(is);
-        Tokenizer tokenizer = new TokenizerME(tm);
-        String[] tokens = tokenizer.tokenize(text);
-
-        if (is != null) {
-            is.close();
-        }
-        return tokens;
+        return textService.tokenize(text);
     }
 
     //Eliminate most common words of english language
     public String stopWords(String text) throws IOException {
-        Analyzer analyzer = new StopAnalyzer(Version.LUCENE_46);
-        //load default dataset of stop words from Lucene
-        TokenStream ts = analyzer.tokenStream("contents", new StringReader(text));
-
-        OffsetAttribute offsetAttribute = ts.addAttribute(OffsetAttribute.class);
-        CharTermAttribute charTermAttribute = ts.addAttribute(CharTermAttribute.class);
-
-        ts.reset();
-        text = "";
-
-        while (ts.incrementToken()) {
-//            int startOffset = offsetAttribute.startOffset();
-//            int endOffset = offsetAttribute.endOffset();
-            String term = charTermAttribute.toString();
-            text += term + " ";
-        }
-
-        return text;
+        return textService.stopWords(text);
     }
 
     public void findPartsOfSpeech(String word) throws JWNLException {
@@ -0,0 +1,116 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.utils.nlp;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import opennlp.tools.tokenize.TokenizerME;
+import opennlp.tools.tokenize.TokenizerModel;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.core.StopAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.util.Version;
+
+/**
+ * Tokenization and stop words removal shared by concurrent threads. The
+ * tokenizer model is read once, each thread tokenizes with its own
+ * {@link TokenizerME} since it is not thread-safe. The stop analyzer is
+ * reused, Lucene keeps the token stream of each thread and the terms are
+ * copied from their buffers into a builder of the thread.
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class TextService {
+
+    private final File tokenizerModel;
+    private volatile TokenizerModel model;
+    private final ThreadLocal<TokenizerME> tokenizers = new ThreadLocal<>();
+    private final Analyzer analyzer = new StopAnalyzer(Version.LUCENE_46);
+    private final ThreadLocal<StringBuilder> builders = new ThreadLocal<StringBuilder>() {
+        @Override
+        protected StringBuilder initialValue() {
+            return new StringBuilder();
+        }
+    };
+
+    /**
+     * @param tokenizerModel OpenNLP tokenizer model, read on the first
+     * tokenization.
+     */
+    public TextService(File tokenizerModel) {
+        this.tokenizerModel = tokenizerModel;
+    }
+
+    private TokenizerModel model() throws IOException {
+        TokenizerModel loaded = model;
+        if (loaded == null) {
+            synchronized (this) {
+                loaded = model;
+                if (loaded == null) {
+                    try (InputStream is = new FileInputStream(tokenizerModel)) {
+                        loaded = new TokenizerModel(is);
+                    }
+                    model = loaded;
+                }
+            }
+        }
+        return loaded;
+    }
+
+    /**
+     * Split a text in tokens.
+     *
+     * @param text
+     * @return
+     * @throws IOException if the tokenizer model cannot be read.
+     */
+    public String[] tokenize(String text) throws IOException {
+        TokenizerME tokenizer = tokenizers.get();
+        if (tokenizer == null) {
+            tokenizer = new TokenizerME(model());
+            tokenizers.set(tokenizer);
+        }
+        return tokenizer.tokenize(text);
+    }
+
+    /**
+     * Remove the most common words of english, the remaining terms are
+     * lowercased and followed by a space.
+     *
+     * @param text
+     * @return
+     * @throws IOException
+     */
+    public String stopWords(String text) throws IOException {
+        StringBuilder terms = builders.get();
+        terms.setLength(0);
+        // Closing the stream lets the analyzer reuse it in this thread.
+        try (TokenStream ts = analyzer.tokenStream("contents", text)) {
+            CharTermAttribute term = ts.addAttribute(CharTermAttribute.class);
+            ts.reset();
+            while (ts.incrementToken()) {
+                terms.append(term.buffer(), 0, term.length()).append(' ');
+            }
+            ts.end();
+        }
+        return terms.toString();
+    }
+}
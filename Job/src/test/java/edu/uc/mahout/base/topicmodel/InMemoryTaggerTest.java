@@ -0,0 +1,74 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.uc.mahout.base.topicmodel;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class InMemoryTaggerTest extends TestCase {
+
+    private static final List<String> DOCUMENTS = Arrays.asList(
+            "Ontology alignment for linked data",
+            "Semantic web services and linked data",
+            "Linked data quality on the semantic web",
+            "Neural networks for image recognition",
+            "Deep neural networks for speech recognition",
+            "Training neural networks on images");
+
+    public InMemoryTaggerTest(String testName) {
+        super(testName);
+    }
+
+    /**
+     * Test that the same seed gives the same terms and that the terms come
+     * from the vocabulary left after the pruning.
+     */
+    public void testSeed() throws Exception {
+        InMemoryTagger tagger = new InMemoryTagger();
+        tagger.setSeed(7);
+        List<String> terms = tagger.topTerms(DOCUMENTS, 5);
+        assertEquals(terms, tagger.topTerms(DOCUMENTS, 5));
+        assertEquals(terms.get(0), tagger.tag(DOCUMENTS));
+
+        Map<String, Double> weights = tagger.weights(DOCUMENTS);
+        assertTrue(weights.containsKey("linked data"));
+        assertTrue(weights.containsKey("neural networks"));
+        // Terms of a single document and the stop words are pruned.
+        assertFalse(weights.containsKey("ontology"));
+        assertFalse(weights.containsKey("for"));
+        for (String term : terms) {
+            assertTrue(weights.containsKey(term));
+        }
+    }
+
+    /**
+     * Test that no label is given when every term is pruned.
+     */
+    public void testNoLabel() throws Exception {
+        InMemoryTagger tagger = new InMemoryTagger();
+        assertEquals(InMemoryTagger.NO_LABEL, tagger.tag(Collections.singletonList("linked data linked data")));
+        assertEquals(InMemoryTagger.NO_LABEL, tagger.tag(Collections.<String>emptyList()));
+    }
+}
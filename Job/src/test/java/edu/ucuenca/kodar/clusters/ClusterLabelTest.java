@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import junit.framework.TestCase;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.mahout.common.Pair;
+import org.apache.mahout.common.iterator.sequencefile.SequenceFileIterable;
+
+/**
+ * Labeling of the sorted clusters with the seeded in-memory tagger, over the
+ * documents of <code>dataset.csv</code>.
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class ClusterLabelTest extends TestCase {
+
+    private static final File DATASET = new File("src/test/resources/edu/ucuenca/kodar/data/dataset.csv");
+    private static final String[] CLUSTERINGS = {"fkmeans", "kmeans"};
+    private static final int CLUSTERS = 4;
+
+    private final Configuration conf = new Configuration();
+
+    public ClusterLabelTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        clean();
+        List<String[]> rows = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(DATASET),
+                StandardCharsets.UTF_8))) {
+            String line = reader.readLine();
+            while ((line = reader.readLine()) != null) {
+                rows.add(line.split(",(?=([^\"]*\"[^\"]*\")*[^\"]*$)", -1));
+            }
+        }
+        // Every clustering groups the documents differently, the clusters of
+        // the second half are in another file.
+        for (int c = 0; c < CLUSTERINGS.length; c++) {
+            Path sort = new Path(new Path(Clustering.MR_JOBS.getPath(), CLUSTERINGS[c]), "sort");
+            for (int part = 0; part < 2; part++) {
+                try (SequenceFile.Writer writer = SequenceFile.createWriter(FileSystem.getLocal(conf), conf,
+                        new Path(sort, "part-r-0000" + part), LongWritable.class, ClusteredDocument.class)) {
+                    for (int cluster = part * CLUSTERS / 2; cluster < (part + 1) * CLUSTERS / 2; cluster++) {
+                        for (int id = 0; id < rows.size(); id++) {
+                            if ((id + c) % CLUSTERS == cluster) {
+                                writer.append(new LongWritable(cluster), document(id, cluster, rows.get(id)));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        clean();
+        super.tearDown();
+    }
+
+    private static void clean() {
+        FileUtil.fullyDelete(Clustering.MR_JOBS);
+        FileUtil.fullyDelete(Clustering.NAMED_CLUSTERS);
+        FileUtil.fullyDelete(Clustering.TOPMODEL);
+    }
+
+    private static ClusteredDocument document(long id, int cluster, String[] row) {
+        ClusteredDocument document = new ClusteredDocument();
+        document.setDocumentId(id);
+        document.setClusterId(cluster);
+        document.setAuthor(row[0]);
+        document.setAuthorUri(row[1]);
+        document.setPublicationUri(row[2]);
+        document.setDocumentTitle(row[3]);
+        document.setDocumentContent(row[4].replace("\"", ""));
+        return document;
+    }
+
+    /**
+     * Label the clusters with <code>threads</code> threads and return the
+     * named clusters as <code>clustering:cluster:document:label</code>.
+     */
+    private List<String> label(int threads) throws Exception {
+        FileUtil.fullyDelete(Clustering.TOPMODEL);
+        Clustering clustering = new Clustering(DATASET.getPath());
+        clustering.setInMemoryTagger(true);
+        clustering.setLabelThreads(threads);
+        clustering.labelCLusterFiles();
+
+        File[] workspaces = new File(Clustering.TOPMODEL, "workspaces").listFiles();
+        assertTrue(workspaces == null || workspaces.length == 0);
+
+        List<String> named = new ArrayList<>();
+        List<String> clusters = new ArrayList<>();
+        for (String name : CLUSTERINGS) {
+            long previous = -1;
+            int size = 0;
+            String label = null;
+            for (Pair<Text, ClusteredDocument> record : new SequenceFileIterable<Text, ClusteredDocument>(
+                    new Path(Clustering.NAMED_CLUSTERS.getPath(), name), conf)) {
+                ClusteredDocument document = record.getSecond();
+                if (document.getClusterId() != previous) {
+                    if (previous >= 0) {
+                        clusters.add(size + ":" + label);
+                    }
+                    previous = document.getClusterId();
+                    size = 0;
+                }
+                size++;
+                label = record.getFirst().toString();
+                named.add(name + ":" + document.getClusterId() + ":" + document.getDocumentId() + ":" + label);
+            }
+            clusters.add(size + ":" + label);
+        }
+        // The clusterings are listed in no particular order, so are the
+        // directories of their clusters.
+        List<String> documents = documents(clusters.size());
+        Collections.sort(clusters);
+        Collections.sort(documents);
+        assertEquals(clusters, documents);
+        return named;
+    }
+
+    /**
+     * Number of documents and label written in the directory of every
+     * cluster, as <code>size:label</code>.
+     */
+    private static List<String> documents(int clusters) throws IOException {
+        List<String> documents = new ArrayList<>();
+        for (int n = 0; n < clusters; n++) {
+            File docs = new File(new File(Clustering.TOPMODEL, "documents"), "docs" + n);
+            int size = 0;
+            while (new File(docs, "doc" + size).isFile()) {
+                size++;
+            }
+            documents.add(size + ":" + new String(Files.readAllBytes(new File(docs, "label").toPath())));
+        }
+        assertFalse(new File(new File(Clustering.TOPMODEL, "documents"), "docs" + clusters).exists());
+        return documents;
+    }
+
+    /**
+     * Test that the named clusters are written in the order of the sorted
+     * files with the same labels whatever the number of label threads.
+     */
+    public void testLabelThreads() throws Exception {
+        List<String> sequential = label(1);
+        List<String> concurrent = label(4);
+        assertEquals(sequential, concurrent);
+
+        List<String> clusters = new ArrayList<>();
+        for (String record : sequential) {
+            String cluster = record.substring(0, record.indexOf(':', record.indexOf(':') + 1));
+            if (!clusters.contains(cluster)) {
+                clusters.add(cluster);
+            }
+        }
+        List<String> expected = new ArrayList<>();
+        for (String name : CLUSTERINGS) {
+            for (int cluster = 0; cluster < CLUSTERS; cluster++) {
+                expected.add(name + ":" + cluster);
+            }
+        }
+        assertEquals(expected, clusters);
+    }
+}
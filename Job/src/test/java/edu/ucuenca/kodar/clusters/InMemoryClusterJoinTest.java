@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters;
+
+import edu.uc.mahout.base.topicmodel.SortMapperJob;
+import edu.ucuenca.kodar.clusters.engine.ClusterFiles;
+import edu.ucuenca.kodar.clusters.engine.MembershipWritable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import junit.framework.TestCase;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.mahout.common.Pair;
+import org.apache.mahout.common.iterator.sequencefile.SequenceFileIterable;
+
+/**
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class InMemoryClusterJoinTest extends TestCase {
+
+    private static final File DIR = new File("target/join-test");
+
+    private final Configuration conf = new Configuration();
+    private final Path base = new Path(DIR.getAbsolutePath());
+
+    public InMemoryClusterJoinTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        FileUtil.fullyDelete(DIR);
+    }
+
+    private void table(String name, long[] ids, String format) throws IOException {
+        try (SequenceFile.Writer writer = SequenceFile.createWriter(FileSystem.getLocal(conf), conf,
+                new Path(base, name), LongWritable.class, Text.class)) {
+            for (long id : ids) {
+                writer.append(new LongWritable(id), new Text(String.format(format, id)));
+            }
+        }
+    }
+
+    private void memberships(long[] ids, int[] clusters) throws IOException {
+        try (SequenceFile.Writer writer = SequenceFile.createWriter(FileSystem.getLocal(conf), conf,
+                new Path(base, "memberships/part-m-00000"), LongWritable.class, MembershipWritable.class)) {
+            for (int i = 0; i < ids.length; i++) {
+                writer.append(new LongWritable(ids[i]), new MembershipWritable(new int[]{clusters[i]},
+                        new double[]{1.0}, 1));
+            }
+        }
+    }
+
+    /**
+     * Test that only the documents in the three tables are grouped by cluster,
+     * as {@link SortMapperJob} does.
+     */
+    public void testJoin() throws Exception {
+        table("keywords", new long[]{1, 2, 3, 5}, "kw%d");
+        table("authors", new long[]{0, 1, 2, 3, 4, 5}, "author%1$d,uriA%1$d,uriP%1$d,title%1$d");
+        memberships(new long[]{1, 2, 4, 5}, new int[]{7, 3, 3, 7});
+
+        InMemoryClusterJoin join = new InMemoryClusterJoin(new Path(base, "memberships"), new Path(base, "keywords"),
+                new Path(base, "authors"), new Path(base, "sort"));
+        join.setConf(conf);
+        join.run();
+
+        List<Long> clusters = new ArrayList<>();
+        List<ClusteredDocument> documents = new ArrayList<>();
+        for (Pair<LongWritable, ClusteredDocument> record : new SequenceFileIterable<LongWritable, ClusteredDocument>(
+                new Path(base, "sort/part-r-00000"), conf)) {
+            clusters.add(record.getFirst().get());
+            documents.add(record.getSecond());
+        }
+        assertEquals(Arrays.asList(3L, 7L, 7L), clusters);
+
+        ClusteredDocument document = documents.get(2);
+        assertEquals(5, document.getDocumentId());
+        assertEquals(7, document.getClusterId());
+        assertEquals("kw5", document.getDocumentContent());
+        assertEquals("author5", document.getAuthor());
+        assertEquals("uriA5", document.getAuthorUri());
+        assertEquals("uriP5", document.getPublicationUri());
+        assertEquals("title5", document.getDocumentTitle());
+    }
+
+    /**
+     * Test that unsorted tables are rejected.
+     */
+    public void testUnsorted() throws Exception {
+        table("keywords", new long[]{2, 1}, "kw%d");
+        table("authors", new long[]{1, 2}, "author%d");
+        memberships(new long[]{1, 2}, new int[]{0, 0});
+
+        InMemoryClusterJoin join = new InMemoryClusterJoin(new Path(base, "memberships"), new Path(base, "keywords"),
+                new Path(base, "authors"), new Path(base, "sort"));
+        join.setConf(conf);
+        try {
+            join.run();
+            fail();
+        } catch (IOException ex) {
+        }
+    }
+
+    /**
+     * Test that the MapReduce jobs in broadcast mode join the same documents,
+     * with the keywords table not sorted.
+     */
+    public void testBroadcastJoin() throws Exception {
+        table("keywords", new long[]{5, 3, 1, 2}, "kw%d");
+        table("authors", new long[]{0, 1, 2, 3, 4, 5}, "author%1$d,uriA%1$d,uriP%1$d,title%1$d");
+        memberships(new long[]{1, 2, 4, 5}, new int[]{7, 3, 3, 7});
+
+        ClusterJoinerMapperJob clusterJoiner = new ClusterJoinerMapperJob(new Path(base, "keywords"),
+                new Path(base, "memberships"), new Path(base, "clusteredKeywords"));
+        clusterJoiner.setConf(conf);
+        clusterJoiner.setBroadcast(true);
+        clusterJoiner.run();
+        JoinKeywordsAuthorMapperJob authorsJoiner = new JoinKeywordsAuthorMapperJob(new Path(base, "clusteredKeywords"),
+                new Path(base, "authors"), new Path(base, "clusteredData"));
+        authorsJoiner.setConf(conf);
+        authorsJoiner.setBroadcast(true);
+        authorsJoiner.run();
+        SortMapperJob sort = new SortMapperJob(new Path(base, "clusteredData"), new Path(base, "sort"));
+        sort.setConf(conf);
+        sort.run();
+
+        List<String> documents = new ArrayList<>();
+        for (Pair<LongWritable, ClusteredDocument> record : new SequenceFileIterable<LongWritable, ClusteredDocument>(
+                new Path(base, "sort/part-r-00000"), conf)) {
+            documents.add(record.getFirst() + ":" + record.getSecond().getDocumentId() + ":"
+                    + record.getSecond().getDocumentContent() + ":" + record.getSecond().getAuthor());
+        }
+        assertEquals(Arrays.asList("3:2:kw2:author2", "7:1:kw1:author1", "7:5:kw5:author5"), documents);
+    }
+
+    /**
+     * Test that the assignments written by a clustering are joined directly,
+     * in memory and by the sorted inner join, without mapping the points to
+     * their clusters.
+     */
+    public void testAssignmentsJoin() throws Exception {
+        table("keywords", new long[]{1, 2, 3, 5}, "kw%d");
+        table("authors", new long[]{0, 1, 2, 3, 4, 5}, "author%1$d,uriA%1$d,uriP%1$d,title%1$d");
+        ClusterFiles.writeAssignments(conf, base, new long[]{5, 4, 2, 1}, new int[]{7, 3, 3, 7},
+                new double[]{0.1, 0.2, 0.3, 0.4}, 4);
+
+        InMemoryClusterJoin join = new InMemoryClusterJoin(new Path(base, ClusterFiles.ASSIGNMENTS),
+                new Path(base, "keywords"), new Path(base, "authors"), new Path(base, "sort"));
+        join.setConf(conf);
+        join.run();
+        ClusterJoinerMapperJob clusterJoiner = new ClusterJoinerMapperJob(new Path(base, "keywords"),
+                new Path(base, ClusterFiles.ASSIGNMENTS), new Path(base, "clusteredKeywords"));
+        clusterJoiner.setConf(conf);
+        clusterJoiner.run();
+
+        List<String> documents = new ArrayList<>();
+        for (Pair<LongWritable, ClusteredDocument> record : new SequenceFileIterable<LongWritable, ClusteredDocument>(
+                new Path(base, "sort/part-r-00000"), conf)) {
+            documents.add(record.getSecond().getClusterId() + ":" + record.getSecond().getDocumentId());
+        }
+        assertEquals(Arrays.asList("3:2", "7:1", "7:5"), documents);
+
+        documents.clear();
+        for (Pair<LongWritable, ClusteredDocument> record : new SequenceFileIterable<LongWritable, ClusteredDocument>(
+                new Path(base, "clusteredKeywords/part-00000"), conf)) {
+            documents.add(record.getSecond().getClusterId() + ":" + record.getSecond().getDocumentId());
+        }
+        assertEquals(Arrays.asList("7:1", "3:2", "7:5"), documents);
+    }
+
+    /**
+     * Test that the top memberships above the threshold are carried with the
+     * most likely cluster, in memory and by the sorted inner join.
+     */
+    public void testMembershipsJoin() throws Exception {
+        table("keywords", new long[]{1, 2}, "kw%d");
+        table("authors", new long[]{1, 2}, "author%d");
+        try (SequenceFile.Writer writer = SequenceFile.createWriter(FileSystem.getLocal(conf), conf,
+                new Path(base, "memberships/part-m-00000"), LongWritable.class, MembershipWritable.class)) {
+            writer.append(new LongWritable(1), new MembershipWritable(new int[]{4, 2, 9},
+                    new double[]{0.6, 0.3, 0.1}, 3));
+            writer.append(new LongWritable(2), new MembershipWritable(new int[]{2, 4, 9},
+                    new double[]{0.5, 0.45, 0.05}, 3));
+        }
+
+        InMemoryClusterJoin join = new InMemoryClusterJoin(new Path(base, "memberships"), new Path(base, "keywords"),
+                new Path(base, "authors"), new Path(base, "sort"));
+        join.setConf(conf);
+        join.setMemberships(3, 0.2);
+        join.run();
+        ClusterJoinerMapperJob clusterJoiner = new ClusterJoinerMapperJob(new Path(base, "keywords"),
+                new Path(base, "memberships"), new Path(base, "clusteredKeywords"));
+        clusterJoiner.setConf(conf);
+        clusterJoiner.setMemberships(2, 0.2);
+        clusterJoiner.run();
+
+        List<String> documents = new ArrayList<>();
+        for (Pair<LongWritable, ClusteredDocument> record : new SequenceFileIterable<LongWritable, ClusteredDocument>(
+                new Path(base, "sort/part-r-00000"), conf)) {
+            documents.add(record.getSecond().getClusterId() + ":" + record.getSecond().getMemberships());
+        }
+        assertEquals(Arrays.asList("2:[2, 4] [0.5, 0.45]", "4:[4, 2] [0.6, 0.3]"), documents);
+
+        documents.clear();
+        for (Pair<LongWritable, ClusteredDocument> record : new SequenceFileIterable<LongWritable, ClusteredDocument>(
+                new Path(base, "clusteredKeywords/part-00000"), conf)) {
+            documents.add(record.getSecond().getClusterId() + ":" + record.getSecond().getMemberships());
+        }
+        assertEquals(Arrays.asList("4:[4, 2] [0.6, 0.3]", "2:[2, 4] [0.5, 0.45]"), documents);
+    }
+}
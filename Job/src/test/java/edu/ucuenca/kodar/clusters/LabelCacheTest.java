@@ -0,0 +1,86 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters;
+
+import java.io.File;
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class LabelCacheTest extends TestCase {
+
+    public LabelCacheTest(String testName) {
+        super(testName);
+    }
+
+    private static ClusterFingerprint fingerprint(int from, int to) {
+        ClusterFingerprint fingerprint = new ClusterFingerprint();
+        for (int i = from; i < to; i++) {
+            fingerprint.add("http://ucuenca.edu.ec/wkhuska/publication/p" + i);
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Test that the fingerprint depends only on the set of publications.
+     */
+    public void testFingerprint() {
+        ClusterFingerprint forward = fingerprint(0, 50);
+        ClusterFingerprint backward = new ClusterFingerprint();
+        for (int i = 49; i >= 0; i--) {
+            backward.add("http://ucuenca.edu.ec/wkhuska/publication/p" + i);
+            backward.add("http://ucuenca.edu.ec/wkhuska/publication/p" + i);
+        }
+        assertEquals(50, backward.size());
+        assertEquals(forward.getExact(), backward.getExact());
+        assertEquals(1.0, forward.similarity(backward));
+        assertTrue(forward.getExact() != fingerprint(0, 49).getExact());
+        assertTrue(forward.similarity(fingerprint(100, 150)) < 0.2);
+    }
+
+    /**
+     * Test that the same and the near-identical publications reuse the label
+     * of their labeler, and that the labels survive a snapshot.
+     */
+    public void testLabels() throws Exception {
+        LabelCache cache = new LabelCache(10);
+        cache.put("cvb", fingerprint(0, 200), "semantic web");
+        cache.put("cvb", fingerprint(1000, 1200), "neural networks");
+
+        assertEquals("semantic web", cache.get("cvb", fingerprint(0, 200)));
+        assertEquals("semantic web", cache.get("cvb", fingerprint(1, 201)));
+        assertNull(cache.get("cvb", fingerprint(0, 100)));
+        assertNull(cache.get("cortical", fingerprint(0, 200)));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getNearHits());
+        assertEquals(2, cache.getMisses());
+
+        cache.setMinSimilarity(1);
+        assertNull(cache.get("cvb", fingerprint(1, 201)));
+
+        File snapshot = new File("target/label-cache-test");
+        cache.save(snapshot);
+        LabelCache loaded = new LabelCache(10);
+        loaded.load(snapshot);
+        assertEquals(2, loaded.size());
+        assertEquals("neural networks", loaded.get("cvb", fingerprint(1000, 1200)));
+        assertEquals("semantic web", loaded.get("cvb", fingerprint(0, 199)));
+    }
+}
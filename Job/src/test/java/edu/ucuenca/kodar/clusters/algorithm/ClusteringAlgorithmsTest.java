@@ -0,0 +1,191 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.algorithm;
+
+import edu.ucuenca.kodar.clusters.engine.ClusterFiles;
+import edu.ucuenca.kodar.clusters.engine.MembershipWritable;
+import edu.ucuenca.kodar.clusters.engine.VectorStore;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import junit.framework.TestCase;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.mahout.common.Pair;
+import org.apache.mahout.common.iterator.sequencefile.PathType;
+import org.apache.mahout.common.iterator.sequencefile.SequenceFileDirIterable;
+import org.apache.mahout.math.DenseVector;
+import org.apache.mahout.math.NamedVector;
+
+/**
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class ClusteringAlgorithmsTest extends TestCase {
+
+    public ClusteringAlgorithmsTest(String testName) {
+        super(testName);
+    }
+
+    private static class Probe implements ClusteringAlgorithm {
+
+        private final String name;
+        private final List<String> dependencies;
+        private final List<String> finished;
+        private CountDownLatch latch;
+        private boolean fail;
+
+        Probe(String name, List<String> finished, String... dependencies) {
+            this.name = name;
+            this.finished = finished;
+            this.dependencies = Arrays.asList(dependencies);
+        }
+
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public List<String> getDependencies() {
+            return dependencies;
+        }
+
+        @Override
+        public void run(ClusteringContext context) throws Exception {
+            if (latch != null) {
+                // Only returns if the other algorithm runs at the same time.
+                latch.countDown();
+                assertTrue(latch.await(10, TimeUnit.SECONDS));
+            }
+            if (fail) {
+                throw new IOException(name);
+            }
+            finished.add(name);
+        }
+    }
+
+    private static ClusteringContext context(String... selected) {
+        return new ClusteringContext(null, null, null, null, 2, Arrays.asList(selected));
+    }
+
+    /**
+     * Test that independent algorithms run concurrently and dependents start
+     * after their dependencies.
+     */
+    public void testExecute() throws Exception {
+        List<String> finished = Collections.synchronizedList(new ArrayList<String>());
+        Probe a = new Probe("a", finished);
+        Probe b = new Probe("b", finished);
+        Probe c = new Probe("c", finished, "a", "b", "unselected");
+        CountDownLatch latch = new CountDownLatch(2);
+        a.latch = latch;
+        b.latch = latch;
+
+        ClusteringAlgorithms.execute(Arrays.<ClusteringAlgorithm>asList(c, a, b), context("a", "b", "c"));
+        assertEquals(3, finished.size());
+        assertEquals("c", finished.get(2));
+    }
+
+    /**
+     * Test that the failure of a dependency is thrown and its dependents do
+     * not run.
+     */
+    public void testFailure() throws Exception {
+        List<String> finished = Collections.synchronizedList(new ArrayList<String>());
+        Probe a = new Probe("a", finished);
+        a.fail = true;
+        Probe b = new Probe("b", finished, "a");
+        try {
+            ClusteringAlgorithms.execute(Arrays.<ClusteringAlgorithm>asList(a, b), context("a", "b"));
+            fail();
+        } catch (IOException ex) {
+            assertEquals("a", ex.getMessage());
+        }
+        assertFalse(finished.contains("b"));
+
+        Probe x = new Probe("x", finished, "y");
+        Probe y = new Probe("y", finished, "x");
+        try {
+            ClusteringAlgorithms.execute(Arrays.<ClusteringAlgorithm>asList(x, y), context("x", "y"));
+            fail();
+        } catch (IllegalArgumentException ex) {
+        }
+    }
+
+    /**
+     * Test that fuzzy k-means writes the memberships requested by the join,
+     * without the Mahout driver.
+     */
+    public void testFuzzyMemberships() throws Exception {
+        File home = new File("target/algorithms-test");
+        FileUtil.fullyDelete(home);
+        List<NamedVector> points = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            points.add(new NamedVector(new DenseVector(new double[]{1, 0.1 * (i % 3), 0, 0}), String.valueOf(i)));
+            points.add(new NamedVector(new DenseVector(new double[]{0, 0, 1, 0.1 * (i % 3)}), String.valueOf(i + 10)));
+        }
+        Configuration conf = new Configuration();
+        ClusteringContext context = new ClusteringContext(conf, null, home, null, 3,
+                Arrays.asList(FuzzyKMeansAlgorithm.NAME));
+        context.setVectors(new VectorStore(points));
+        context.setCheckpointInterval(0);
+        context.setMemberships(2);
+
+        FuzzyKMeansAlgorithm fuzzyKmeans = new FuzzyKMeansAlgorithm();
+        fuzzyKmeans.setMaxMemberships(1);
+        fuzzyKmeans.run(context);
+
+        int documents = 0;
+        for (Pair<LongWritable, MembershipWritable> record : new SequenceFileDirIterable<LongWritable, MembershipWritable>(
+                new Path(new File(home, FuzzyKMeansAlgorithm.NAME).getPath(), ClusterFiles.MEMBERSHIPS),
+                PathType.LIST, conf)) {
+            assertEquals(2, record.getSecond().size());
+            documents++;
+        }
+        assertEquals(points.size(), documents);
+    }
+
+    /**
+     * Test that setting a k-means mode clears the others.
+     */
+    public void testKMeansModes() {
+        KMeansAlgorithm kmeans = new KMeansAlgorithm();
+        kmeans.setStreaming(true);
+        kmeans.setRestarts(4);
+        assertFalse(kmeans.isStreaming());
+        assertEquals(4, kmeans.getRestarts());
+
+        kmeans.setBisecting(true);
+        assertEquals(1, kmeans.getRestarts());
+        kmeans.setInProcess(true);
+        assertFalse(kmeans.isBisecting());
+
+        kmeans.setStreaming(true);
+        assertFalse(kmeans.isInProcess());
+        kmeans.setBisecting(false);
+        assertTrue(kmeans.isStreaming());
+    }
+}
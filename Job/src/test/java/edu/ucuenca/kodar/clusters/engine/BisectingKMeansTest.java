@@ -0,0 +1,70 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.engine;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class BisectingKMeansTest extends TestCase {
+
+    public BisectingKMeansTest(String testName) {
+        super(testName);
+    }
+
+    /**
+     * Test that every level of the tree is a partition of the points and that
+     * the first split separates both groups.
+     */
+    public void testLevels() throws Exception {
+        VectorStore vectors = FuzzyKMeansTest.twoGroups();
+        BisectingKMeans bisecting = new BisectingKMeans(vectors);
+        bisecting.setNumThreads(2);
+        bisecting.run(4);
+
+        SplitTree tree = bisecting.getTree();
+        assertEquals(4, tree.getMaxK());
+        for (int k = 1; k <= tree.getMaxK(); k++) {
+            List<SplitTree.Node> level = tree.level(k);
+            assertEquals(k, level.size());
+            int size = 0;
+            for (SplitTree.Node node : level) {
+                size += node.getSize();
+            }
+            assertEquals(vectors.size(), size);
+
+            Set<Integer> clusters = new HashSet<>();
+            for (int cluster : bisecting.getAssignments(k)) {
+                clusters.add(cluster);
+            }
+            assertEquals(k, clusters.size());
+        }
+
+        int[] assignments = bisecting.getAssignments(2);
+        for (int i = 0; i < 10; i++) {
+            assertEquals(assignments[0], assignments[i]);
+            assertEquals(assignments[10], assignments[i + 10]);
+        }
+        assertTrue(assignments[0] != assignments[10]);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.engine;
+
+import java.util.Random;
+import junit.framework.TestCase;
+import org.apache.mahout.math.RandomAccessSparseVector;
+import org.apache.mahout.math.Vector;
+
+/**
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class CentroidIndexTest extends TestCase {
+
+    public CentroidIndexTest(String testName) {
+        super(testName);
+    }
+
+    private static Vector sparse(Random random, int cardinality, int terms) {
+        Vector vector = new RandomAccessSparseVector(cardinality);
+        for (int i = 0; i < terms; i++) {
+            vector.set(random.nextInt(cardinality), random.nextDouble());
+        }
+        return vector;
+    }
+
+    /**
+     * Test that the indexed search returns the same cluster and distance of a
+     * full scan, even when centroids are heavily pruned.
+     */
+    public void testSameAsFullScan() {
+        Random random = new Random(7);
+        Vector[] centers = new Vector[40];
+        double[] norms = new double[centers.length];
+        for (int c = 0; c < centers.length; c++) {
+            centers[c] = sparse(random, 200, 30);
+            norms[c] = Cosine.norm(centers[c]);
+        }
+
+        for (double retainedMass : new double[]{0.3, 0.9, 1.0}) {
+            CentroidIndex.Searcher searcher = new CentroidIndex(centers, norms, retainedMass).searcher();
+            for (int i = 0; i < 500; i++) {
+                Vector point = sparse(random, 200, 1 + random.nextInt(6));
+                double norm = Cosine.norm(point);
+                int closest = 0;
+                double minimum = Double.MAX_VALUE;
+                for (int c = 0; c < centers.length; c++) {
+                    double d = Cosine.distance(point, norm, centers[c], norms[c]);
+                    if (d < minimum) {
+                        minimum = d;
+                        closest = c;
+                    }
+                }
+                searcher.search(point, norm);
+                assertEquals(closest, searcher.getClosest());
+                assertEquals(minimum, searcher.getDistance(), 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.engine;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import junit.framework.TestCase;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.mahout.clustering.kmeans.Kluster;
+import org.apache.mahout.common.distance.CosineDistanceMeasure;
+import org.apache.mahout.math.DenseVector;
+
+/**
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class CentroidLabelerTest extends TestCase {
+
+    private static final File DIR = new File("target/centroid-labeler-test");
+    private static final String[] TERMS = {"data", "web", "neural", "ontology", "image"};
+
+    private final Configuration conf = new Configuration();
+    private final Path base = new Path(DIR.getAbsolutePath());
+
+    public CentroidLabelerTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        FileUtil.fullyDelete(DIR);
+        try (SequenceFile.Writer writer = SequenceFile.createWriter(FileSystem.getLocal(conf), conf,
+                new Path(base, "dictionary.file-0"), Text.class, IntWritable.class)) {
+            for (int i = 0; i < TERMS.length; i++) {
+                writer.append(new Text(TERMS[i]), new IntWritable(i));
+            }
+        }
+        ClusterFiles.writeClusters(conf, new Path(base, "kmeans/clusters-3-final"), Arrays.asList(
+                new Kluster(new DenseVector(new double[]{0.5, 0.3, 0, 0.2, 0}), 0, new CosineDistanceMeasure()),
+                new Kluster(new DenseVector(new double[]{0.5, 0, 0.4, 0, 0.1}), 1, new CosineDistanceMeasure())));
+    }
+
+    /**
+     * Test that the weight of the centroids gives the shared terms and that
+     * class-based TF-IDF prefers the terms of a single cluster.
+     */
+    public void testLabel() throws Exception {
+        String[] dictionary = CentroidLabeler.readDictionary(conf, new Path(base, "dictionary.file-*"));
+        assertEquals(Arrays.asList(TERMS), Arrays.asList(dictionary));
+
+        CentroidLabeler labeler = new CentroidLabeler(dictionary);
+        labeler.setScoring(CentroidLabeler.Scoring.CENTROID);
+        Map<Integer, List<String>> labels = labeler.label(conf, new Path(base, "kmeans"), 2);
+        assertEquals(Arrays.asList("data", "web"), labels.get(0));
+        assertEquals(Arrays.asList("data", "neural"), labels.get(1));
+
+        labeler.setScoring(CentroidLabeler.Scoring.CLASS_TFIDF);
+        labels = labeler.label(conf, new Path(base, "kmeans"), 2);
+        assertEquals(Arrays.asList("web", "ontology"), labels.get(0));
+        assertEquals(Arrays.asList("neural", "data"), labels.get(1));
+
+        assertTrue(labeler.label(conf, new Path(base, "kmeans"), 0).get(0).isEmpty());
+    }
+}
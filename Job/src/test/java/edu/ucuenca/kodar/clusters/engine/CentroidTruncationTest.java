@@ -0,0 +1,56 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.engine;
+
+import junit.framework.TestCase;
+import org.apache.mahout.math.DenseVector;
+import org.apache.mahout.math.Vector;
+
+/**
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class CentroidTruncationTest extends TestCase {
+
+    public CentroidTruncationTest(String testName) {
+        super(testName);
+    }
+
+    /**
+     * Test that the heaviest terms are kept and the error is the relative norm
+     * of the dropped terms.
+     */
+    public void testTruncate() {
+        Vector center = new DenseVector(new double[]{0.1, 0, 4, 0.2, 3, 0});
+
+        Vector byTerms = new CentroidTruncation(2, 1.0).truncate(center);
+        assertEquals(2, byTerms.getNumNonZeroElements());
+        assertEquals(4.0, byTerms.get(2));
+        assertEquals(3.0, byTerms.get(4));
+        assertEquals(Math.sqrt(0.05 / 25.05), CentroidTruncation.error(center, byTerms), 1e-12);
+
+        // 4 and 3 hold more than 95% of the mass.
+        Vector byMass = new CentroidTruncation(0, 0.95).truncate(center);
+        assertEquals(2, byMass.getNumNonZeroElements());
+
+        Vector whole = new CentroidTruncation(0, 1.0).truncate(center);
+        assertEquals(4, whole.getNumNonZeroElements());
+        assertEquals(0.0, CentroidTruncation.error(center, whole));
+        assertFalse(new CentroidTruncation(0, 1.0).isEnabled());
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.engine;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import junit.framework.TestCase;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.Path;
+import org.apache.mahout.math.NamedVector;
+import org.apache.mahout.math.RandomAccessSparseVector;
+import org.apache.mahout.math.Vector;
+
+/**
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class CheckpointTest extends TestCase {
+
+    private static final File DIR = new File("target/checkpoint-test");
+    private static final int K = 12;
+    private static final int ITERATIONS = 12;
+
+    public CheckpointTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        FileUtil.fullyDelete(DIR);
+    }
+
+    static VectorStore groups() {
+        Random random = new Random(11);
+        List<NamedVector> points = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Vector vector = new RandomAccessSparseVector(500);
+            for (int j = 0; j < 4; j++) {
+                vector.set((i % 8) * 50 + random.nextInt(80), random.nextDouble() + 0.1);
+            }
+            points.add(new NamedVector(vector, String.valueOf(i)));
+        }
+        return new VectorStore(points);
+    }
+
+    static KMeans kmeans(VectorStore vectors, CheckpointStore checkpoints) {
+        KMeans kmeans = new KMeans(vectors);
+        kmeans.setNumThreads(2);
+        kmeans.setConvergenceDelta(0);
+        kmeans.setMaxIterations(ITERATIONS);
+        kmeans.setCheckpoints(checkpoints, 1);
+        return kmeans;
+    }
+
+    /**
+     * Run k-means in another JVM, printing every iteration and waiting a bit
+     * so it can be killed in the middle of the run.
+     */
+    public static void main(String[] args) throws Exception {
+        VectorStore vectors = groups();
+        KMeans kmeans = kmeans(vectors, new CheckpointStore(new Configuration(), new Path(args[0])));
+        kmeans.addIterationListener(new IterationListener() {
+            @Override
+            public void iterationFinished(IterationStats stats) {
+                System.out.println("iteration " + stats.getIteration());
+                System.out.flush();
+                try {
+                    Thread.sleep(300);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        kmeans.run(KMeans.randomSeeds(vectors, K, 5));
+    }
+
+    /**
+     * Test that a run killed mid-way resumes from its last checkpoint and ends
+     * with the same clusters of a run that was never interrupted.
+     */
+    public void testResumeKilledRun() throws Exception {
+        VectorStore vectors = groups();
+        List<Vector> seeds = KMeans.randomSeeds(vectors, K, 5);
+        KMeans reference = kmeans(vectors, null);
+        reference.run(seeds);
+        assertTrue(reference.getIterations() > 4);
+
+        Path dir = new Path(DIR.getAbsolutePath(), "kmeans");
+        Process process = new ProcessBuilder(new File(System.getProperty("java.home"), "bin/java").getPath(),
+                "-cp", System.getProperty("java.class.path"), CheckpointTest.class.getName(), dir.toString())
+                .redirectErrorStream(true).start();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null && !line.equals("iteration 3")) {
+            }
+            assertNotNull("The run ended before it was killed", line);
+            process.destroy();
+        }
+        process.waitFor();
+
+        CheckpointStore checkpoints = new CheckpointStore(new Configuration(), dir);
+        final List<Integer> resumed = new ArrayList<>();
+        IterationListener listener = new IterationListener() {
+            @Override
+            public void iterationFinished(IterationStats stats) {
+                resumed.add(stats.getIteration());
+            }
+        };
+
+        // Other seeds are another run, it must start from the first iteration.
+        KMeans other = kmeans(vectors, checkpoints);
+        other.setMaxIterations(1);
+        other.addIterationListener(listener);
+        other.run(KMeans.randomSeeds(vectors, K, 99));
+        assertEquals(Arrays.asList(1), resumed);
+
+        // The same seeds continue from the checkpoint.
+        resumed.clear();
+        KMeans kmeans = kmeans(vectors, checkpoints);
+        kmeans.addIterationListener(listener);
+        kmeans.run(seeds);
+
+        // Killed after iteration 3 was reported, at least iteration 2 was saved.
+        assertTrue(resumed.get(0) >= 3);
+        assertEquals(reference.getIterations(), kmeans.getIterations());
+        assertTrue(Arrays.equals(reference.getAssignments(), kmeans.getAssignments()));
+    }
+
+    /**
+     * Test that a damaged checkpoint is skipped in favor of the previous one.
+     */
+    public void testDamagedCheckpoint() throws Exception {
+        VectorStore vectors = groups();
+        Configuration conf = new Configuration();
+        Path dir = new Path(DIR.getAbsolutePath(), "damaged");
+        CheckpointStore checkpoints = new CheckpointStore(conf, dir);
+        KMeans kmeans = kmeans(vectors, checkpoints);
+        kmeans.setMaxIterations(3);
+        List<Vector> seeds = KMeans.randomSeeds(vectors, K, 5);
+        kmeans.run(seeds);
+
+        FileSystem fs = FileSystem.getLocal(conf);
+        try (FSDataOutputStream out = fs.create(new Path(dir, "checkpoint-4"), true)) {
+            out.writeLong(0);
+            out.writeInt(3);
+            out.write(new byte[]{1, 2, 3});
+        }
+
+        Checkpoint checkpoint = checkpoints.latest(Checkpoint.fingerprint(vectors, "kmeans", Checkpoint.hash(seeds), 0.0,
+                3, 0.0));
+        assertNotNull(checkpoint);
+        assertEquals(3, checkpoint.getIteration());
+        assertNull(checkpoints.latest(0));
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import junit.framework.TestCase;
+import org.apache.mahout.math.DenseVector;
+import org.apache.mahout.math.NamedVector;
+import org.apache.mahout.math.Vector;
+
+/**
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class FuzzyKMeansTest extends TestCase {
+
+    public FuzzyKMeansTest(String testName) {
+        super(testName);
+    }
+
+    static VectorStore twoGroups() {
+        List<NamedVector> points = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            points.add(new NamedVector(new DenseVector(new double[]{1, 0.1 * (i % 3), 0, 0}), String.valueOf(i)));
+            points.add(new NamedVector(new DenseVector(new double[]{0, 0, 1, 0.1 * (i % 3)}), String.valueOf(i + 10)));
+        }
+        return new VectorStore(points);
+    }
+
+    /**
+     * Test that memberships are truncated, renormalized and sorted.
+     */
+    public void testTruncatedMemberships() throws Exception {
+        VectorStore vectors = twoGroups();
+        List<Vector> seeds = new ArrayList<>();
+        seeds.add(vectors.get(0));
+        seeds.add(vectors.get(10));
+        seeds.add(vectors.get(5));
+
+        FuzzyKMeans fuzzyKmeans = new FuzzyKMeans(vectors);
+        fuzzyKmeans.setMaxMemberships(2);
+        fuzzyKmeans.setNumThreads(2);
+        fuzzyKmeans.setConvergenceDelta(0.001);
+        fuzzyKmeans.run(seeds);
+
+        MembershipWritable[] memberships = fuzzyKmeans.getMemberships();
+        assertEquals(vectors.size(), memberships.length);
+        for (MembershipWritable membership : memberships) {
+            assertEquals(2, membership.size());
+            assertEquals(1.0, membership.getWeight(0) + membership.getWeight(1), 1e-9);
+            assertTrue(membership.getWeight(0) >= membership.getWeight(1));
+        }
+        // Documents of different groups never share the most likely cluster.
+        assertTrue(memberships[0].getMostLikelyCluster() != memberships[10].getMostLikelyCluster());
+        assertEquals(0L, vectors.getDocumentId(0));
+        assertEquals(19L, vectors.getDocumentId(19));
+    }
+
+    /**
+     * Test that a single membership keeps the closest cluster with all the
+     * weight and that no membership is rejected.
+     */
+    public void testSingleMembership() throws Exception {
+        VectorStore vectors = twoGroups();
+        List<Vector> seeds = new ArrayList<>();
+        seeds.add(vectors.get(0));
+        seeds.add(vectors.get(10));
+
+        FuzzyKMeans fuzzyKmeans = new FuzzyKMeans(vectors);
+        fuzzyKmeans.setMaxMemberships(1);
+        fuzzyKmeans.setNumThreads(2);
+        fuzzyKmeans.run(seeds);
+        for (MembershipWritable membership : fuzzyKmeans.getMemberships()) {
+            assertEquals(1, membership.size());
+            assertEquals(1.0, membership.getWeight(0), 1e-9);
+        }
+        assertTrue(fuzzyKmeans.getMemberships()[0].getMostLikelyCluster()
+                != fuzzyKmeans.getMemberships()[10].getMostLikelyCluster());
+
+        try {
+            fuzzyKmeans.setMaxMemberships(0);
+            fail();
+        } catch (IllegalArgumentException ex) {
+        }
+        assertEquals(1, fuzzyKmeans.getMaxMemberships());
+    }
+
+    /**
+     * Test that every iteration is reported and the run stops once no point
+     * changes its most likely cluster.
+     */
+    public void testEarlyStopping() throws Exception {
+        VectorStore vectors = twoGroups();
+        List<Vector> seeds = new ArrayList<>();
+        seeds.add(vectors.get(0));
+        seeds.add(vectors.get(10));
+
+        RunReport report = new RunReport();
+        FuzzyKMeans fuzzyKmeans = new FuzzyKMeans(vectors);
+        fuzzyKmeans.setNumThreads(2);
+        fuzzyKmeans.setConvergenceDelta(0);
+        fuzzyKmeans.setMinReassignedFraction(0.01);
+        fuzzyKmeans.addIterationListener(report);
+        fuzzyKmeans.run(seeds);
+
+        List<IterationStats> iterations = report.getIterations();
+        assertEquals(fuzzyKmeans.getIterations(), iterations.size());
+        assertTrue(fuzzyKmeans.getIterations() < fuzzyKmeans.getMaxIterations());
+        assertEquals(vectors.size(), iterations.get(0).getReassigned());
+        assertEquals(0, iterations.get(iterations.size() - 1).getReassigned());
+        assertTrue(iterations.get(0).getObjective() >= iterations.get(iterations.size() - 1).getObjective());
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import junit.framework.TestCase;
+import org.apache.mahout.math.DenseVector;
+import org.apache.mahout.math.NamedVector;
+
+/**
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class MultiRestartKMeansTest extends TestCase {
+
+    private static final int K = 4;
+
+    public MultiRestartKMeansTest(String testName) {
+        super(testName);
+    }
+
+    static VectorStore groups() {
+        Random random = new Random(3);
+        List<NamedVector> points = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            double[] values = new double[6];
+            values[i % 6] = 1;
+            for (int d = 0; d < values.length; d++) {
+                values[d] += 0.2 * random.nextDouble();
+            }
+            points.add(new NamedVector(new DenseVector(values), String.valueOf(i)));
+        }
+        return new VectorStore(points);
+    }
+
+    private static MultiRestartKMeans restarts(VectorStore vectors, long seed) {
+        MultiRestartKMeans restarts = new MultiRestartKMeans(vectors);
+        restarts.setRestarts(6);
+        restarts.setNumThreads(3);
+        restarts.setSeed(seed);
+        restarts.setConvergenceDelta(0.001);
+        return restarts;
+    }
+
+    /**
+     * Test that the same base seed keeps the same restart with the same cost
+     * and assignments.
+     */
+    public void testSameSeed() throws Exception {
+        VectorStore vectors = groups();
+        MultiRestartKMeans first = restarts(vectors, 7);
+        first.run(K);
+        MultiRestartKMeans second = restarts(vectors, 7);
+        second.run(K);
+
+        assertEquals(first.getBestRestart(), second.getBestRestart());
+        assertEquals(first.getBest().getCost(), second.getBest().getCost(), 1e-9);
+        assertTrue(Arrays.equals(first.getBest().getAssignments(), second.getBest().getAssignments()));
+        for (int r = 0; r < first.getRestarts(); r++) {
+            assertEquals(first.getResults().get(r).getSeed(), second.getResults().get(r).getSeed());
+            assertEquals(first.getResults().get(r).getCost(), second.getResults().get(r).getCost(), 1e-9);
+        }
+    }
+
+    /**
+     * Test that the kept restart has the lowest cost of all the restarts.
+     */
+    public void testBestIsLowestCost() throws Exception {
+        VectorStore vectors = groups();
+        MultiRestartKMeans restarts = restarts(vectors, 11);
+        restarts.run(K);
+
+        List<MultiRestartKMeans.Result> results = restarts.getResults();
+        assertEquals(restarts.getRestarts(), results.size());
+        MultiRestartKMeans.Result best = results.get(restarts.getBestRestart());
+        assertEquals(restarts.getBest().getCost(), best.getCost(), 1e-9);
+        for (MultiRestartKMeans.Result result : results) {
+            assertTrue(best.getCost() <= result.getCost());
+        }
+    }
+}
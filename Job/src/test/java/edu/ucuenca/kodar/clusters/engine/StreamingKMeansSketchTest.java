@@ -0,0 +1,136 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.engine;
+
+import java.io.File;
+import java.util.Random;
+import junit.framework.TestCase;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.FileUtil;
+import org.apache.hadoop.fs.Path;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.SequenceFile;
+import org.apache.hadoop.io.Text;
+import org.apache.mahout.clustering.classify.WeightedPropertyVectorWritable;
+import org.apache.mahout.clustering.iterator.ClusterWritable;
+import org.apache.mahout.common.Pair;
+import org.apache.mahout.common.iterator.sequencefile.PathFilters;
+import org.apache.mahout.common.iterator.sequencefile.PathType;
+import org.apache.mahout.common.iterator.sequencefile.SequenceFileDirIterable;
+import org.apache.mahout.common.iterator.sequencefile.SequenceFileDirValueIterable;
+import org.apache.mahout.math.NamedVector;
+import org.apache.mahout.math.RandomAccessSparseVector;
+import org.apache.mahout.math.Vector;
+import org.apache.mahout.math.VectorWritable;
+
+/**
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class StreamingKMeansSketchTest extends TestCase {
+
+    private static final File DIR = new File("target/streaming-test");
+    private static final int K = 4;
+    private static final int POINTS = 3000;
+
+    private final Configuration conf = new Configuration();
+    private final Path base = new Path(DIR.getAbsolutePath());
+
+    public StreamingKMeansSketchTest(String testName) {
+        super(testName);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        FileUtil.fullyDelete(DIR);
+    }
+
+    /**
+     * Write <code>tfidf-vectors</code> in two parts, the document ids of the
+     * second part are lower so the assignments must be sorted.
+     */
+    private Path vectors() throws Exception {
+        Random random = new Random(3);
+        Path vectors = new Path(base, "tfidf-vectors");
+        for (int part = 0; part < 2; part++) {
+            try (SequenceFile.Writer writer = SequenceFile.createWriter(FileSystem.getLocal(conf), conf,
+                    new Path(vectors, "part-r-0000" + part), Text.class, VectorWritable.class)) {
+                for (int i = 0; i < POINTS / 2; i++) {
+                    int id = part == 0 ? POINTS / 2 + i : i;
+                    Vector vector = new RandomAccessSparseVector(400);
+                    for (int j = 0; j < 5; j++) {
+                        vector.set((id % K) * 100 + random.nextInt(100), random.nextDouble() + 0.1);
+                    }
+                    writer.append(new Text(String.valueOf(id)), new VectorWritable(new NamedVector(vector,
+                            String.valueOf(id))));
+                }
+            }
+        }
+        return vectors;
+    }
+
+    /**
+     * Test that the sketch stays about <code>k log n</code> centroids, that k
+     * clusters are written and that every document is written once in the
+     * clustered points and in the sorted assignments.
+     */
+    public void testRun() throws Exception {
+        Path output = new Path(base, "streaming");
+        StreamingKMeansSketch streaming = new StreamingKMeansSketch(conf);
+        streaming.run(vectors(), output, K);
+
+        assertEquals(POINTS, streaming.getNumPoints());
+        int sketch = streaming.getSketch().size();
+        assertTrue(sketch >= K);
+        assertTrue("Sketch of " + sketch + " centroids", sketch <= 3 * K * Math.log(POINTS));
+
+        int clusters = 0;
+        for (ClusterWritable cluster : new SequenceFileDirValueIterable<ClusterWritable>(
+                new Path(output, "clusters-1-final"), PathType.LIST, PathFilters.partFilter(), conf)) {
+            clusters++;
+        }
+        assertEquals(K, clusters);
+
+        int[] clustered = new int[POINTS];
+        for (Pair<IntWritable, WeightedPropertyVectorWritable> point
+                : new SequenceFileDirIterable<IntWritable, WeightedPropertyVectorWritable>(
+                        new Path(output, ClusterFiles.CLUSTERED_POINTS), PathType.LIST, PathFilters.partFilter(),
+                        conf)) {
+            clustered[Integer.parseInt(((NamedVector) point.getSecond().getVector()).getName())]++;
+        }
+        int[] assigned = new int[POINTS];
+        long previous = -1;
+        for (Pair<LongWritable, AssignmentWritable> assignment
+                : new SequenceFileDirIterable<LongWritable, AssignmentWritable>(
+                        new Path(output, ClusterFiles.ASSIGNMENTS), PathType.LIST, PathFilters.partFilter(), conf)) {
+            long id = assignment.getFirst().get();
+            assertTrue(id > previous);
+            previous = id;
+            assigned[(int) id]++;
+            assertTrue(assignment.getSecond().getClusterId() < K);
+        }
+        for (int i = 0; i < POINTS; i++) {
+            assertEquals(1, clustered[i]);
+            assertEquals(1, assigned[i]);
+        }
+        assertFalse(new File(output.toString(), ClusterFiles.ASSIGNMENTS + ".unsorted").exists());
+    }
+}
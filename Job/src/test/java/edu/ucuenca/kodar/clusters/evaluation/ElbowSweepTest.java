@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.evaluation;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.util.Arrays;
+import java.util.List;
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class ElbowSweepTest extends TestCase {
+
+    private static final File DIR = new File("target/test-elbow");
+
+    public ElbowSweepTest(String testName) {
+        super(testName);
+    }
+
+    private static List<ElbowSweep.Result> sweep(boolean warmStart) throws Exception {
+        ElbowSweep sweep = new ElbowSweep();
+        // A single chain, every k is seeded with the previous one.
+        sweep.setNumThreads(warmStart ? 1 : 2);
+        sweep.setWarmStart(warmStart);
+        sweep.setConvergenceDelta(0.001);
+        return sweep.sweep(KSelectionTest.groups(), 2, 6, 1);
+    }
+
+    private static void assertNonIncreasing(List<ElbowSweep.Result> results) {
+        assertEquals(5, results.size());
+        for (int i = 1; i < results.size(); i++) {
+            assertEquals(results.get(i - 1).getK() + 1, results.get(i).getK());
+            assertTrue("WSS increased at k=" + results.get(i).getK(),
+                    results.get(i).getCost() <= results.get(i - 1).getCost() + 1e-9);
+        }
+    }
+
+    /**
+     * Test that the within-cluster cost does not increase with k.
+     */
+    public void testColdStart() throws Exception {
+        assertNonIncreasing(sweep(false));
+    }
+
+    /**
+     * Test that the within-cluster cost does not increase with k when every k
+     * starts from the previous solution.
+     */
+    public void testWarmStart() throws Exception {
+        assertNonIncreasing(sweep(true));
+    }
+
+    /**
+     * Test that the csv has the columns read by
+     * <code>R/elbow method/elbow-method.R</code>.
+     */
+    public void testWriteCsv() throws Exception {
+        List<ElbowSweep.Result> results = sweep(true);
+        File csv = new File(DIR, "wss levels.csv");
+        new ElbowSweep().writeCsv(results, csv);
+
+        try (BufferedReader reader = new BufferedReader(new FileReader(csv))) {
+            List<String> header = Arrays.asList(reader.readLine().split(","));
+            assertEquals("k", header.get(0));
+            assertTrue(header.contains("interClusterDensity"));
+            for (ElbowSweep.Result result : results) {
+                String[] row = reader.readLine().split(",");
+                assertEquals(header.size(), row.length);
+                assertEquals(result.getK(), Integer.parseInt(row[0]));
+                assertEquals(result.getInterClusterDensity(),
+                        Double.parseDouble(row[header.indexOf("interClusterDensity")]), 1e-12);
+            }
+            assertNull(reader.readLine());
+        }
+    }
+}
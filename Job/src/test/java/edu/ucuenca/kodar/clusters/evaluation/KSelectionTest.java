@@ -0,0 +1,127 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.evaluation;
+
+import edu.ucuenca.kodar.clusters.engine.VectorStore;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import junit.framework.TestCase;
+import org.apache.mahout.math.NamedVector;
+import org.apache.mahout.math.RandomAccessSparseVector;
+import org.apache.mahout.math.Vector;
+
+/**
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class KSelectionTest extends TestCase {
+
+    private static final int K = 4;
+    private static final int TERMS = 6;
+
+    public KSelectionTest(String testName) {
+        super(testName);
+    }
+
+    /**
+     * Groups of documents over disjoint terms.
+     */
+    static VectorStore groups() {
+        Random random = new Random(3);
+        List<NamedVector> points = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            int group = i % K;
+            Vector vector = new RandomAccessSparseVector(K * TERMS);
+            for (int t = 0; t < TERMS; t++) {
+                vector.setQuick(group * TERMS + t, 0.5 + random.nextDouble());
+            }
+            points.add(new NamedVector(vector, String.valueOf(i)));
+        }
+        return new VectorStore(points);
+    }
+
+    private static KSelection selection(KSelection.Criterion criterion, long seed) {
+        KSelection selection = new KSelection();
+        selection.setNumThreads(2);
+        selection.setCriterion(criterion);
+        selection.setSeed(seed);
+        return selection;
+    }
+
+    /**
+     * Test that the number of groups is chosen by the silhouette.
+     */
+    public void testSilhouette() throws Exception {
+        KSelection selection = selection(KSelection.Criterion.SILHOUETTE, 1);
+        assertEquals(K, selection.select(groups(), 2, 7, 1));
+        assertEquals(6, selection.getResults().size());
+    }
+
+    /**
+     * Test that the number of groups is chosen by the gap statistic.
+     */
+    public void testGap() throws Exception {
+        KSelection selection = selection(KSelection.Criterion.GAP, 1);
+        assertEquals(K, selection.select(groups(), 2, 7, 1));
+    }
+
+    /**
+     * Test that the same seed gives the same scores.
+     */
+    public void testSameSeed() throws Exception {
+        VectorStore vectors = groups();
+        KSelection first = selection(KSelection.Criterion.GAP, 7);
+        KSelection second = selection(KSelection.Criterion.GAP, 7);
+        assertEquals(first.select(vectors, 2, 7, 1), second.select(vectors, 2, 7, 1));
+        for (int i = 0; i < first.getResults().size(); i++) {
+            assertEquals(first.getResults().get(i).getSilhouette(), second.getResults().get(i).getSilhouette(), 1e-9);
+            assertEquals(first.getResults().get(i).getGap(), second.getResults().get(i).getGap(), 1e-9);
+        }
+    }
+
+    /**
+     * Test that the start of the range is chosen when no candidate fits in the
+     * time budget.
+     */
+    public void testNoBudget() throws Exception {
+        KSelection selection = selection(KSelection.Criterion.SILHOUETTE, 1);
+        selection.setTimeBudget(0);
+        assertEquals(3, selection.select(groups(), 3, 7, 1));
+        assertTrue(selection.getResults().isEmpty());
+    }
+
+    /**
+     * Test that the sample has exactly the sample size when every stratum
+     * holds a single document.
+     */
+    public void testSampleSize() throws Exception {
+        List<NamedVector> points = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Vector vector = new RandomAccessSparseVector(50);
+            for (int t = 0; t <= i; t++) {
+                vector.setQuick(t, 1);
+            }
+            points.add(new NamedVector(vector, String.valueOf(i)));
+        }
+        KSelection selection = selection(KSelection.Criterion.SILHOUETTE, 1);
+        selection.setSampleSize(20);
+        assertEquals(20, selection.stratifiedSample(new VectorStore(points), new Random(1)).size());
+        assertEquals(20, selection.stratifiedSample(groups(), new Random(1)).size());
+    }
+}
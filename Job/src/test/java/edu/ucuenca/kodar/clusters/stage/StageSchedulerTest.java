@@ -0,0 +1,113 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.clusters.stage;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import junit.framework.TestCase;
+import org.apache.hadoop.fs.Path;
+
+/**
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class StageSchedulerTest extends TestCase {
+
+    private final List<String> finished = Collections.synchronizedList(new ArrayList<String>());
+
+    public StageSchedulerTest(String testName) {
+        super(testName);
+    }
+
+    private Stage stage(final String name, final CountDownLatch latch) {
+        return new Stage(name) {
+            @Override
+            public void run() throws Exception {
+                if (latch != null) {
+                    latch.countDown();
+                    // Both stages must be running at the same time.
+                    assertTrue(latch.await(10, TimeUnit.SECONDS));
+                }
+                finished.add(name);
+            }
+        };
+    }
+
+    /**
+     * Test that the stages that share paths run in the order they were added
+     * and the independent ones run concurrently.
+     */
+    public void testDependencies() throws Exception {
+        CountDownLatch both = new CountDownLatch(2);
+        StageScheduler scheduler = new StageScheduler(2);
+        scheduler.add(stage("ingest", null).writes(new Path("/home/sequence")));
+        scheduler.add(stage("vectors", both).reads(new Path("/home/sequence/output")).writes(new Path("/home/sparse")));
+        scheduler.add(stage("authors", both).reads(new Path("/home/sequence/authors")).writes(new Path("/home/join")));
+        scheduler.add(stage("cluster", null).reads(new Path("/home/sparse/vectors")).writes(new Path("/home/kmeans")));
+        scheduler.add(stage("label", null).reads(new Path("/home/join"), new Path("/home/kmeans")));
+        scheduler.run();
+
+        assertEquals("ingest", finished.get(0));
+        assertEquals("label", finished.get(4));
+        assertTrue(finished.indexOf("vectors") < finished.indexOf("cluster"));
+        assertEquals(5, scheduler.getTimings().size());
+        for (StageTiming timing : scheduler.getTimings()) {
+            if (timing.getStage().equals("label")) {
+                assertEquals(Arrays.asList("authors", "cluster"), timing.getDependencies());
+            }
+        }
+    }
+
+    /**
+     * Test that paths with a common prefix but different names do not depend
+     * on each other.
+     */
+    public void testSiblingPaths() throws Exception {
+        Stage a = stage("a", null).writes(new Path("/home/output"));
+        Stage b = stage("b", null).reads(new Path("/home/outputLong"));
+        assertFalse(b.dependsOn(a));
+        assertTrue(stage("c", null).reads(new Path("/home/output/part-r-00000")).dependsOn(a));
+        assertTrue(stage("d", null).writes(new Path("/home")).dependsOn(b));
+    }
+
+    /**
+     * Test that a failure is rethrown and its dependents do not run.
+     */
+    public void testFailure() throws Exception {
+        StageScheduler scheduler = new StageScheduler(1);
+        scheduler.add(new Stage("fails") {
+            @Override
+            public void run() throws Exception {
+                throw new IOException("fails");
+            }
+        }.writes(new Path("/home/a")));
+        scheduler.add(stage("dependent", null).reads(new Path("/home/a")));
+        try {
+            scheduler.run();
+            fail();
+        } catch (IOException ex) {
+            assertEquals("fails", ex.getMessage());
+        }
+        assertTrue(finished.isEmpty());
+    }
+}
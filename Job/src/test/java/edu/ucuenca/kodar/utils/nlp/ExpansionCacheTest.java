@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.utils.nlp;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class ExpansionCacheTest extends TestCase {
+
+    public ExpansionCacheTest(String testName) {
+        super(testName);
+    }
+
+    private static List<Word> expansion(String value, String hyponym) {
+        Word word = new Word(value);
+        word.getDefinitions().add("definition of " + value);
+        word.getHyponymy().add(hyponym);
+        return Arrays.asList(word);
+    }
+
+    /**
+     * Test that the least recently used keyword is evicted and that keywords
+     * not found are counted as negative hits.
+     */
+    public void testEviction() throws Exception {
+        ExpansionCache cache = new ExpansionCache(2);
+        assertNull(cache.get("well"));
+        cache.put("well", expansion("well", "good"));
+        cache.put("kodar", Collections.<Word>emptyList());
+        assertEquals("good", cache.get("well").get(0).getHyponymy().get(0));
+        assertTrue(cache.get("kodar").isEmpty());
+        cache.get("well");
+        cache.put("run", expansion("run", "sprint"));
+
+        assertEquals(2, cache.size());
+        assertNull(cache.get("kodar"));
+        assertNotNull(cache.get("run"));
+        assertEquals(3, cache.getHits());
+        assertEquals(1, cache.getNegativeHits());
+        assertEquals(2, cache.getMisses());
+        assertEquals(1, cache.getEvictions());
+        assertEquals(4.0 / 6, cache.getHitRate(), 1e-9);
+    }
+
+    /**
+     * Test that a snapshot restores the expansions and their recency.
+     */
+    public void testSnapshot() throws Exception {
+        File file = new File("target/expansions.bin");
+        ExpansionCache cache = new ExpansionCache(10);
+        cache.put("run", expansion("run", "sprint"));
+        cache.put("kodar", Collections.<Word>emptyList());
+        cache.put("well", expansion("well", "good"));
+        cache.save(file);
+
+        ExpansionCache loaded = new ExpansionCache(2);
+        loaded.load(file);
+        assertEquals(2, loaded.size());
+        assertTrue(loaded.get("kodar").isEmpty());
+        Word well = loaded.get("well").get(0);
+        assertEquals("well", well.getValue());
+        assertEquals(Arrays.asList("definition of well"), well.getDefinitions());
+        assertEquals(Arrays.asList("good"), well.getHyponymy());
+        assertTrue(well.getSimilar().isEmpty());
+    }
+}
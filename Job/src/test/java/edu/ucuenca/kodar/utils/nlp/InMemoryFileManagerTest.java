@@ -0,0 +1,82 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.utils.nlp;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.RandomAccessFile;
+import junit.framework.TestCase;
+import net.didion.jwnl.JWNL;
+import net.didion.jwnl.data.IndexWord;
+import net.didion.jwnl.data.POS;
+import net.didion.jwnl.dictionary.Dictionary;
+import net.didion.jwnl.dictionary.file.DictionaryFileType;
+
+/**
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class InMemoryFileManagerTest extends TestCase {
+
+    private static final String DICTIONARY = "WordNet-3.0/dict";
+
+    public InMemoryFileManagerTest(String testName) {
+        super(testName);
+    }
+
+    /**
+     * Test that every lemma of an index file is found at the offset of its
+     * line, and that lines are read as <code>RandomAccessFile</code> reads
+     * them.
+     */
+    public void testIndex() throws Exception {
+        InMemoryFileManager manager = new InMemoryFileManager(DICTIONARY);
+        try (RandomAccessFile file = new RandomAccessFile(new File(DICTIONARY, "index.adv"), "r")) {
+            long offset = manager.getFirstLinePointer(POS.ADVERB, DictionaryFileType.INDEX);
+            file.seek(offset);
+            int lines = 0;
+            for (String line = file.readLine(); line != null; line = file.readLine()) {
+                assertEquals(line, manager.readLineAt(POS.ADVERB, DictionaryFileType.INDEX, offset));
+                assertEquals(offset, manager.getIndexedLinePointer(POS.ADVERB, DictionaryFileType.INDEX,
+                        line.substring(0, line.indexOf(' '))));
+                offset = manager.getNextLinePointer(POS.ADVERB, DictionaryFileType.INDEX, offset);
+                assertEquals(file.getFilePointer(), offset);
+                lines++;
+            }
+            assertEquals(4481, lines);
+        }
+        assertEquals(-1, manager.getIndexedLinePointer(POS.ADVERB, DictionaryFileType.INDEX, "kodar"));
+    }
+
+    /**
+     * Test that the dictionary of <code>properties.xml</code> reads words,
+     * their senses and the exceptions through the file manager.
+     */
+    public void testDictionary() throws Exception {
+        JWNL.initialize(new FileInputStream("properties.xml"));
+        try {
+            IndexWord well = Dictionary.getInstance().getIndexWord(POS.ADVERB, "well");
+            assertNotNull(well);
+            assertEquals(13, well.getSenseCount());
+            assertEquals("well", well.getSense(1).getWord(0).getLemma());
+            assertEquals("well", Dictionary.getInstance().getException(POS.ADVERB, "best").getException(0));
+        } finally {
+            JWNL.shutdown();
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.utils.nlp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import junit.framework.TestCase;
+import net.didion.jwnl.data.IndexWord;
+import net.didion.jwnl.data.POS;
+import net.didion.jwnl.data.PointerType;
+import net.didion.jwnl.data.Synset;
+import net.didion.jwnl.dictionary.AbstractCachingDictionary;
+import net.didion.jwnl.dictionary.Dictionary;
+
+/**
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class NlpUtilsTest extends TestCase {
+
+    private static final List<String> WORDS = Arrays.asList("network", "compute", "learn", "semantic", "run",
+            "cluster", "model", "light", "fast", "green", "quickly", "write", "read", "open", "walk");
+
+    public NlpUtilsTest(String testName) {
+        super(testName);
+    }
+
+    /**
+     * Glosses and related lemmas of every sense of a word.
+     */
+    private static String read(NlpUtils nlp, String lemma) throws Exception {
+        StringBuilder sb = new StringBuilder(lemma);
+        for (POS pos : nlp.getPOS(lemma)) {
+            IndexWord word = nlp.getWord(pos, lemma);
+            sb.append('|').append(pos.getLabel());
+            for (Synset sense : word.getSenses()) {
+                sb.append('|').append(sense.getGloss());
+            }
+            for (PointerType type : new PointerType[]{PointerType.SIMILAR_TO, PointerType.HYPONYM,
+                PointerType.HYPERNYM}) {
+                List<?> related = nlp.getRelated(word, type);
+                if (related != null) {
+                    for (Object synset : related) {
+                        for (net.didion.jwnl.data.Word w : ((Synset) synset).getWords()) {
+                            sb.append(',').append(w.getLemma());
+                        }
+                    }
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Test that threads reading WordNet at once get what a single thread reads,
+     * with the caches of the dictionary disabled.
+     */
+    public void testConcurrentReaders() throws Exception {
+        final NlpUtils nlp = NlpUtils.getInstance();
+        assertFalse(((AbstractCachingDictionary) Dictionary.getInstance()).isCachingEnabled());
+        final List<String> expected = new ArrayList<>();
+        for (String word : WORDS) {
+            expected.add(read(nlp, word));
+            assertTrue(word + " not found", expected.get(expected.size() - 1).contains("|"));
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int t = 0; t < 16; t++) {
+                final int shift = t;
+                futures.add(pool.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        List<Integer> order = new ArrayList<>();
+                        for (int i = 0; i < WORDS.size(); i++) {
+                            order.add(i);
+                        }
+                        Collections.rotate(order, shift);
+                        for (int repeat = 0; repeat < 5; repeat++) {
+                            for (int i : order) {
+                                assertEquals(expected.get(i), read(nlp, WORDS.get(i)));
+                            }
+                        }
+                        return true;
+                    }
+                }));
+            }
+            for (Future<Boolean> future : futures) {
+                assertTrue(future.get());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements. See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership. The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.ucuenca.kodar.utils.nlp;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import junit.framework.TestCase;
+
+/**
+ *
+ * @author Xavier Sumba <xavier.sumba93@ucuenca.ec>
+ */
+public class TextServiceTest extends TestCase {
+
+    private final TextService service = new TextService(new File("en-token.bin"));
+
+    public TextServiceTest(String testName) {
+        super(testName);
+    }
+
+    public void testStopWords() throws Exception {
+        assertEquals("quick brown fox dog ", service.stopWords("The quick brown fox and the dog"));
+        assertEquals("", service.stopWords("the"));
+        assertEquals("semantic web ", service.stopWords("Semantic Web"));
+    }
+
+    public void testTokenize() throws Exception {
+        assertEquals(Arrays.asList("Data", "mining", ",", "clustering", "."),
+                Arrays.asList(service.tokenize("Data mining, clustering.")));
+    }
+
+    /**
+     * Test that threads sharing the service get the results of a single
+     * thread.
+     */
+    public void testConcurrent() throws Exception {
+        final String[] texts = new String[]{"The semantic web of linked data", "Clustering of the documents",
+            "Machine learning, data mining and information retrieval", "A study of the labels"};
+        final List<String> expected = new ArrayList<>();
+        for (String text : texts) {
+            expected.add(service.stopWords(text) + Arrays.toString(service.tokenize(text)));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                results.add(executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() throws Exception {
+                        for (int i = 0; i < 200; i++) {
+                            String text = texts[i % texts.length];
+                            String result = service.stopWords(text) + Arrays.toString(service.tokenize(text));
+                            if (!expected.get(i % texts.length).equals(result)) {
+                                return false;
+                            }
+                        }
+                        return true;
+                    }
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}